@@ -1,5 +1,6 @@
 package au.com.ibenta;
 
+import au.com.ibenta.startup.StartupReport;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.SpringApplication;
@@ -31,16 +32,20 @@ public class Application {
     private final Environment environment;
     private final GitProperties gitProperties;
     private final BuildProperties buildProperties;
+    private final StartupReport startupReport;
 
     public Application(final Environment environment,
                        @Autowired(required = false)
                        final GitProperties gitProperties,
                        @Autowired(required = false)
-                       final BuildProperties buildProperties) {
+                       final BuildProperties buildProperties,
+                       @Autowired(required = false)
+                       final StartupReport startupReport) {
 
         this.environment = environment;
         this.gitProperties = gitProperties;
         this.buildProperties = buildProperties;
+        this.startupReport = startupReport;
     }
 
     public static void main(String[] args) {
@@ -86,6 +91,7 @@ public class Application {
         );
 
         log.info(appInfo);
+        ofNullable(startupReport).map(StartupReport::format).ifPresent(log::info);
     }
 
     private String getHostAddress() {
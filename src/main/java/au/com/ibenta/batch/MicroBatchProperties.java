@@ -0,0 +1,24 @@
+package au.com.ibenta.batch;
+
+import lombok.Data;
+
+import java.time.Duration;
+
+@Data
+public class MicroBatchProperties {
+
+    /**
+     * Whether writes are batched at all, each one is written on its own when off.
+     */
+    private boolean enabled = false;
+
+    /**
+     * Writes in a batch, written as soon as it is full.
+     */
+    private int maxSize = 100;
+
+    /**
+     * Longest a write waits for others to share its batch.
+     */
+    private Duration maxDelay = Duration.ofMillis(2);
+}
@@ -0,0 +1,195 @@
+package au.com.ibenta.batch;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.noop.NoopCounter;
+import io.micrometer.core.instrument.noop.NoopDistributionSummary;
+import io.micrometer.core.instrument.noop.NoopTimer;
+import org.springframework.lang.NonNull;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+import static java.lang.String.format;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+/**
+ * Gathers items submitted concurrently into batches written together, trading up to {@code max-delay} of latency for
+ * fewer round trips and commits. A batch is written once it holds {@code max-size} items or its first item has
+ * waited {@code max-delay}, and every caller gets its own result back. When a batch fails with an error that
+ * {@code isolate} blames on one of its items, such as a constraint violation, its items are written again one by one
+ * so only the culprit fails; any other error fails the whole batch. Items sharing a {@code key}, such as two updates
+ * of one row, never go in the same batch: the second one sends the batch holding the first on its way and starts the
+ * next, so each is written in a transaction of its own and the database can still tell one is stale.
+ */
+public class MicroBatcher<T, R> implements MeterBinder {
+
+    private final String name;
+    private final MicroBatchProperties properties;
+    private final Function<List<T>, Mono<List<R>>> batchWriter;
+    private final Function<T, Mono<R>> singleWriter;
+    private final Predicate<Throwable> isolate;
+    private final Function<T, ?> key;
+    private final Scheduler timer;
+    private final Object lock = new Object();
+
+    private List<Entry<T, R>> pending = new ArrayList<>();
+    private Set<Object> pendingKeys = new HashSet<>();
+    private Disposable flush;
+
+    private volatile DistributionSummary sizes = new NoopDistributionSummary(null);
+    private volatile Timer waits = new NoopTimer(null);
+    private volatile Timer writes = new NoopTimer(null);
+    private volatile Counter isolated = new NoopCounter(null);
+
+    public MicroBatcher(final String name,
+                        final MicroBatchProperties properties,
+                        final Function<List<T>, Mono<List<R>>> batchWriter,
+                        final Function<T, Mono<R>> singleWriter,
+                        final Predicate<Throwable> isolate,
+                        final Function<T, ?> key) {
+        this.name = name;
+        this.properties = properties;
+        this.batchWriter = batchWriter;
+        this.singleWriter = singleWriter;
+        this.isolate = isolate;
+        this.key = key;
+        this.timer = Schedulers.parallel();
+    }
+
+    public Mono<R> submit(final T item) {
+        if (!properties.isEnabled()) {
+            return singleWriter.apply(item);
+        }
+        return Mono.create(sink -> add(new Entry<>(item, sink)));
+    }
+
+    @Override
+    public void bindTo(@NonNull final MeterRegistry registry) {
+        final var tags = Tags.of("batcher", name);
+
+        sizes = DistributionSummary.builder("batch.size")
+                .tags(tags)
+                .description("Items written per batch")
+                .publishPercentileHistogram()
+                .minimumExpectedValue(1L)
+                .maximumExpectedValue((long) properties.getMaxSize())
+                .register(registry);
+        waits = Timer.builder("batch.wait")
+                .tags(tags)
+                .description("Time items waited for their batch to be written, the latency batching adds")
+                .publishPercentileHistogram()
+                .register(registry);
+        writes = Timer.builder("batch.write")
+                .tags(tags)
+                .description("Time to write a batch together, whether it succeeded or not")
+                .publishPercentileHistogram()
+                .register(registry);
+        isolated = Counter.builder("batch.isolated")
+                .tags(tags)
+                .description("Batches written again one item at a time after an error blamed on one of them")
+                .register(registry);
+    }
+
+    private void add(final Entry<T, R> entry) {
+        final var itemKey = key.apply(entry.item);
+        List<Entry<T, R>> repeated = null;
+        List<Entry<T, R>> full = null;
+        synchronized (lock) {
+            if (itemKey != null && !pendingKeys.add(itemKey)) {
+                repeated = take();
+                pendingKeys.add(itemKey);
+            }
+            pending.add(entry);
+            if (pending.size() >= properties.getMaxSize()) {
+                full = take();
+            } else if (pending.size() == 1) {
+                final var batch = pending;
+                flush = timer.schedule(() -> flush(batch), properties.getMaxDelay().toNanos(), NANOSECONDS);
+            }
+        }
+        if (repeated != null) {
+            write(repeated);
+        }
+        if (full != null) {
+            write(full);
+        }
+    }
+
+    /**
+     * Writes the batch that was pending when its timer was set, unless it already went out full.
+     */
+    private void flush(final List<Entry<T, R>> batch) {
+        synchronized (lock) {
+            if (pending != batch) {
+                return;
+            }
+            take();
+        }
+        write(batch);
+    }
+
+    private List<Entry<T, R>> take() {
+        final var batch = pending;
+        pending = new ArrayList<>();
+        pendingKeys = new HashSet<>();
+        if (flush != null) {
+            flush.dispose();
+            flush = null;
+        }
+        return batch;
+    }
+
+    private void write(final List<Entry<T, R>> batch) {
+        final long started = System.nanoTime();
+        sizes.record(batch.size());
+        batch.forEach(entry -> waits.record(started - entry.submitted, NANOSECONDS));
+
+        final var items = new ArrayList<T>(batch.size());
+        batch.forEach(entry -> items.add(entry.item));
+        batchWriter.apply(items)
+                .defaultIfEmpty(List.of())
+                .flatMap(results -> results.size() == batch.size()
+                        ? Mono.just(results)
+                        : Mono.error(new IllegalStateException(format("batch of %d items wrote %d", batch.size(), results.size()))))
+                .doFinally(signal -> writes.record(System.nanoTime() - started, NANOSECONDS))
+                .subscribe(results -> {
+                    for (int i = 0; i < batch.size(); i++) {
+                        batch.get(i).sink.success(results.get(i));
+                    }
+                }, error -> {
+                    if (batch.size() > 1 && isolate.test(error)) {
+                        isolated.increment();
+                        batch.forEach(entry -> singleWriter.apply(entry.item)
+                                .subscribe(entry.sink::success, entry.sink::error, () -> entry.sink.success()));
+                    } else {
+                        batch.forEach(entry -> entry.sink.error(error));
+                    }
+                });
+    }
+
+    private static final class Entry<T, R> {
+
+        private final T item;
+        private final MonoSink<R> sink;
+        private final long submitted = System.nanoTime();
+
+        private Entry(final T item, final MonoSink<R> sink) {
+            this.item = item;
+            this.sink = sink;
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package au.com.ibenta.bloom;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free Bloom filter of strings: {@link #mightContain(String)} never misses a string that was {@link #put(String)},
+ * and answers true for others at about the false positive rate it was sized for, as long as it holds no more than the
+ * expected number of strings. Strings cannot be removed.
+ */
+public class BloomFilter {
+
+    private static final double LN2 = Math.log(2);
+
+    private final AtomicLongArray words;
+    private final long bits;
+    private final int hashes;
+    private final AtomicLong bitCount = new AtomicLong();
+
+    private BloomFilter(final long bits, final int hashes) {
+        this.words = new AtomicLongArray((int) ((bits + Long.SIZE - 1) / Long.SIZE));
+        this.bits = bits;
+        this.hashes = hashes;
+    }
+
+    /**
+     * A filter with the optimal number of bits and hashes for {@code expectedInsertions} strings at
+     * {@code falsePositiveRate}.
+     */
+    public static BloomFilter create(final long expectedInsertions, final double falsePositiveRate) {
+        final var insertions = Math.max(1, expectedInsertions);
+        final var bits = Math.max(Long.SIZE, (long) Math.ceil(-insertions * Math.log(falsePositiveRate) / (LN2 * LN2)));
+        if (bits > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("a bloom filter of " + bits + " bits is too large");
+        }
+        final var hashes = Math.max(1, (int) Math.round((double) bits / insertions * LN2));
+        return new BloomFilter(bits, hashes);
+    }
+
+    /**
+     * Adds the string, returning whether that set any bit, which is false when it was probably added before.
+     */
+    public boolean put(final String value) {
+        final var hash = hash(value);
+        var changed = false;
+        for (int i = 1; i <= hashes; i++) {
+            changed |= set(index(hash, i));
+        }
+        return changed;
+    }
+
+    public boolean mightContain(final String value) {
+        final var hash = hash(value);
+        for (int i = 1; i <= hashes; i++) {
+            final var index = index(hash, i);
+            if ((words.get((int) (index >>> 6)) & (1L << index)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * The false positive rate given the bits set so far, which grows past the one the filter was sized for once it
+     * holds more strings than expected.
+     */
+    public double expectedFalsePositiveRate() {
+        return Math.pow((double) bitCount.get() / bits, hashes);
+    }
+
+    public long bitSize() {
+        return bits;
+    }
+
+    public int hashCount() {
+        return hashes;
+    }
+
+    private boolean set(final long index) {
+        final var word = (int) (index >>> 6);
+        final var mask = 1L << index;
+        long current;
+        do {
+            current = words.get(word);
+            if ((current & mask) != 0) {
+                return false;
+            }
+        } while (!words.compareAndSet(word, current, current | mask));
+        bitCount.incrementAndGet();
+        return true;
+    }
+
+    /**
+     * The i-th bit of the string by double hashing of the two halves of its 64 bit hash.
+     */
+    private long index(final long hash, final int i) {
+        final var combined = (int) hash + i * (int) (hash >>> 32);
+        return (combined < 0 ? ~combined : combined) % bits;
+    }
+
+    /**
+     * FNV-1a over the characters, finished with the MurmurHash3 mix so every input bit reaches every output bit.
+     */
+    private static long hash(final String value) {
+        var hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < value.length(); i++) {
+            hash ^= value.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
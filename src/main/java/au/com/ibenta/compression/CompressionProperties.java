@@ -0,0 +1,35 @@
+package au.com.ibenta.compression;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.util.List;
+import java.util.zip.Deflater;
+
+@Data
+@ConfigurationProperties(prefix = "ibenta.compression")
+public class CompressionProperties {
+
+    /**
+     * Whether response bodies are gzip compressed for clients that accept it.
+     */
+    private boolean enabled = true;
+
+    /**
+     * Smallest body worth compressing, taken from the Content-Length or otherwise from the first buffer written.
+     */
+    private DataSize minResponseSize = DataSize.ofKilobytes(2);
+
+    /**
+     * Content types that are compressed, wildcards such as {@code application/*+json} included.
+     */
+    private List<String> mimeTypes = List.of(
+            "application/json", "application/*+json", "application/javascript",
+            "text/html", "text/css", "text/javascript", "text/plain", "image/svg+xml");
+
+    /**
+     * Deflate level from 1, the fastest, to 9, the smallest; -1 for the zlib default of 6.
+     */
+    private int level = Deflater.DEFAULT_COMPRESSION;
+}
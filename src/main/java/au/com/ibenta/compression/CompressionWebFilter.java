@@ -0,0 +1,262 @@
+package au.com.ibenta.compression;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.reactivestreams.Publisher;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.http.server.reactive.ServerHttpResponseDecorator;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Component;
+import org.springframework.util.MimeType;
+import org.springframework.util.MimeTypeUtils;
+import org.springframework.util.StringUtils;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Gzip compresses response bodies of the configured types from {@code ibenta.compression.min-response-size} on, at the
+ * configured deflate level, which Reactor Netty's own compression does not expose. Bytes going into and out of the
+ * compressor are counted as {@code http.server.compression.bytes}, bodies sent as they are as
+ * {@code http.server.compression.skipped.bytes} per reason. Streams flushed per element are never compressed.
+ * Running ahead of {@code RouteMetricsWebFilter}, {@code http.server.response.size} stays the uncompressed size.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 1)
+@EnableConfigurationProperties(CompressionProperties.class)
+public class CompressionWebFilter implements WebFilter {
+
+    public static final String COMPRESSED_BYTES = "http.server.compression.bytes";
+    public static final String SKIPPED_BYTES = "http.server.compression.skipped.bytes";
+
+    private static final String GZIP = "gzip";
+    private static final String WEAK_PREFIX = "W/";
+
+    /**
+     * Why a body was sent uncompressed.
+     */
+    enum Skip {
+        ENCODING, TYPE, SIZE, STREAMING
+    }
+
+    private final boolean enabled;
+    private final long minResponseSize;
+    private final List<MimeType> mimeTypes;
+    private final int level;
+    private final Counter bytesIn;
+    private final Counter bytesOut;
+    private final Map<Skip, Counter> skipped = new EnumMap<>(Skip.class);
+
+    public CompressionWebFilter(final CompressionProperties properties, final MeterRegistry registry) {
+        this.enabled = properties.isEnabled();
+        this.minResponseSize = properties.getMinResponseSize().toBytes();
+        this.mimeTypes = properties.getMimeTypes().stream().map(MimeTypeUtils::parseMimeType).collect(Collectors.toList());
+        this.level = properties.getLevel();
+        this.bytesIn = bytes(registry, COMPRESSED_BYTES, "stage", "in");
+        this.bytesOut = bytes(registry, COMPRESSED_BYTES, "stage", "out");
+        for (final var reason : Skip.values()) {
+            skipped.put(reason, bytes(registry, SKIPPED_BYTES, "reason", reason.name().toLowerCase(Locale.ROOT)));
+        }
+    }
+
+    @Override
+    @NonNull
+    public Mono<Void> filter(@NonNull final ServerWebExchange exchange, @NonNull final WebFilterChain chain) {
+        if (!enabled) {
+            return chain.filter(exchange);
+        }
+        final var response = new CompressingResponse(exchange.getResponse(), acceptsGzip(exchange.getRequest()));
+        return chain.filter(exchange.mutate().response(response).build());
+    }
+
+    private static boolean acceptsGzip(final ServerHttpRequest request) {
+        for (final var header : request.getHeaders().getOrEmpty(HttpHeaders.ACCEPT_ENCODING)) {
+            for (final var coding : StringUtils.tokenizeToStringArray(header, ",")) {
+                final var parts = StringUtils.tokenizeToStringArray(coding, ";");
+                final var accepted = GZIP.equalsIgnoreCase(parts[0]) || "*".equals(parts[0]);
+                if (accepted && (parts.length == 1 || !parts[1].replace(" ", "").matches("q=0(\\.0*)?"))) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static Counter bytes(final MeterRegistry registry, final String name, final String tag, final String value) {
+        return Counter.builder(name).baseUnit("bytes").tag(tag, value).register(registry);
+    }
+
+    private final class CompressingResponse extends ServerHttpResponseDecorator {
+
+        private final boolean acceptsGzip;
+
+        private CompressingResponse(final ServerHttpResponse delegate, final boolean acceptsGzip) {
+            super(delegate);
+            this.acceptsGzip = acceptsGzip;
+        }
+
+        @Override
+        @NonNull
+        public Mono<Void> writeWith(@NonNull final Publisher<? extends DataBuffer> body) {
+            if (body instanceof Mono) {
+                return super.writeWith(Mono.<DataBuffer>from(body).map(this::compressWhole));
+            }
+            return super.writeWith(Flux.<DataBuffer>from(body).switchOnFirst((first, buffers) -> {
+                final var reason = negotiate(first.hasValue() ? first.get().readableByteCount() : 0);
+                if (reason != null) {
+                    return buffers.doOnNext(buffer -> skipped.get(reason).increment(buffer.readableByteCount()));
+                }
+                encodeHeaders();
+                return compressStream(buffers);
+            }));
+        }
+
+        @Override
+        @NonNull
+        public Mono<Void> writeAndFlushWith(@NonNull final Publisher<? extends Publisher<? extends DataBuffer>> body) {
+            final var streaming = skipped.get(Skip.STREAMING);
+            return super.writeAndFlushWith(Flux.from(body)
+                    .map(chunk -> Flux.from(chunk).doOnNext(buffer -> streaming.increment(buffer.readableByteCount()))));
+        }
+
+        /**
+         * Decides on the content type, the accepted encodings and the Content-Length, or else the size of the first
+         * buffer. Responses of a compressible type vary by Accept-Encoding whether this one is compressed or not.
+         */
+        private Skip negotiate(final int firstBufferSize) {
+            final var headers = getHeaders();
+            final var contentType = headers.getContentType();
+            if (contentType == null || mimeTypes.stream().noneMatch(type -> type.includes(contentType))) {
+                return Skip.TYPE;
+            }
+            if (!headers.getVary().contains(HttpHeaders.ACCEPT_ENCODING)) {
+                headers.add(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+            }
+            if (!acceptsGzip || headers.containsKey(HttpHeaders.CONTENT_ENCODING)) {
+                return Skip.ENCODING;
+            }
+            final var length = headers.getContentLength();
+            return (length >= 0 ? length : firstBufferSize) < minResponseSize ? Skip.SIZE : null;
+        }
+
+        /**
+         * The compressed body is a different representation, so a strong ETag of the original is weakened.
+         */
+        private void encodeHeaders() {
+            final var headers = getHeaders();
+            headers.set(HttpHeaders.CONTENT_ENCODING, GZIP);
+            headers.remove(HttpHeaders.CONTENT_LENGTH);
+            final var etag = headers.getETag();
+            if (etag != null && !etag.startsWith(WEAK_PREFIX)) {
+                headers.setETag(WEAK_PREFIX + etag);
+            }
+        }
+
+        private DataBuffer compressWhole(final DataBuffer buffer) {
+            final var reason = negotiate(buffer.readableByteCount());
+            if (reason != null) {
+                skipped.get(reason).increment(buffer.readableByteCount());
+                return buffer;
+            }
+
+            encodeHeaders();
+            try (final var gzip = new GzipSink(level)) {
+                gzip.feed(buffer);
+                gzip.finish();
+                final var compressed = gzip.drain(bufferFactory());
+                getHeaders().setContentLength(compressed.readableByteCount());
+                return compressed;
+            }
+        }
+
+        private Flux<DataBuffer> compressStream(final Flux<DataBuffer> buffers) {
+            final var factory = bufferFactory();
+            return Flux.using(() -> new GzipSink(level),
+                    gzip -> buffers
+                            .map(buffer -> {
+                                gzip.feed(buffer);
+                                return gzip.drain(factory);
+                            })
+                            .concatWith(Mono.fromSupplier(() -> {
+                                gzip.finish();
+                                return gzip.drain(factory);
+                            }))
+                            .filter(buffer -> buffer.readableByteCount() > 0),
+                    GzipSink::close);
+        }
+
+        /**
+         * A gzip stream fed one buffer at a time, handing out whatever the deflater has produced so far.
+         */
+        private final class GzipSink implements Closeable {
+
+            private final ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+            private final GZIPOutputStream gzip;
+
+            private GzipSink(final int level) {
+                try {
+                    gzip = new GZIPOutputStream(compressed) {
+                        {
+                            def.setLevel(level);
+                        }
+                    };
+                } catch (final IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+
+            private void feed(final DataBuffer buffer) {
+                bytesIn.increment(buffer.readableByteCount());
+                try (final var input = buffer.asInputStream(true)) {
+                    input.transferTo(gzip);
+                } catch (final IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+
+            private void finish() {
+                try {
+                    gzip.finish();
+                } catch (final IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+
+            private DataBuffer drain(final DataBufferFactory factory) {
+                final var bytes = compressed.toByteArray();
+                compressed.reset();
+                bytesOut.increment(bytes.length);
+                return factory.wrap(bytes);
+            }
+
+            @Override
+            public void close() {
+                try {
+                    gzip.close();
+                } catch (final IOException ignored) {
+                    // nothing left to release, the deflater ends either way
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package au.com.ibenta.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.reactivestreams.Publisher;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.cbor.Jackson2CborDecoder;
+import org.springframework.lang.NonNull;
+import org.springframework.util.MimeType;
+import reactor.core.publisher.Flux;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * {@link Jackson2CborDecoder} refuses to decode a stream. A {@link Flux} is read from one CBOR array instead, the
+ * counterpart of {@link CborArrayEncoder}.
+ */
+class CborArrayDecoder extends Jackson2CborDecoder {
+
+    CborArrayDecoder(final ObjectMapper mapper) {
+        super(mapper, MediaType.APPLICATION_CBOR);
+    }
+
+    @Override
+    @NonNull
+    @SuppressWarnings("unchecked")
+    public Flux<Object> decode(@NonNull final Publisher<DataBuffer> input,
+                               @NonNull final ResolvableType elementType,
+                               final MimeType mimeType,
+                               final Map<String, Object> hints) {
+        final var listType = ResolvableType.forClassWithGenerics(List.class, elementType);
+        return decodeToMono(input, listType, mimeType, hints)
+                .flatMapIterable(values -> (List<Object>) values);
+    }
+}
@@ -0,0 +1,47 @@
+package au.com.ibenta.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.reactivestreams.Publisher;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.cbor.Jackson2CborEncoder;
+import org.springframework.lang.NonNull;
+import org.springframework.util.MimeType;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * {@link Jackson2CborEncoder} refuses to encode a stream. Single values are encoded as they are, a {@link Flux} as one
+ * CBOR array, the way {@code application/json} renders it.
+ */
+class CborArrayEncoder extends Jackson2CborEncoder {
+
+    CborArrayEncoder(final ObjectMapper mapper) {
+        super(mapper, MediaType.APPLICATION_CBOR);
+    }
+
+    @Override
+    @NonNull
+    public Flux<DataBuffer> encode(@NonNull final Publisher<?> inputStream,
+                                   @NonNull final DataBufferFactory bufferFactory,
+                                   @NonNull final ResolvableType elementType,
+                                   final MimeType mimeType,
+                                   final Map<String, Object> hints) {
+        if (inputStream instanceof Mono) {
+            return Mono.from(inputStream)
+                    .map(value -> encodeValue(value, bufferFactory, elementType, mimeType, hints))
+                    .flux();
+        }
+
+        final var listType = ResolvableType.forClassWithGenerics(List.class, elementType);
+        return Flux.from(inputStream)
+                .collectList()
+                .map(values -> encodeValue(values, bufferFactory, listType, mimeType, hints))
+                .flux();
+    }
+}
@@ -1,20 +1,47 @@
 package au.com.ibenta.config;
 
+import com.fasterxml.jackson.databind.Module;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.fasterxml.jackson.module.afterburner.AfterburnerModule;
+import org.springframework.boot.autoconfigure.web.ServerProperties;
+import org.springframework.boot.web.codec.CodecCustomizer;
+import org.springframework.boot.web.embedded.netty.NettyServerCustomizer;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.json.Jackson2JsonDecoder;
+import org.springframework.http.codec.json.Jackson2JsonEncoder;
+import org.springframework.http.codec.json.Jackson2SmileDecoder;
+import org.springframework.http.codec.json.Jackson2SmileEncoder;
 import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
 import org.springframework.web.cors.CorsConfiguration;
 import org.springframework.web.cors.reactive.CorsWebFilter;
 import org.springframework.web.cors.reactive.UrlBasedCorsConfigurationSource;
+import reactor.netty.http.HttpProtocol;
+
+import java.util.ArrayList;
+import java.util.List;
 
 import static com.fasterxml.jackson.databind.DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES;
 import static com.fasterxml.jackson.databind.SerializationFeature.WRITE_DATES_AS_TIMESTAMPS;
+import static org.springframework.http.MediaType.APPLICATION_JSON;
+import static org.springframework.http.MediaType.APPLICATION_STREAM_JSON;
 
 @Configuration
 public class WebConfiguration {
 
+    public static final String APPLICATION_NDJSON_VALUE = "application/x-ndjson";
+    public static final MediaType APPLICATION_NDJSON = MediaType.valueOf(APPLICATION_NDJSON_VALUE);
+    public static final String APPLICATION_MERGE_PATCH_JSON_VALUE = "application/merge-patch+json";
+    public static final String APPLICATION_SMILE_VALUE = "application/x-jackson-smile";
+    public static final MediaType APPLICATION_SMILE = MediaType.valueOf(APPLICATION_SMILE_VALUE);
+
+    private static final MediaType APPLICATION_ANY_JSON = new MediaType("application", "*+json");
+
     @Bean
     CorsWebFilter corsWebFilter() {
         final var corsConfig = new CorsConfiguration();
@@ -24,13 +51,65 @@ public class WebConfiguration {
         return new CorsWebFilter(source);
     }
 
+    /**
+     * Spring Boot only turns HTTP/2 on for Netty over TLS. Without it, {@code server.http2.enabled} serves h2c here,
+     * upgraded from HTTP/1.1 or by prior knowledge, so internal clients can multiplex over fewer connections.
+     */
+    @Bean
+    NettyServerCustomizer h2cServerCustomizer(final ServerProperties properties) {
+        final var ssl = properties.getSsl();
+        final var h2c = properties.getHttp2().isEnabled() && (ssl == null || !ssl.isEnabled());
+        return server -> h2c ? server.protocol(HttpProtocol.H2C, HttpProtocol.HTTP11) : server;
+    }
+
+    /**
+     * Installs the Jackson {@link Module} beans, such as the problem modules, next to the well known ones; replacing
+     * Boot's builder also replaces the customizer that would otherwise register them. Every mapper built or configured
+     * from it, JSON, Smile or CBOR, writes dates as ISO-8601 text.
+     */
+    @Bean
+    public Jackson2ObjectMapperBuilder configureObjectMapper(final List<Module> modules) {
+        final var installed = new ArrayList<Module>(modules);
+        installed.add(new JavaTimeModule());
+        return new Jackson2ObjectMapperBuilder()
+                .featuresToDisable(WRITE_DATES_AS_TIMESTAMPS, FAIL_ON_UNKNOWN_PROPERTIES)
+                .modulesToInstall(installed.toArray(new Module[0]));
+    }
+
+    /**
+     * Generates bytecode accessors for bean properties instead of going through reflection.
+     */
     @Bean
-    public Jackson2ObjectMapperBuilder configureObjectMapper() {
-        final var builder = new Jackson2ObjectMapperBuilder();
-        final var objectMapper = new ObjectMapper();
-        objectMapper.disable(WRITE_DATES_AS_TIMESTAMPS).configure(FAIL_ON_UNKNOWN_PROPERTIES, false);
-        objectMapper.registerModule(new JavaTimeModule());
-        builder.configure(objectMapper);
-        return builder;
+    AfterburnerModule afterburnerModule() {
+        return new AfterburnerModule();
+    }
+
+    /**
+     * Registers newline delimited JSON with the Jackson codecs, encoded and flushed per element like
+     * {@code application/stream+json}, and Smile and CBOR for internal callers that ask for them. Ordered after Boot's
+     * customizer so the shared {@link ObjectMapper} is kept. Custom codecs are consulted before the default ones, so
+     * JSON is registered again ahead of the binary formats to stay the choice for {@code Accept: *}{@code /*}.
+     */
+    @Bean
+    @Order(1)
+    CodecCustomizer binaryCodecCustomizer(final ObjectMapper objectMapper, final Jackson2ObjectMapperBuilder builder) {
+        final var smileMapper = new ObjectMapper(new SmileFactory());
+        builder.configure(smileMapper);
+        final var cborMapper = new ObjectMapper(new CBORFactory());
+        builder.configure(cborMapper);
+
+        return configurer -> {
+            final var encoder = new Jackson2JsonEncoder(objectMapper, APPLICATION_JSON, APPLICATION_ANY_JSON, APPLICATION_NDJSON);
+            encoder.setStreamingMediaTypes(List.of(APPLICATION_STREAM_JSON, APPLICATION_NDJSON));
+            configurer.defaultCodecs().jackson2JsonEncoder(encoder);
+            configurer.defaultCodecs().jackson2JsonDecoder(
+                    new Jackson2JsonDecoder(objectMapper, APPLICATION_JSON, APPLICATION_ANY_JSON, APPLICATION_NDJSON));
+
+            configurer.customCodecs().register(encoder);
+            configurer.customCodecs().register(new Jackson2SmileEncoder(smileMapper, APPLICATION_SMILE));
+            configurer.customCodecs().register(new Jackson2SmileDecoder(smileMapper, APPLICATION_SMILE));
+            configurer.customCodecs().register(new CborArrayEncoder(cborMapper));
+            configurer.customCodecs().register(new CborArrayDecoder(cborMapper));
+        };
     }
 }
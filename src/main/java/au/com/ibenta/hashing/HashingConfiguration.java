@@ -0,0 +1,44 @@
+package au.com.ibenta.hashing;
+
+import au.com.ibenta.offload.BulkheadExecutor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import static java.util.Optional.ofNullable;
+
+@Slf4j
+@Configuration
+@EnableConfigurationProperties(HashingProperties.class)
+public class HashingConfiguration {
+
+    public static final String HASHING_SCHEDULER = "hashingScheduler";
+
+    @Bean
+    BulkheadExecutor hashingBulkhead(final HashingProperties properties) {
+        final int threads = ofNullable(properties.getThreads()).orElseGet(() -> Runtime.getRuntime().availableProcessors());
+        return new BulkheadExecutor("hashing", threads, properties.getQueueCapacity());
+    }
+
+    @Bean(name = HASHING_SCHEDULER, destroyMethod = "dispose")
+    Scheduler hashingScheduler(@Qualifier("hashingBulkhead") final BulkheadExecutor hashingBulkhead) {
+        return Schedulers.fromExecutorService(hashingBulkhead, hashingBulkhead.getName());
+    }
+
+    @Bean
+    PasswordHasher passwordHasher(final HashingProperties properties,
+                                  @Qualifier("hashingBulkhead") final BulkheadExecutor hashingBulkhead,
+                                  @Qualifier(HASHING_SCHEDULER) final Scheduler hashingScheduler) {
+        final int strength = ofNullable(properties.getStrength()).orElseGet(() -> {
+            final var calibrated = PasswordHasher.calibrate(properties.getTargetTime(), properties.getMinStrength(), properties.getMaxStrength());
+            log.info("Calibrated BCrypt work factor {} for a target hash time of {}", calibrated, properties.getTargetTime());
+            return calibrated;
+        });
+
+        return new PasswordHasher(strength, hashingScheduler, hashingBulkhead.getMaximumPoolSize());
+    }
+}
@@ -0,0 +1,41 @@
+package au.com.ibenta.hashing;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "ibenta.hashing")
+public class HashingProperties {
+
+    /**
+     * Worker threads, defaults to the available processors since hashing is pure CPU work.
+     */
+    private Integer threads;
+
+    /**
+     * Hashes allowed to wait for a worker before new ones are rejected with a 503.
+     */
+    private int queueCapacity = 64;
+
+    /**
+     * Fixed BCrypt work factor, skips the startup calibration when set.
+     */
+    private Integer strength;
+
+    /**
+     * Time a single hash should take, the calibration picks the highest work factor that stays under it.
+     */
+    private Duration targetTime = Duration.ofMillis(100);
+
+    /**
+     * Lowest work factor the calibration may pick, even on slow hardware.
+     */
+    private int minStrength = 10;
+
+    /**
+     * Highest work factor the calibration may pick.
+     */
+    private int maxStrength = 14;
+}
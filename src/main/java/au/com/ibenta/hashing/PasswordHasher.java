@@ -0,0 +1,103 @@
+package au.com.ibenta.hashing;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.noop.NoopTimer;
+import org.springframework.lang.NonNull;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+
+import java.time.Duration;
+
+/**
+ * BCrypt hashing on a dedicated scheduler so the tens of milliseconds of CPU each hash costs never run on the
+ * event loop. Hashes made with a lower work factor report {@link #upgradeEncoding(String)} so callers can
+ * rehash them once the password is known again.
+ */
+public class PasswordHasher implements MeterBinder {
+
+    private static final int CALIBRATION_ROUNDS = 3;
+
+    private final BCryptPasswordEncoder encoder;
+    private final int strength;
+    private final Scheduler scheduler;
+    private final int parallelism;
+
+    private volatile Timer encodeTimer = new NoopTimer(null);
+    private volatile Timer matchTimer = new NoopTimer(null);
+
+    public PasswordHasher(final int strength, final Scheduler scheduler, final int parallelism) {
+        this.encoder = new BCryptPasswordEncoder(strength);
+        this.strength = strength;
+        this.scheduler = scheduler;
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Highest work factor between {@code minStrength} and {@code maxStrength} expected to hash within
+     * {@code target}, based on the fastest of a few hashes at {@code minStrength}. Each step doubles the cost.
+     */
+    public static int calibrate(final Duration target, final int minStrength, final int maxStrength) {
+        final var encoder = new BCryptPasswordEncoder(minStrength);
+        var fastest = Long.MAX_VALUE;
+        for (int i = 0; i < CALIBRATION_ROUNDS; i++) {
+            final long started = System.nanoTime();
+            encoder.encode("calibration");
+            fastest = Math.min(fastest, System.nanoTime() - started);
+        }
+
+        var strength = minStrength;
+        for (var estimate = fastest * 2; strength < maxStrength && estimate <= target.toNanos(); estimate *= 2) {
+            strength++;
+        }
+        return strength;
+    }
+
+    public Mono<String> encode(final CharSequence rawPassword) {
+        return Mono.fromCallable(() -> encodeTimer.recordCallable(() -> encoder.encode(rawPassword)))
+                .subscribeOn(scheduler);
+    }
+
+    public Mono<Boolean> matches(final CharSequence rawPassword, final String encodedPassword) {
+        return Mono.fromCallable(() -> matchTimer.recordCallable(() -> encoder.matches(rawPassword, encodedPassword)))
+                .subscribeOn(scheduler);
+    }
+
+    /**
+     * Whether the hash was made with a lower work factor than the current one. Cheap, only parses the hash.
+     */
+    public boolean upgradeEncoding(final String encodedPassword) {
+        return encoder.upgradeEncoding(encodedPassword);
+    }
+
+    public int getStrength() {
+        return strength;
+    }
+
+    /**
+     * Hashes that can run at once, callers hashing in bulk should not have more in flight.
+     */
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    @Override
+    public void bindTo(@NonNull final MeterRegistry registry) {
+        encodeTimer = Timer.builder("password.hash")
+                .tag("operation", "encode")
+                .description("CPU time spent hashing passwords")
+                .publishPercentileHistogram()
+                .register(registry);
+        matchTimer = Timer.builder("password.hash")
+                .tag("operation", "match")
+                .description("CPU time spent hashing passwords")
+                .publishPercentileHistogram()
+                .register(registry);
+        Gauge.builder("password.hash.strength", this, PasswordHasher::getStrength)
+                .description("BCrypt work factor new hashes are made with")
+                .register(registry);
+    }
+}
@@ -0,0 +1,187 @@
+package au.com.ibenta.limit;
+
+import com.github.benmanes.caffeine.cache.Ticker;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.noop.NoopCounter;
+import org.springframework.lang.NonNull;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Caps the calls in flight to a resource with a limit that follows its latency, in the manner of Netflix's Gradient2:
+ * a short average of recent call times is compared with a long one of calls that did not queue, and the limit shrinks
+ * by their ratio once recent calls get slower than {@code rtt-tolerance} times that baseline, or grows by
+ * {@code queue-size} otherwise. Calls over the limit fail straight away with {@link ConcurrencyLimitExceededException}
+ * rather than wait on the connection pool, and a full bulkhead cuts the limit by a tenth.
+ */
+public class AdaptiveConcurrencyLimiter implements MeterBinder {
+
+    private static final double MIN_GRADIENT = 0.5;
+    private static final double BACKOFF_RATIO = 0.9;
+
+    private final String name;
+    private final ConcurrencyLimitProperties properties;
+    private final Ticker ticker;
+    private final double shortAlpha;
+    private final double longAlpha;
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    private volatile int limit;
+    private double estimatedLimit;
+    private double shortRtt;
+    private double longRtt;
+    private long samples;
+
+    private volatile Counter rejections = new NoopCounter(null);
+
+    public AdaptiveConcurrencyLimiter(final String name, final ConcurrencyLimitProperties properties) {
+        this(name, properties, Ticker.systemTicker());
+    }
+
+    AdaptiveConcurrencyLimiter(final String name, final ConcurrencyLimitProperties properties, final Ticker ticker) {
+        this.name = name;
+        this.properties = properties;
+        this.ticker = ticker;
+        this.shortAlpha = 2.0 / (properties.getShortWindow() + 1);
+        this.longAlpha = 2.0 / (properties.getLongWindow() + 1);
+        this.estimatedLimit = properties.getInitialLimit();
+        this.limit = properties.getInitialLimit();
+    }
+
+    public <T> Mono<T> limit(final Mono<T> source) {
+        if (!properties.isEnabled()) {
+            return source;
+        }
+        return Mono.defer(() -> {
+            final var permit = acquire();
+            return source.doOnError(permit::onError).doFinally(permit::release);
+        });
+    }
+
+    public <T> Flux<T> limit(final Flux<T> source) {
+        if (!properties.isEnabled()) {
+            return source;
+        }
+        return Flux.defer(() -> {
+            final var permit = acquire();
+            return source.doOnError(permit::onError).doFinally(permit::release);
+        });
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    @Override
+    public void bindTo(@NonNull final MeterRegistry registry) {
+        final var tags = Tags.of("limiter", name);
+
+        Gauge.builder("concurrency.limit", this, AdaptiveConcurrencyLimiter::getLimit)
+                .tags(tags)
+                .description("Calls currently allowed in flight")
+                .register(registry);
+        Gauge.builder("concurrency.inflight", this, AdaptiveConcurrencyLimiter::getInFlight)
+                .tags(tags)
+                .description("Calls currently in flight")
+                .register(registry);
+        Gauge.builder("concurrency.rtt", this, limiter -> limiter.rtt(false))
+                .tags(tags.and("window", "short"))
+                .description("Average time of recent calls")
+                .baseUnit("seconds")
+                .register(registry);
+        Gauge.builder("concurrency.rtt", this, limiter -> limiter.rtt(true))
+                .tags(tags.and("window", "long"))
+                .description("Baseline time of calls the recent ones are compared with")
+                .baseUnit("seconds")
+                .register(registry);
+        rejections = Counter.builder("concurrency.rejected")
+                .tags(tags)
+                .description("Calls rejected because the limit was reached")
+                .register(registry);
+    }
+
+    private Permit acquire() {
+        int current;
+        do {
+            current = inFlight.get();
+            if (current >= limit) {
+                rejections.increment();
+                throw new ConcurrencyLimitExceededException();
+            }
+        } while (!inFlight.compareAndSet(current, current + 1));
+        return new Permit(current + 1);
+    }
+
+    private synchronized void onSample(final long rtt, final int inFlightAtStart, final boolean dropped) {
+        if (dropped) {
+            update(estimatedLimit * BACKOFF_RATIO);
+            return;
+        }
+
+        if (samples++ == 0) {
+            shortRtt = rtt;
+            longRtt = rtt;
+            return;
+        }
+        shortRtt += shortAlpha * (rtt - shortRtt);
+
+        // the baseline only learns from calls that did not queue behind others, or it would drift up with the load
+        // it is meant to detect, unless the limit cannot shed any more and the resource really got slower
+        final var appLimited = inFlightAtStart < estimatedLimit / 2;
+        if (appLimited || limit <= properties.getMinLimit()) {
+            longRtt += longAlpha * (rtt - longRtt);
+        }
+        // once per short window, and not with too few calls to tell anything about the resource
+        if (appLimited || samples % properties.getShortWindow() != 0) {
+            return;
+        }
+
+        final var gradient = Math.max(MIN_GRADIENT, Math.min(1.0, properties.getRttTolerance() * longRtt / shortRtt));
+        final var newLimit = estimatedLimit * gradient + properties.getQueueSize();
+        update(estimatedLimit * (1 - properties.getSmoothing()) + newLimit * properties.getSmoothing());
+    }
+
+    private void update(final double newLimit) {
+        estimatedLimit = Math.max(properties.getMinLimit(), Math.min(properties.getMaxLimit(), newLimit));
+        limit = (int) estimatedLimit;
+    }
+
+    private synchronized double rtt(final boolean baseline) {
+        return (baseline ? longRtt : shortRtt) / 1e9;
+    }
+
+    private final class Permit {
+
+        private final long start = ticker.read();
+        private final int inFlightAtStart;
+        private volatile boolean dropped;
+
+        private Permit(final int inFlightAtStart) {
+            this.inFlightAtStart = inFlightAtStart;
+        }
+
+        private void onError(final Throwable error) {
+            dropped = error instanceof RejectedExecutionException;
+        }
+
+        private void release(final SignalType signal) {
+            inFlight.decrementAndGet();
+            // a cancelled call says nothing about how long the resource takes
+            if (signal != SignalType.CANCEL) {
+                onSample(ticker.read() - start, inFlightAtStart, dropped);
+            }
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package au.com.ibenta.limit;
+
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@EnableConfigurationProperties(ConcurrencyLimitProperties.class)
+public class ConcurrencyLimitConfiguration {
+
+    public static final String DATABASE_LIMITER = "databaseLimiter";
+
+    @Bean(name = DATABASE_LIMITER)
+    AdaptiveConcurrencyLimiter databaseLimiter(final ConcurrencyLimitProperties properties) {
+        return new AdaptiveConcurrencyLimiter("database", properties);
+    }
+}
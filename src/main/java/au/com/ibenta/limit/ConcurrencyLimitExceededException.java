@@ -0,0 +1,12 @@
+package au.com.ibenta.limit;
+
+import au.com.ibenta.problem.StaticThrowableProblem;
+import org.zalando.problem.Status;
+
+public class ConcurrencyLimitExceededException extends StaticThrowableProblem {
+
+    ConcurrencyLimitExceededException() {
+        super(null, Status.SERVICE_UNAVAILABLE.getReasonPhrase(), Status.SERVICE_UNAVAILABLE,
+                "too many concurrent database calls, retry later");
+    }
+}
@@ -0,0 +1,54 @@
+package au.com.ibenta.limit;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Data
+@ConfigurationProperties(prefix = "ibenta.concurrency-limit.database")
+public class ConcurrencyLimitProperties {
+
+    /**
+     * Whether database calls are limited at all, they all go through when off.
+     */
+    private boolean enabled = true;
+
+    /**
+     * Calls allowed in flight before the first latency samples come in.
+     */
+    private int initialLimit = 20;
+
+    /**
+     * Lowest limit latency can push it to.
+     */
+    private int minLimit = 4;
+
+    /**
+     * Highest limit the limiter grows to while latency stays at the baseline.
+     */
+    private int maxLimit = 200;
+
+    /**
+     * How much slower than the baseline recent calls may get before the limit shrinks.
+     */
+    private double rttTolerance = 1.5;
+
+    /**
+     * Calls the limit grows by at each sample while latency stays within tolerance.
+     */
+    private int queueSize = 4;
+
+    /**
+     * Weight of each new limit against the current one.
+     */
+    private double smoothing = 0.2;
+
+    /**
+     * Samples averaged into the recent latency.
+     */
+    private int shortWindow = 10;
+
+    /**
+     * Samples averaged into the baseline latency.
+     */
+    private int longWindow = 500;
+}
@@ -0,0 +1,12 @@
+package au.com.ibenta.limit;
+
+import au.com.ibenta.problem.StaticThrowableProblem;
+import org.zalando.problem.Status;
+
+public class RateLimitExceededException extends StaticThrowableProblem {
+
+    RateLimitExceededException() {
+        super(null, Status.TOO_MANY_REQUESTS.getReasonPhrase(), Status.TOO_MANY_REQUESTS,
+                "too many requests, retry after the time given in Retry-After");
+    }
+}
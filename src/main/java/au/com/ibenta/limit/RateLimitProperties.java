@@ -0,0 +1,88 @@
+package au.com.ibenta.limit;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.http.HttpMethod;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+@Data
+@ConfigurationProperties(prefix = "ibenta.rate-limit")
+public class RateLimitProperties {
+
+    /**
+     * Whether requests are rate limited at all, they all go through when off.
+     */
+    private boolean enabled = true;
+
+    /**
+     * Header the client presents its API key in.
+     */
+    private String apiKeyHeader = "X-API-Key";
+
+    /**
+     * API keys issued to clients, each limited on its own; requests without one of them are told apart by remote
+     * address.
+     */
+    private Set<String> apiKeys = Set.of();
+
+    /**
+     * Proxies in front of the service that each append the address they got a request from to
+     * {@code X-Forwarded-For}, such as an ingress and a sidecar. Requests without an API key are told apart by the
+     * address the outermost of them saw; with 0 they are told apart by remote address, which behind a proxy is the
+     * proxy's own, so all of them share one limit.
+     */
+    private int trustedHops = 0;
+
+    /**
+     * Requests per second each client may sustain on routes not listed below, 0 for no limit.
+     */
+    private double requestsPerSecond = 100;
+
+    /**
+     * Requests each client may make at once on routes not listed below, before the sustained rate applies.
+     */
+    private int burst = 200;
+
+    /**
+     * Routes with limits of their own, the first one matching a request applies.
+     */
+    private List<Route> routes = new ArrayList<>();
+
+    /**
+     * Clients tracked per route besides those idle long enough to have their limit refilled, past which the least
+     * active are forgotten and start over with a full limit.
+     */
+    private int maxClients = 100_000;
+
+    @Data
+    public static class Route {
+
+        /**
+         * Name the route is tagged with on metrics.
+         */
+        private String name;
+
+        /**
+         * Path pattern, such as {@code /users/export} or {@code /actuator/**}.
+         */
+        private String path;
+
+        /**
+         * Methods the route matches, all of them when empty.
+         */
+        private Set<HttpMethod> methods = Set.of();
+
+        /**
+         * Requests per second each client may sustain on the route, 0 for no limit.
+         */
+        private double requestsPerSecond;
+
+        /**
+         * Requests each client may make at once on the route, 0 for a second's worth.
+         */
+        private int burst;
+    }
+}
@@ -0,0 +1,163 @@
+package au.com.ibenta.limit;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+import org.zalando.problem.spring.webflux.advice.ProblemHandling;
+import org.zalando.problem.spring.webflux.advice.utils.AdviceUtils;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import static org.springframework.cloud.sleuth.instrument.web.TraceWebServletAutoConfiguration.TRACING_FILTER_ORDER;
+
+/**
+ * Rate limits each client, told apart by one of the {@code ibenta.rate-limit.api-keys} in
+ * {@code ibenta.rate-limit.api-key-header} or else by address, with a {@link RateLimiter} per configured route and one
+ * for the routes not listed. Any other key is ignored, so a client cannot get fresh limits by making keys up. The
+ * address is the remote one unless {@code ibenta.rate-limit.trusted-hops} proxies append to {@code X-Forwarded-For},
+ * and only the entries they appended are believed. Requests over the limit never reach the handler: they get a 429
+ * problem rendered through {@link ProblemHandling}, with the whole seconds until the client has a token again in
+ * {@code Retry-After}, and are counted as {@code rate.limit.throttled} per route.
+ */
+@Component
+@Order(TRACING_FILTER_ORDER + 2)
+@EnableConfigurationProperties(RateLimitProperties.class)
+public class RateLimitWebFilter implements WebFilter, MeterBinder {
+
+    public static final String THROTTLED = "rate.limit.throttled";
+
+    private static final String DEFAULT_ROUTE = "default";
+    private static final String X_FORWARDED_FOR = "X-Forwarded-For";
+    private static final long NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    private final RateLimitProperties properties;
+    private final ProblemHandling problemHandling;
+    private final ObjectMapper objectMapper;
+    private final List<Route> routes = new ArrayList<>();
+    private final List<RateLimiter> limiters = new ArrayList<>();
+    private final RateLimiter fallback;
+
+    public RateLimitWebFilter(final RateLimitProperties properties,
+                              final ProblemHandling problemHandling,
+                              final ObjectMapper objectMapper) {
+        this.properties = properties;
+        this.problemHandling = problemHandling;
+        this.objectMapper = objectMapper;
+
+        final var parser = new PathPatternParser();
+        for (final var route : properties.getRoutes()) {
+            final var burst = route.getBurst() > 0 ? route.getBurst() : (int) Math.ceil(route.getRequestsPerSecond());
+            final var limiter = limiter(route.getName(), route.getRequestsPerSecond(), burst);
+            routes.add(new Route(parser.parse(route.getPath()), route.getMethods(), limiter));
+        }
+        this.fallback = limiter(DEFAULT_ROUTE, properties.getRequestsPerSecond(), properties.getBurst());
+    }
+
+    @Override
+    @NonNull
+    public Mono<Void> filter(@NonNull final ServerWebExchange exchange, @NonNull final WebFilterChain chain) {
+        if (!properties.isEnabled()) {
+            return chain.filter(exchange);
+        }
+
+        final var request = exchange.getRequest();
+        final var limiter = limiter(request);
+        final var wait = limiter == null ? 0 : limiter.tryAcquire(client(request), System.nanoTime());
+        if (wait == 0) {
+            return chain.filter(exchange);
+        }
+
+        final var headers = new HttpHeaders();
+        headers.set(HttpHeaders.RETRY_AFTER, Long.toString(Math.max(1, (wait + NANOS_PER_SECOND - 1) / NANOS_PER_SECOND)));
+        return problemHandling.create(new RateLimitExceededException(), exchange, headers)
+                .flatMap(entity -> AdviceUtils.setHttpResponse(entity, exchange, objectMapper));
+    }
+
+    @Override
+    public void bindTo(@NonNull final MeterRegistry registry) {
+        limiters.forEach(limiter -> limiter.bindTo(registry));
+    }
+
+    /**
+     * The limiter of the first route matching the request, null when that route has no limit.
+     */
+    private RateLimiter limiter(final ServerHttpRequest request) {
+        final var path = request.getPath().pathWithinApplication();
+        for (final var route : routes) {
+            if ((route.methods.isEmpty() || route.methods.contains(request.getMethod())) && route.pattern.matches(path)) {
+                return route.limiter;
+            }
+        }
+        return fallback;
+    }
+
+    private RateLimiter limiter(final String name, final double requestsPerSecond, final int burst) {
+        if (requestsPerSecond <= 0) {
+            return null;
+        }
+        final var limiter = new RateLimiter(name, requestsPerSecond, burst, properties.getMaxClients());
+        limiters.add(limiter);
+        return limiter;
+    }
+
+    private String client(final ServerHttpRequest request) {
+        final var apiKey = request.getHeaders().getFirst(properties.getApiKeyHeader());
+        if (apiKey != null && properties.getApiKeys().contains(apiKey)) {
+            return "key:" + apiKey;
+        }
+        final var forwarded = forwardedFor(request);
+        if (forwarded != null) {
+            return "ip:" + forwarded;
+        }
+        final var address = request.getRemoteAddress();
+        return address == null || address.getAddress() == null ? "ip:unknown" : "ip:" + address.getAddress().getHostAddress();
+    }
+
+    /**
+     * The address the outermost trusted proxy got the request from. Each proxy appends to {@code X-Forwarded-For},
+     * so it is {@code trusted-hops} entries from the end, and anything before it is whatever the client sent.
+     */
+    private String forwardedFor(final ServerHttpRequest request) {
+        final var hops = properties.getTrustedHops();
+        if (hops <= 0) {
+            return null;
+        }
+        final var addresses = new ArrayList<String>();
+        for (final var header : request.getHeaders().getOrEmpty(X_FORWARDED_FOR)) {
+            for (final var address : StringUtils.commaDelimitedListToStringArray(header)) {
+                addresses.add(address.trim());
+            }
+        }
+        return addresses.size() < hops ? null : addresses.get(addresses.size() - hops);
+    }
+
+    private static final class Route {
+
+        private final PathPattern pattern;
+        private final Set<HttpMethod> methods;
+        private final RateLimiter limiter;
+
+        private Route(final PathPattern pattern, final Set<HttpMethod> methods, final RateLimiter limiter) {
+            this.pattern = pattern;
+            this.methods = methods;
+            this.limiter = limiter;
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package au.com.ibenta.limit;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Ticker;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.noop.NoopCounter;
+import org.springframework.lang.NonNull;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A token bucket per client, kept as the generic cell rate algorithm does: each bucket is a single {@link AtomicLong}
+ * holding the time at which it will be full again, pushed forward by one emission interval per request with a
+ * compare-and-set. A request is allowed while that time stays within {@code burst} intervals from now, so a full bucket
+ * lets {@code burst} requests through at once and refills at {@code requestsPerSecond}. Buckets are held in a Caffeine
+ * cache that forgets a client once it has been idle long enough for its bucket to be full again, which a new bucket
+ * would be as well, and that keeps the {@code maxClients} most used ones past that size.
+ */
+public class RateLimiter implements MeterBinder {
+
+    private static final long NANOS_PER_SECOND = 1_000_000_000L;
+
+    private final String name;
+    private final long interval;
+    private final long capacity;
+    private final Cache<String, AtomicLong> clients;
+
+    private volatile Counter throttled = new NoopCounter(null);
+
+    public RateLimiter(final String name, final double requestsPerSecond, final int burst, final int maxClients) {
+        this(name, requestsPerSecond, burst, maxClients, Ticker.systemTicker());
+    }
+
+    RateLimiter(final String name, final double requestsPerSecond, final int burst, final int maxClients, final Ticker ticker) {
+        if (requestsPerSecond <= 0) {
+            throw new IllegalArgumentException("rate limit " + name + " needs a positive rate, " + requestsPerSecond + " given");
+        }
+        this.name = name;
+        this.interval = Math.max(1, Math.round(NANOS_PER_SECOND / requestsPerSecond));
+        this.capacity = interval * Math.max(1, burst);
+        this.clients = Caffeine.newBuilder()
+                .maximumSize(maxClients)
+                .expireAfterAccess(capacity, TimeUnit.NANOSECONDS)
+                .ticker(ticker)
+                .build();
+    }
+
+    /**
+     * Takes a token from the client's bucket, returning 0 when there was one, or else the nanoseconds until there is.
+     */
+    public long tryAcquire(final String client, final long now) {
+        final var bucket = clients.get(client, key -> new AtomicLong(now));
+        long full;
+        long next;
+        do {
+            full = bucket.get();
+            // compared by difference, as System.nanoTime() may wrap around
+            next = (full - now < 0 ? now : full) + interval;
+            if (next - now > capacity) {
+                throttled.increment();
+                return next - now - capacity;
+            }
+        } while (!bucket.compareAndSet(full, next));
+        return 0;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long getClients() {
+        return clients.estimatedSize();
+    }
+
+    @Override
+    public void bindTo(@NonNull final MeterRegistry registry) {
+        final var tags = Tags.of("route", name);
+
+        Gauge.builder("rate.limit.clients", this, RateLimiter::getClients)
+                .tags(tags)
+                .description("Clients whose rate limit bucket is tracked")
+                .register(registry);
+        throttled = Counter.builder("rate.limit.throttled")
+                .tags(tags)
+                .description("Requests rejected because the client ran out of tokens")
+                .register(registry);
+    }
+
+    void cleanUp() {
+        clients.cleanUp();
+    }
+}
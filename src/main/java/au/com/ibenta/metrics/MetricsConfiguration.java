@@ -0,0 +1,29 @@
+package au.com.ibenta.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.config.MeterFilter;
+import org.springframework.boot.actuate.autoconfigure.metrics.MetricsProperties;
+import org.springframework.boot.actuate.autoconfigure.metrics.OnlyOnceLoggingDenyMeterFilter;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class MetricsConfiguration {
+
+    @Bean
+    RouteMetricsWebFilter routeMetricsWebFilter(final MeterRegistry registry) {
+        return new RouteMetricsWebFilter(registry);
+    }
+
+    /**
+     * Stops registering response sizes for new routes past {@code management.metrics.web.server.max-uri-tags}, the
+     * limit Spring Boot applies to {@code http.server.requests}.
+     */
+    @Bean
+    MeterFilter responseSizeUriTagFilter(final MetricsProperties properties) {
+        final var maxUriTags = properties.getWeb().getServer().getMaxUriTags();
+        final var deny = new OnlyOnceLoggingDenyMeterFilter(() -> String.format(
+                "Reached the maximum number of URI tags for '%s'. Are you using 'uriVariables'?", RouteMetricsWebFilter.RESPONSE_SIZE));
+        return MeterFilter.maximumAllowableTags(RouteMetricsWebFilter.RESPONSE_SIZE, "uri", maxUriTags, deny);
+    }
+}
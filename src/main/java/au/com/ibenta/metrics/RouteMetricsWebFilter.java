@@ -0,0 +1,106 @@
+package au.com.ibenta.metrics;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import org.reactivestreams.Publisher;
+import org.springframework.boot.actuate.metrics.web.reactive.server.WebFluxTags;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.http.server.reactive.ServerHttpResponseDecorator;
+import org.springframework.lang.NonNull;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Completes the {@code http.server.requests} timer of Spring Boot with the two things it lacks: the size of each
+ * response body, per method and route pattern, and the requests in flight per method. Route tags come from
+ * {@link WebFluxTags#uri(ServerWebExchange)}, so unmatched paths collapse into {@code NOT_FOUND} and the like, and
+ * {@link MetricsConfiguration} caps them like Boot caps its own.
+ */
+@Order(Ordered.HIGHEST_PRECEDENCE + 2)
+public class RouteMetricsWebFilter implements WebFilter {
+
+    public static final String RESPONSE_SIZE = "http.server.response.size";
+    public static final String ACTIVE_REQUESTS = "http.server.requests.active";
+
+    private static final String OTHER_METHOD = "OTHER";
+
+    private final MeterRegistry registry;
+    private final Map<String, AtomicInteger> active = new ConcurrentHashMap<>();
+
+    public RouteMetricsWebFilter(final MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    @Override
+    @NonNull
+    public Mono<Void> filter(@NonNull final ServerWebExchange exchange, @NonNull final WebFilterChain chain) {
+        final var inFlight = active(exchange.getRequest().getMethod());
+        final var response = new CountingResponse(exchange.getResponse());
+        final var counted = exchange.mutate().response(response).build();
+
+        inFlight.incrementAndGet();
+        return chain.filter(counted).doFinally(signal -> {
+            inFlight.decrementAndGet();
+            if (signal != SignalType.ON_ERROR) {
+                responseSize(counted).record(response.bytes);
+            }
+        });
+    }
+
+    private AtomicInteger active(final HttpMethod method) {
+        final var name = method == null ? OTHER_METHOD : method.name();
+        return active.computeIfAbsent(name, key -> registry.gauge(ACTIVE_REQUESTS, Tags.of("method", key), new AtomicInteger()));
+    }
+
+    private DistributionSummary responseSize(final ServerWebExchange exchange) {
+        return DistributionSummary.builder(RESPONSE_SIZE)
+                .baseUnit("bytes")
+                .tags(Tags.of(WebFluxTags.method(exchange), WebFluxTags.uri(exchange)))
+                .register(registry);
+    }
+
+    /**
+     * Counts the body bytes written by handlers. Errors are rendered on the undecorated response afterwards, their
+     * size is not recorded.
+     */
+    private static final class CountingResponse extends ServerHttpResponseDecorator {
+
+        private volatile long bytes;
+
+        private CountingResponse(final ServerHttpResponse delegate) {
+            super(delegate);
+        }
+
+        @Override
+        @NonNull
+        public Mono<Void> writeWith(@NonNull final Publisher<? extends DataBuffer> body) {
+            if (body instanceof Mono) {
+                return super.writeWith(Mono.from(body).doOnNext(this::count));
+            }
+            return super.writeWith(Flux.from(body).doOnNext(this::count));
+        }
+
+        @Override
+        @NonNull
+        public Mono<Void> writeAndFlushWith(@NonNull final Publisher<? extends Publisher<? extends DataBuffer>> body) {
+            return super.writeAndFlushWith(Flux.from(body).map(chunk -> Flux.from(chunk).doOnNext(this::count)));
+        }
+
+        private void count(final DataBuffer buffer) {
+            bytes += buffer.readableByteCount();
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package au.com.ibenta.offload;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.noop.NoopCounter;
+import io.micrometer.core.instrument.noop.NoopTimer;
+import org.springframework.lang.NonNull;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static java.lang.String.format;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+/**
+ * Fixed size executor with a bounded queue that isolates one kind of blocking work from the rest of the
+ * application. Work that does not fit is rejected instead of piling up.
+ */
+public class BulkheadExecutor extends ThreadPoolExecutor implements MeterBinder {
+
+    private final String name;
+    private final int queueCapacity;
+
+    private volatile Timer waitTimer = new NoopTimer(null);
+    private volatile Counter rejections = new NoopCounter(null);
+
+    public BulkheadExecutor(final String name, final int threads, final int queueCapacity) {
+        super(threads, threads, 0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(queueCapacity), new BulkheadThreadFactory(name));
+        this.name = name;
+        this.queueCapacity = queueCapacity;
+        setRejectedExecutionHandler((task, executor) -> {
+            rejections.increment();
+            throw new RejectedExecutionException(format("bulkhead %s is full (%d threads, %d queued)",
+                    name, getMaximumPoolSize(), queueCapacity));
+        });
+    }
+
+    @Override
+    public void execute(@NonNull final Runnable command) {
+        final long enqueued = System.nanoTime();
+        super.execute(() -> {
+            waitTimer.record(System.nanoTime() - enqueued, NANOSECONDS);
+            command.run();
+        });
+    }
+
+    @Override
+    public void bindTo(@NonNull final MeterRegistry registry) {
+        final var tags = Tags.of("bulkhead", name);
+
+        Gauge.builder("offload.queue.depth", this, executor -> executor.getQueue().size())
+                .tags(tags)
+                .description("Tasks waiting for a worker")
+                .register(registry);
+        Gauge.builder("offload.queue.capacity", this, executor -> executor.queueCapacity)
+                .tags(tags)
+                .register(registry);
+        Gauge.builder("offload.active", this, ThreadPoolExecutor::getActiveCount)
+                .tags(tags)
+                .description("Tasks currently running")
+                .register(registry);
+        waitTimer = Timer.builder("offload.wait")
+                .tags(tags)
+                .description("Time tasks spent queued before a worker picked them up")
+                .publishPercentileHistogram()
+                .register(registry);
+        rejections = Counter.builder("offload.rejected")
+                .tags(tags)
+                .description("Tasks rejected because the bulkhead was full")
+                .register(registry);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    private static final class BulkheadThreadFactory implements ThreadFactory {
+
+        private final String prefix;
+        private final AtomicInteger counter = new AtomicInteger();
+
+        private BulkheadThreadFactory(final String name) {
+            this.prefix = name + "-offload-";
+        }
+
+        @Override
+        public Thread newThread(@NonNull final Runnable runnable) {
+            final var thread = new Thread(runnable, prefix + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
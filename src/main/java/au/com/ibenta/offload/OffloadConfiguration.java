@@ -0,0 +1,39 @@
+package au.com.ibenta.offload;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import javax.sql.DataSource;
+
+import static java.util.Optional.ofNullable;
+
+@Configuration
+@EnableConfigurationProperties(OffloadProperties.class)
+public class OffloadConfiguration {
+
+    public static final String JDBC_SCHEDULER = "jdbcScheduler";
+    private static final int DEFAULT_POOL_SIZE = 10;
+
+    @Bean
+    BulkheadExecutor jdbcBulkhead(final OffloadProperties properties, final ObjectProvider<DataSource> dataSource) {
+        final int threads = ofNullable(properties.getThreads()).orElseGet(() -> ofNullable(dataSource.getIfAvailable())
+                .filter(HikariDataSource.class::isInstance)
+                .map(HikariDataSource.class::cast)
+                .map(HikariDataSource::getMaximumPoolSize)
+                .filter(size -> size > 0)
+                .orElse(DEFAULT_POOL_SIZE));
+
+        return new BulkheadExecutor("jdbc", threads, properties.getQueueCapacity());
+    }
+
+    @Bean(name = JDBC_SCHEDULER, destroyMethod = "dispose")
+    Scheduler jdbcScheduler(@Qualifier("jdbcBulkhead") final BulkheadExecutor jdbcBulkhead) {
+        return Schedulers.fromExecutorService(jdbcBulkhead, jdbcBulkhead.getName());
+    }
+}
@@ -0,0 +1,19 @@
+package au.com.ibenta.offload;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Data
+@ConfigurationProperties(prefix = "ibenta.offload.jdbc")
+public class OffloadProperties {
+
+    /**
+     * Worker threads, defaults to the maximum size of the Hikari pool so tasks never queue on connections.
+     */
+    private Integer threads;
+
+    /**
+     * Tasks allowed to wait for a worker before new ones are rejected with a 503.
+     */
+    private int queueCapacity = 256;
+}
@@ -0,0 +1,40 @@
+package au.com.ibenta.pagination;
+
+import lombok.Value;
+import org.springframework.data.domain.Sort;
+
+import java.util.Base64;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Position of a row in a keyset ordered by {@code (property, id)}. Clients only ever see the opaque
+ * {@link #encode() token}.
+ */
+@Value
+public class Cursor {
+
+    private static final String SEPARATOR = ":";
+
+    private Sort.Direction direction;
+    private String property;
+    private long id;
+    private String value;
+
+    public String encode() {
+        final var raw = String.join(SEPARATOR, direction.name(), property, Long.toString(id), value);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(UTF_8));
+    }
+
+    public static Cursor decode(final String token) {
+        try {
+            final var parts = new String(Base64.getUrlDecoder().decode(token), UTF_8).split(SEPARATOR, 4);
+            if (parts.length != 4) {
+                throw new InvalidCursorException(token);
+            }
+            return new Cursor(Sort.Direction.valueOf(parts[0]), parts[1], Long.parseLong(parts[2]), parts[3]);
+        } catch (IllegalArgumentException e) {
+            throw new InvalidCursorException(token);
+        }
+    }
+}
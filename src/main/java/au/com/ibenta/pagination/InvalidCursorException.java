@@ -0,0 +1,11 @@
+package au.com.ibenta.pagination;
+
+import org.zalando.problem.AbstractThrowableProblem;
+import org.zalando.problem.Status;
+
+public class InvalidCursorException extends AbstractThrowableProblem {
+
+    public InvalidCursorException(final String detail) {
+        super(null, Status.BAD_REQUEST.getReasonPhrase(), Status.BAD_REQUEST, "invalid cursor: " + detail);
+    }
+}
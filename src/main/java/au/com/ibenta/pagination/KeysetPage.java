@@ -0,0 +1,89 @@
+package au.com.ibenta.pagination;
+
+import lombok.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static au.com.ibenta.pagination.KeysetPageable.AFTER;
+import static au.com.ibenta.pagination.KeysetPageable.BEFORE;
+import static java.lang.String.format;
+
+@Value
+public class KeysetPage<T> {
+
+    public static final String NEXT_CURSOR = "X-Next-Cursor";
+    public static final String PREVIOUS_CURSOR = "X-Previous-Cursor";
+
+    private List<T> content;
+    private Cursor next;
+    private Cursor previous;
+
+    /**
+     * Builds a page from rows read with {@link KeysetPageable#getQuerySort()} and
+     * {@link KeysetPageable#getQueryLimit()}.
+     */
+    public static <T> KeysetPage<T> of(final List<T> rows,
+                                       final KeysetPageable pageable,
+                                       final Function<T, Cursor> cursorOf) {
+        final var more = rows.size() > pageable.getSize();
+        final var content = new ArrayList<>(more ? rows.subList(0, pageable.getSize()) : rows);
+        if (pageable.isBackward()) {
+            Collections.reverse(content);
+        }
+
+        if (content.isEmpty()) {
+            return new KeysetPage<>(content, null, null);
+        }
+
+        final var hasNext = pageable.isBackward() || more;
+        final var hasPrevious = pageable.isBackward() ? more : pageable.getCursor() != null;
+
+        return new KeysetPage<>(content,
+                hasNext ? cursorOf.apply(content.get(content.size() - 1)) : null,
+                hasPrevious ? cursorOf.apply(content.get(0)) : null);
+    }
+
+    public <R> KeysetPage<R> map(final Function<T, R> mapper) {
+        return new KeysetPage<>(content.stream().map(mapper).collect(Collectors.toList()), next, previous);
+    }
+
+    /**
+     * {@code Link} and cursor headers pointing at the neighbouring pages of this one.
+     */
+    public HttpHeaders headers(final ServerHttpRequest request) {
+        final var headers = new HttpHeaders();
+        final var links = new ArrayList<String>();
+
+        if (next != null) {
+            headers.add(NEXT_CURSOR, next.encode());
+            links.add(link(request, AFTER, next, "next"));
+        }
+        if (previous != null) {
+            headers.add(PREVIOUS_CURSOR, previous.encode());
+            links.add(link(request, BEFORE, previous, "prev"));
+        }
+        if (!links.isEmpty()) {
+            headers.add(HttpHeaders.LINK, String.join(", ", links));
+        }
+
+        return headers;
+    }
+
+    private static String link(final ServerHttpRequest request, final String parameter, final Cursor cursor, final String rel) {
+        final var uri = UriComponentsBuilder.fromHttpRequest(request)
+                .replaceQueryParam("page")
+                .replaceQueryParam(AFTER)
+                .replaceQueryParam(BEFORE)
+                .replaceQueryParam(parameter, cursor.encode())
+                .build()
+                .toUriString();
+        return format("<%s>; rel=\"%s\"", uri, rel);
+    }
+}
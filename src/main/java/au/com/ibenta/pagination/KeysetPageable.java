@@ -0,0 +1,68 @@
+package au.com.ibenta.pagination;
+
+import lombok.Value;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.util.StringUtils;
+
+import static java.lang.String.format;
+
+/**
+ * Cursor based page request: rows strictly after (or before) a {@link Cursor} in {@code (property, id)}
+ * order, so every page costs the same as the first one.
+ */
+@Value
+public class KeysetPageable {
+
+    public static final String AFTER = "after";
+    public static final String BEFORE = "before";
+    public static final String ID = "id";
+
+    private int size;
+    private Sort.Order order;
+    private Cursor cursor;
+    private boolean backward;
+
+    public static KeysetPageable of(final Pageable pageable, final String after, final String before) {
+        final var order = pageable.getSort().stream().findFirst().orElse(Sort.Order.asc(ID));
+        final var backward = StringUtils.hasText(before);
+        final var token = backward ? before : after;
+        final var cursor = StringUtils.hasText(token) ? Cursor.decode(token) : null;
+
+        if (cursor != null && (cursor.getDirection() != order.getDirection() || !cursor.getProperty().equals(order.getProperty()))) {
+            throw new InvalidCursorException(format("cursor was issued for a different sort than %s", order));
+        }
+
+        return new KeysetPageable(pageable.getPageSize(), order, cursor, backward);
+    }
+
+    public String getProperty() {
+        return order.getProperty();
+    }
+
+    /**
+     * Direction rows are read from the database, backward pages are read in reverse and flipped afterwards.
+     */
+    public Sort.Direction getQueryDirection() {
+        final var direction = order.getDirection();
+        return backward ? (direction.isAscending() ? Sort.Direction.DESC : Sort.Direction.ASC) : direction;
+    }
+
+    public Sort getQuerySort() {
+        final var direction = getQueryDirection();
+        return ID.equals(getProperty())
+                ? Sort.by(direction, ID)
+                : Sort.by(direction, getProperty()).and(Sort.by(direction, ID));
+    }
+
+    /**
+     * One more row than the page size is read to find out whether another page follows.
+     */
+    public int getQueryLimit() {
+        return size + 1;
+    }
+
+    public Cursor cursor(final long id, final String value) {
+        return new Cursor(order.getDirection(), getProperty(), id, value);
+    }
+}
@@ -1,220 +1,192 @@
 package au.com.ibenta.pagination;
 
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.data.web.SpringDataWebProperties;
 import org.springframework.core.MethodParameter;
 import org.springframework.core.ReactiveAdapterRegistry;
-import org.springframework.data.web.PageableHandlerMethodArgumentResolver;
-import org.springframework.http.HttpMessage;
-import org.springframework.http.server.reactive.ServerHttpRequest;
-import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.lang.NonNull;
-import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.util.MultiValueMap;
+import org.springframework.util.StringUtils;
 import org.springframework.web.reactive.BindingContext;
 import org.springframework.web.reactive.result.method.HandlerMethodArgumentResolverSupport;
+import org.springframework.web.reactive.result.method.SyncHandlerMethodArgumentResolver;
 import org.springframework.web.server.ServerWebExchange;
 import reactor.core.publisher.Mono;
 
-import java.security.Principal;
-import java.util.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
-public class WebFluxPageableResolverSupport extends HandlerMethodArgumentResolverSupport {
+/**
+ * Resolves {@link Pageable} and {@link KeysetPageable} arguments straight from
+ * {@link org.springframework.http.server.reactive.ServerHttpRequest#getQueryParams()}, with the parameter names and
+ * limits of {@code spring.data.web}. Parsed {@code sort} values are cached, since clients repeat the same few.
+ */
+public class WebFluxPageableResolverSupport extends HandlerMethodArgumentResolverSupport implements SyncHandlerMethodArgumentResolver {
 
-    private final PageableHandlerMethodArgumentResolver pageableResolver;
+    private static final int SORT_CACHE_SIZE = 256;
+    private static final String IGNORE_CASE = "ignorecase";
 
-    public WebFluxPageableResolverSupport(final PageableHandlerMethodArgumentResolver pageableResolver) {
+    private final ParameterNames defaultNames;
+    private final String prefix;
+    private final String qualifierDelimiter;
+    private final boolean oneIndexed;
+    private final int maxPageSize;
+    private final Pageable fallbackPageable;
+
+    private final Map<String, ParameterNames> qualifiedNames = new ConcurrentHashMap<>();
+    private final Map<String, Sort> sortCache = new ConcurrentHashMap<>();
+
+    public WebFluxPageableResolverSupport(final SpringDataWebProperties properties) {
         super(ReactiveAdapterRegistry.getSharedInstance());
-        this.pageableResolver = pageableResolver;
+        final var pageable = properties.getPageable();
+        this.prefix = pageable.getPrefix();
+        this.qualifierDelimiter = pageable.getQualifierDelimiter();
+        this.oneIndexed = pageable.isOneIndexedParameters();
+        this.maxPageSize = pageable.getMaxPageSize();
+        this.fallbackPageable = PageRequest.of(0, pageable.getDefaultPageSize());
+        this.defaultNames = new ParameterNames(prefix + pageable.getPageParameter(), prefix + pageable.getSizeParameter(),
+                properties.getSort().getSortParameter());
     }
 
     @Override
-    public boolean supportsParameter(MethodParameter parameter) {
-        return pageableResolver.supportsParameter(parameter);
+    public boolean supportsParameter(@NonNull final MethodParameter parameter) {
+        final var type = parameter.getParameterType();
+        return KeysetPageable.class.equals(type) || Pageable.class.equals(type);
     }
 
     @Override
-    public Mono<Object> resolveArgument(MethodParameter parameter,
-                                        BindingContext bindingContext,
-                                        ServerWebExchange exchange) {
-        return Mono.just(pageableResolver.resolveArgument(
-                parameter,
-                null,
-                new PageableResolverNativeWebRequest(exchange),
-                null));
-    }
-
-    private static class PageableResolverNativeWebRequest implements NativeWebRequest {
-
-        private final ServerHttpRequest request;
-
-        private final ServerHttpResponse response;
-
-        PageableResolverNativeWebRequest(final ServerWebExchange exchange) {
-            this.request = exchange.getRequest();
-            this.response = exchange.getResponse();
-        }
-
-        @Override
-        public Object getNativeRequest() {
-            return request;
-        }
-
-        @Override
-        @SuppressWarnings("unchecked")
-        public <T> T getNativeRequest(@NonNull Class<T> requiredType) {
-            if (requiredType.isAssignableFrom(ServerHttpRequest.class)) {
-                return (T) request;
-            }
-            return null;
-        }
-
-        @Override
-        public Object getNativeResponse() {
-            return response;
-        }
-
-        @Override
-        @SuppressWarnings("unchecked")
-        public <T> T getNativeResponse(@NonNull final Class<T> requiredType) {
-            if (requiredType.isAssignableFrom(ServerHttpResponse.class)) {
-                return (T) response;
-            }
-            return null;
-        }
-
-        @Override
-        public String getHeader(final String headerName) {
-            return Optional.ofNullable(request.getHeaders())
-                    .map(headers -> headers.getFirst(headerName))
-                    .orElse(null);
-        }
-
-        @Override
-        public String[] getHeaderValues(String headerName) {
-            List<String> values = Optional.ofNullable(request)
-                    .map(HttpMessage::getHeaders)
-                    .map(headers -> headers.get(headerName))
-                    .orElse(Collections.emptyList());
-            return values.toArray(new String[values.size()]);
-        }
-
-        @Override
-        public Iterator<String> getHeaderNames() {
-            return request.getHeaders().keySet().iterator();
-        }
+    public Object resolveArgumentValue(@NonNull final MethodParameter parameter,
+                                       @NonNull final BindingContext bindingContext,
+                                       @NonNull final ServerWebExchange exchange) {
+        final var queryParams = exchange.getRequest().getQueryParams();
+        final var pageable = resolvePageable(names(parameter), queryParams);
 
-        @Override
-        public String getParameter(String paramName) {
-            return request.getQueryParams().getFirst(paramName);
+        if (KeysetPageable.class.equals(parameter.getParameterType())) {
+            return KeysetPageable.of(pageable, queryParams.getFirst(KeysetPageable.AFTER), queryParams.getFirst(KeysetPageable.BEFORE));
         }
 
-        @Override
-        public String[] getParameterValues(String paramName) {
-            List<String> values = request.getQueryParams().get(paramName);
-            if (values == null) {
-                return null;
-            }
-            return values.toArray(new String[values.size()]);
-        }
-
-        @Override
-        public Iterator<String> getParameterNames() {
-            return request.getQueryParams().keySet().iterator();
-        }
+        return pageable;
+    }
 
-        @Override
-        public Map<String, String[]> getParameterMap() {
-            Map<String, String[]> parameterMap = new HashMap<>();
-            request.getQueryParams().keySet().forEach(name -> parameterMap.put(name, getParameterValues(name)));
-            return parameterMap;
+    @Override
+    @NonNull
+    public Mono<Object> resolveArgument(@NonNull final MethodParameter parameter,
+                                        @NonNull final BindingContext bindingContext,
+                                        @NonNull final ServerWebExchange exchange) {
+        try {
+            return Mono.just(resolveArgumentValue(parameter, bindingContext, exchange));
+        } catch (final RuntimeException e) {
+            return Mono.error(e);
         }
+    }
 
-        @Override
-        public Locale getLocale() {
-            return Locale.getDefault();
-        }
+    private Pageable resolvePageable(final ParameterNames names, final MultiValueMap<String, String> queryParams) {
+        final var page = queryParams.getFirst(names.page);
+        final var size = queryParams.getFirst(names.size);
+        final var sort = queryParams.get(names.sort);
 
-        @Override
-        public String getContextPath() {
-            return request.getPath().contextPath().value();
+        if (page == null && size == null && sort == null) {
+            return fallbackPageable;
         }
 
-        @Override
-        public String getRemoteUser() {
-            return null;
-        }
+        final var pageNumber = Math.max(0, parse(page, fallbackPageable.getPageNumber() + (oneIndexed ? 1 : 0)) - (oneIndexed ? 1 : 0));
+        final var parsedSize = parse(size, fallbackPageable.getPageSize());
+        final var pageSize = Math.min(parsedSize < 1 ? fallbackPageable.getPageSize() : parsedSize, maxPageSize);
 
-        @Override
-        public Principal getUserPrincipal() {
-            return null;
-        }
+        return PageRequest.of(pageNumber, pageSize, sort == null ? fallbackPageable.getSort() : sort(sort));
+    }
 
-        @Override
-        public boolean isUserInRole(String role) {
-            return false;
+    private ParameterNames names(final MethodParameter parameter) {
+        final var qualifier = parameter.getParameterAnnotation(Qualifier.class);
+        if (qualifier == null) {
+            return defaultNames;
         }
 
-        @Override
-        public boolean isSecure() {
-            return false;
-        }
+        return qualifiedNames.computeIfAbsent(qualifier.value(), value -> {
+            final var qualified = value + qualifierDelimiter;
+            return new ParameterNames(
+                    prefix + qualified + defaultNames.page.substring(prefix.length()),
+                    prefix + qualified + defaultNames.size.substring(prefix.length()),
+                    qualified + defaultNames.sort);
+        });
+    }
 
-        @Override
-        public boolean checkNotModified(long lastModifiedTimestamp) {
-            return false;
+    private Sort sort(final List<String> values) {
+        var sort = Sort.unsorted();
+        for (final var value : values) {
+            sort = sort.isUnsorted() ? sort(value) : sort.and(sort(value));
         }
+        return sort;
+    }
 
-        @Override
-        public boolean checkNotModified(String etag) {
-            return false;
+    private Sort sort(final String value) {
+        final var cached = sortCache.get(value);
+        if (cached != null) {
+            return cached;
         }
 
-        @Override
-        public boolean checkNotModified(String etag, long lastModifiedTimestamp) {
-            return false;
+        final var sort = parseSort(value);
+        if (sortCache.size() < SORT_CACHE_SIZE) {
+            sortCache.putIfAbsent(value, sort);
         }
+        return sort;
+    }
 
-        @Override
-        public String getDescription(boolean includeClientInfo) {
-            return "";
-        }
+    /**
+     * {@code property(,property)*(,asc|desc)?(,ignorecase)?}, the same syntax as Spring Data's resolver.
+     */
+    private static Sort parseSort(final String value) {
+        final var parts = StringUtils.delimitedListToStringArray(value, ",");
+        var end = parts.length;
 
-        @Override
-        public Object getAttribute(String name, int scope) {
-            return null;
+        final var ignoreCase = end > 0 && IGNORE_CASE.equalsIgnoreCase(parts[end - 1].trim());
+        if (ignoreCase) {
+            end--;
         }
 
-        @Override
-        public void setAttribute(String name, Object value, int scope) {
-
+        final var direction = end > 0 ? Sort.Direction.fromOptionalString(parts[end - 1].trim()).orElse(null) : null;
+        if (direction != null) {
+            end--;
         }
 
-        @Override
-        public void removeAttribute(String name, int scope) {
-
+        final List<Sort.Order> orders = new ArrayList<>(end);
+        for (int i = 0; i < end; i++) {
+            final var property = parts[i].trim();
+            if (!property.isEmpty()) {
+                final var order = new Sort.Order(direction == null ? Sort.DEFAULT_DIRECTION : direction, property);
+                orders.add(ignoreCase ? order.ignoreCase() : order);
+            }
         }
+        return Sort.by(orders);
+    }
 
-        @Override
-        public String[] getAttributeNames(int scope) {
-            return new String[0];
+    private static int parse(final String value, final int fallback) {
+        if (!StringUtils.hasText(value)) {
+            return fallback;
         }
 
-        @Override
-        public void registerDestructionCallback(String name, Runnable callback, int scope) {
-
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (final NumberFormatException e) {
+            return fallback;
         }
+    }
 
-        @Override
-        public Object resolveReference(String key) {
-            return null;
-        }
+    private static final class ParameterNames {
 
-        @Override
-        public String getSessionId() {
-            return request.getId();
-        }
+        private final String page;
+        private final String size;
+        private final String sort;
 
-        @Override
-        public Object getSessionMutex() {
-            return request.getId();
+        private ParameterNames(final String page, final String size, final String sort) {
+            this.page = page;
+            this.size = size;
+            this.sort = sort;
         }
     }
 }
@@ -28,6 +28,11 @@ public class ProblemConfiguration {
                 .orElse(module);
     }
 
+    @Bean
+    ProblemRenderingModule problemRenderingModule() {
+        return new ProblemRenderingModule();
+    }
+
     @Bean
     ConstraintViolationProblemModule constraintViolationProblemModule() {
         return new ConstraintViolationProblemModule();
@@ -1,13 +1,117 @@
 package au.com.ibenta.problem;
 
+import au.com.ibenta.tracing.RequestTrace;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.server.ServerWebExchange;
+import org.zalando.problem.Problem;
+import org.zalando.problem.Status;
+import org.zalando.problem.ThrowableProblem;
+import org.zalando.problem.spring.common.AdviceTraits;
 import org.zalando.problem.spring.webflux.advice.ProblemHandling;
 import org.zalando.problem.spring.webflux.advice.general.GeneralAdviceTrait;
 import org.zalando.problem.spring.webflux.advice.http.HttpAdviceTrait;
 import org.zalando.problem.spring.webflux.advice.network.NetworkAdviceTrait;
 import org.zalando.problem.spring.webflux.advice.validation.ValidationAdviceTrait;
+import reactor.core.publisher.Mono;
 
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.slf4j.LoggerFactory.getLogger;
+
+/**
+ * Besides the advice traits, keeps error storms cheap: only {@code ibenta.problem.stack-traces-per-second} 5xx problems
+ * keep their stack trace in the body and the log, 4xx and {@link StaticThrowableProblem}s are rendered without one and
+ * never use that budget, and every rendered problem is counted per status as {@code http.server.problems}. The stack
+ * trace is left out by {@link ProblemRenderingModule}, the problem itself is not changed.
+ */
 @ControllerAdvice
+@EnableConfigurationProperties(ProblemProperties.class)
 public class ProblemHandler implements ProblemHandling,
         GeneralAdviceTrait, HttpAdviceTrait, NetworkAdviceTrait, ValidationAdviceTrait {
+
+    public static final String PROBLEMS = "http.server.problems";
+
+    private static final Logger log = getLogger(AdviceTraits.class);
+    private static final String STACK_TRACE_SAMPLED = ProblemHandler.class.getName() + ".stackTraceSampled";
+
+    private final StackTraceBudget stackTraces;
+    private final ProblemRenderingModule rendering;
+    private final MeterRegistry registry;
+    private final Map<Integer, Counter> counters = new ConcurrentHashMap<>();
+
+    public ProblemHandler(final ProblemProperties properties,
+                          final ProblemRenderingModule rendering,
+                          final MeterRegistry registry) {
+        this.stackTraces = new StackTraceBudget(properties.getStackTracesPerSecond());
+        this.rendering = rendering;
+        this.registry = registry;
+    }
+
+    @ExceptionHandler
+    public Mono<ResponseEntity<Problem>> handleRejectedExecution(final RejectedExecutionException exception,
+                                                                 final ServerWebExchange request) {
+        return create(Status.SERVICE_UNAVAILABLE, exception, request);
+    }
+
+    @ExceptionHandler
+    public Mono<ResponseEntity<Problem>> handleOptimisticLockingFailure(final OptimisticLockingFailureException exception,
+                                                                       final ServerWebExchange request) {
+        return create(Status.CONFLICT, exception, request);
+    }
+
+    /**
+     * A unique index rejected a write that raced another one past the application's own checks.
+     */
+    @ExceptionHandler
+    public Mono<ResponseEntity<Problem>> handleDataIntegrityViolation(final DataIntegrityViolationException exception,
+                                                                     final ServerWebExchange request) {
+        return create(Status.CONFLICT, exception, request);
+    }
+
+    /**
+     * Logs as the advice traits do, with the trace of the request in the MDC.
+     */
+    @Override
+    public Mono<Void> log(final Throwable throwable, final Problem problem, final ServerWebExchange request, final HttpStatus status) {
+        final Runnable statement = !status.is5xxServerError() || throwable instanceof StaticThrowableProblem || stackTraceSampled(request)
+                ? () -> AdviceTraits.log(throwable, status)
+                : () -> log.error("{}: {}", status.getReasonPhrase(), throwable.getMessage());
+        return Mono.subscriberContext()
+                .doOnNext(context -> RequestTrace.log(context, statement))
+                .then();
+    }
+
+    @Override
+    public Mono<ResponseEntity<Problem>> process(final ResponseEntity<Problem> entity, final ServerWebExchange request) {
+        final var body = entity.getBody();
+        final var sampled = entity.getStatusCode().is5xxServerError()
+                && !(body instanceof StaticThrowableProblem) && stackTraceSampled(request);
+        if (!sampled && body instanceof ThrowableProblem) {
+            rendering.omitStackTrace((ThrowableProblem) body);
+        }
+        counter(entity.getStatusCodeValue(), sampled).increment();
+        return ProblemHandling.super.process(entity, request);
+    }
+
+    private boolean stackTraceSampled(final ServerWebExchange request) {
+        return (Boolean) request.getAttributes().computeIfAbsent(STACK_TRACE_SAMPLED, key -> stackTraces.tryAcquire());
+    }
+
+    private Counter counter(final int status, final boolean stackTrace) {
+        return counters.computeIfAbsent(stackTrace ? status : -status, key -> Counter.builder(PROBLEMS)
+                .tag("status", String.valueOf(status))
+                .tag("stacktrace", String.valueOf(stackTrace))
+                .register(registry));
+    }
 }
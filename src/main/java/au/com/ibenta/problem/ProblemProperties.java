@@ -0,0 +1,15 @@
+package au.com.ibenta.problem;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Data
+@ConfigurationProperties(prefix = "ibenta.problem")
+public class ProblemProperties {
+
+    /**
+     * 5xx problems per second that keep their stack trace in the body and the log, the rest are rendered and logged
+     * without one. 4xx problems are always rendered without one. Negative for no limit.
+     */
+    private int stackTracesPerSecond = 10;
+}
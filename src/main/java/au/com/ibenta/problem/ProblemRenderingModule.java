@@ -0,0 +1,166 @@
+package au.com.ibenta.problem;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.BeanDescription;
+import com.fasterxml.jackson.databind.BeanProperty;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializationConfig;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.jsontype.TypeSerializer;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.databind.ser.BeanPropertyWriter;
+import com.fasterxml.jackson.databind.ser.BeanSerializerModifier;
+import com.fasterxml.jackson.databind.ser.ContextualSerializer;
+import com.fasterxml.jackson.databind.ser.ResolvableSerializer;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.Value;
+import org.zalando.problem.Exceptional;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static java.util.stream.Collectors.toList;
+
+/**
+ * Serializes each {@link StaticThrowableProblem} class and status once and replays the recorded tokens afterwards, and
+ * leaves out the {@code stacktrace} of problems whose stack trace was not sampled by {@link ProblemHandler}. Those are
+ * only remembered, weakly, until they are rendered or collected, so the problem keeps its stack trace for the logs and
+ * for any other request it is rendered for.
+ */
+public class ProblemRenderingModule extends SimpleModule {
+
+    private static final int CACHE_SIZE = 256;
+    private static final String STACK_TRACE = "stacktrace";
+
+    private final Cache<Throwable, Boolean> withoutStackTrace = Caffeine.newBuilder().weakKeys().build();
+
+    public ProblemRenderingModule() {
+        super(ProblemRenderingModule.class.getSimpleName());
+        setSerializerModifier(new BeanSerializerModifier() {
+
+            @Override
+            public List<BeanPropertyWriter> changeProperties(final SerializationConfig config,
+                                                             final BeanDescription description,
+                                                             final List<BeanPropertyWriter> properties) {
+                if (!Exceptional.class.isAssignableFrom(description.getBeanClass())) {
+                    return properties;
+                }
+                return properties.stream()
+                        .map(property -> STACK_TRACE.equals(property.getName()) ? new SampledStackTraceWriter(property, withoutStackTrace) : property)
+                        .collect(toList());
+            }
+
+            @Override
+            @SuppressWarnings("unchecked")
+            public JsonSerializer<?> modifySerializer(final SerializationConfig config,
+                                                      final BeanDescription description,
+                                                      final JsonSerializer<?> serializer) {
+                if (!StaticThrowableProblem.class.isAssignableFrom(description.getBeanClass())) {
+                    return serializer;
+                }
+                return new StaticProblemSerializer((JsonSerializer<Object>) serializer);
+            }
+        });
+    }
+
+    /**
+     * Renders the next body of {@code problem} without its stack trace.
+     */
+    void omitStackTrace(final Throwable problem) {
+        withoutStackTrace.put(problem, Boolean.TRUE);
+    }
+
+    private static final class SampledStackTraceWriter extends BeanPropertyWriter {
+
+        private final Cache<Throwable, Boolean> withoutStackTrace;
+
+        private SampledStackTraceWriter(final BeanPropertyWriter base, final Cache<Throwable, Boolean> withoutStackTrace) {
+            super(base);
+            this.withoutStackTrace = withoutStackTrace;
+        }
+
+        @Override
+        public void serializeAsField(final Object bean, final JsonGenerator gen, final SerializerProvider prov) throws Exception {
+            final var problem = (Throwable) bean;
+            if (withoutStackTrace.asMap().remove(problem) == null && problem.getStackTrace().length > 0) {
+                super.serializeAsField(bean, gen, prov);
+            }
+        }
+    }
+
+    private static final class StaticProblemSerializer extends JsonSerializer<Object> implements ContextualSerializer, ResolvableSerializer {
+
+        private final JsonSerializer<Object> delegate;
+        private final Map<Key, TokenBuffer> bodies = new ConcurrentHashMap<>();
+        private final Map<Key, TokenBuffer> typedBodies = new ConcurrentHashMap<>();
+
+        private StaticProblemSerializer(final JsonSerializer<Object> delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void serialize(final Object value, final JsonGenerator gen, final SerializerProvider serializers) throws IOException {
+            replay(bodies, value, gen, body -> delegate.serialize(value, body, serializers));
+        }
+
+        @Override
+        public void serializeWithType(final Object value,
+                                      final JsonGenerator gen,
+                                      final SerializerProvider serializers,
+                                      final TypeSerializer typeSer) throws IOException {
+            replay(typedBodies, value, gen, body -> delegate.serializeWithType(value, body, serializers, typeSer));
+        }
+
+        private static void replay(final Map<Key, TokenBuffer> cache,
+                                   final Object value,
+                                   final JsonGenerator gen,
+                                   final BodyWriter writer) throws IOException {
+            final var problem = (StaticThrowableProblem) value;
+            final var key = new Key(problem.getClass(), problem.getStatus() == null ? 0 : problem.getStatus().getStatusCode());
+
+            var body = cache.get(key);
+            if (body == null) {
+                body = new TokenBuffer(gen.getCodec(), false);
+                writer.write(body);
+                if (cache.size() < CACHE_SIZE) {
+                    cache.putIfAbsent(key, body);
+                }
+            }
+            body.serialize(gen);
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public JsonSerializer<?> createContextual(final SerializerProvider provider, final BeanProperty property) throws JsonMappingException {
+            if (delegate instanceof ContextualSerializer) {
+                return new StaticProblemSerializer((JsonSerializer<Object>) ((ContextualSerializer) delegate).createContextual(provider, property));
+            }
+            return this;
+        }
+
+        @Override
+        public void resolve(final SerializerProvider provider) throws JsonMappingException {
+            if (delegate instanceof ResolvableSerializer) {
+                ((ResolvableSerializer) delegate).resolve(provider);
+            }
+        }
+    }
+
+    @FunctionalInterface
+    private interface BodyWriter {
+
+        void write(TokenBuffer body) throws IOException;
+    }
+
+    @Value
+    private static class Key {
+
+        Class<?> type;
+        int status;
+    }
+}
@@ -0,0 +1,39 @@
+package au.com.ibenta.problem;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Hands out a fixed number of stack traces per second. The current second and the traces used in it share one
+ * {@link AtomicLong}, so a storm of errors costs a compare-and-set each rather than a lock.
+ */
+class StackTraceBudget {
+
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+    private static final long USED_MASK = 0xFFFF_FFFFL;
+
+    private final int perSecond;
+    private final AtomicLong window = new AtomicLong();
+
+    StackTraceBudget(final int perSecond) {
+        this.perSecond = perSecond;
+    }
+
+    boolean tryAcquire() {
+        if (perSecond < 0) {
+            return true;
+        }
+
+        final long second = (System.nanoTime() / SECOND) & USED_MASK;
+        while (true) {
+            final long current = window.get();
+            final long used = current >>> 32 == second ? current & USED_MASK : 0;
+            if (used >= perSecond) {
+                return false;
+            }
+            if (window.compareAndSet(current, second << 32 | used + 1)) {
+                return true;
+            }
+        }
+    }
+}
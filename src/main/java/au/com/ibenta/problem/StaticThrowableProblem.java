@@ -0,0 +1,23 @@
+package au.com.ibenta.problem;
+
+import org.zalando.problem.AbstractThrowableProblem;
+import org.zalando.problem.StatusType;
+
+import java.net.URI;
+
+/**
+ * A problem whose body depends on nothing but its class and status, such as a fixed validation or authentication
+ * failure. It captures no stack trace when thrown, and {@link ProblemRenderingModule} serializes each class and status
+ * once and replays that body afterwards.
+ */
+public abstract class StaticThrowableProblem extends AbstractThrowableProblem {
+
+    protected StaticThrowableProblem(final URI type, final String title, final StatusType status, final String detail) {
+        super(type, title, status, detail);
+    }
+
+    @Override
+    public final synchronized Throwable fillInStackTrace() {
+        return this;
+    }
+}
@@ -0,0 +1,36 @@
+package au.com.ibenta.springfox;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnResource;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.web.reactive.function.server.RouterFunction;
+import org.springframework.web.reactive.function.server.ServerResponse;
+
+import static org.springframework.http.MediaType.APPLICATION_JSON;
+import static org.springframework.web.reactive.function.server.RequestPredicates.GET;
+import static org.springframework.web.reactive.function.server.RouterFunctions.route;
+import static org.springframework.web.reactive.function.server.ServerResponse.ok;
+
+/**
+ * Serves the Swagger document written at build time by {@code mvn -P openapi package} in place of Springfox, which
+ * then neither scans the controllers nor keeps its models on the heap. Only active with
+ * {@code springfox.documentation.enabled=false} and a generated document in the jar.
+ */
+@Configuration
+@ConditionalOnProperty(value = OpenApiDocumentConfiguration.SCANNING_ENABLED, havingValue = "false")
+@ConditionalOnResource(resources = "classpath:" + OpenApiDocumentConfiguration.DOCUMENT)
+public class OpenApiDocumentConfiguration {
+
+    public static final String API_DOCS = "/v2/api-docs";
+    public static final String DOCUMENT = "openapi/api-docs.json";
+
+    static final String SCANNING_ENABLED = "springfox.documentation.enabled";
+
+    @Bean
+    RouterFunction<ServerResponse> apiDocs() {
+        final var document = new ClassPathResource(DOCUMENT);
+        return route(GET(API_DOCS), request -> ok().contentType(APPLICATION_JSON).bodyValue(document));
+    }
+}
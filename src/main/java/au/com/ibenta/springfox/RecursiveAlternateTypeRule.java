@@ -6,11 +6,19 @@ import springfox.documentation.schema.AlternateTypeRule;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
+/**
+ * Applies its rules until none applies any more, unwrapping {@code Mono<ResponseEntity<T>>} down to {@code T}.
+ * Springfox asks every rule about every type it meets, so both answers are remembered per type.
+ */
 public class RecursiveAlternateTypeRule extends AlternateTypeRule {
 
     private final TypeResolver resolver;
     private final List<AlternateTypeRule> rules;
+    private final Map<ResolvedType, ResolvedType> alternates = new ConcurrentHashMap<>();
+    private final Map<ResolvedType, Boolean> applicable = new ConcurrentHashMap<>();
 
     public RecursiveAlternateTypeRule(final TypeResolver resolver,
                                       final List<AlternateTypeRule> rules) {
@@ -21,17 +29,25 @@ public class RecursiveAlternateTypeRule extends AlternateTypeRule {
 
     @Override
     public ResolvedType alternateFor(final ResolvedType type) {
+        // not computeIfAbsent, the resolution recurses into this map
+        final var cached = alternates.get(type);
+        if (cached != null) {
+            return cached;
+        }
+
         final var newType = rules.stream()
                 .map(rule -> rule.alternateFor(type))
                 .filter(resolvedType -> !resolvedType.equals(type))
                 .findFirst()
                 .orElse(type);
 
-        return appliesTo(newType) ? alternateFor(newType) : newType;
+        final var alternate = appliesTo(newType) ? alternateFor(newType) : newType;
+        alternates.putIfAbsent(type, alternate);
+        return alternate;
     }
 
     @Override
     public boolean appliesTo(final ResolvedType type) {
-        return rules.stream().anyMatch(rule -> rule.appliesTo(type));
+        return applicable.computeIfAbsent(type, key -> rules.stream().anyMatch(rule -> rule.appliesTo(key)));
     }
 }
@@ -3,6 +3,7 @@ package au.com.ibenta.springfox;
 import com.fasterxml.classmate.TypeResolver;
 import io.swagger.annotations.Api;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.boot.info.BuildProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -24,8 +25,13 @@ import static java.util.Arrays.asList;
 import static java.util.Optional.ofNullable;
 import static springfox.documentation.schema.AlternateTypeRules.newRule;
 
+/**
+ * Scans the {@link Api} controllers at startup. Turned off with {@code springfox.documentation.enabled=false}, as in
+ * the {@code prod} profile, where {@link OpenApiDocumentConfiguration} serves the document generated by the build.
+ */
 @Configuration
 @EnableOpenApi
+@ConditionalOnProperty(value = OpenApiDocumentConfiguration.SCANNING_ENABLED, havingValue = "true", matchIfMissing = true)
 public class SpringFoxConfiguration {
 
     private final TypeResolver resolver;
@@ -0,0 +1,80 @@
+package au.com.ibenta.startup;
+
+import org.springframework.beans.factory.config.InstantiationAwareBeanPostProcessor;
+import org.springframework.core.Ordered;
+import org.springframework.core.PriorityOrdered;
+import org.springframework.lang.NonNull;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Times every bean from its instantiation to the end of its initialization, less the time spent creating the beans
+ * it depends on, so the time of a slow repository is not also charged to each service injecting it. Beans created
+ * before this post-processor is registered, such as other post-processors, are not timed.
+ */
+class BeanTimings implements InstantiationAwareBeanPostProcessor, PriorityOrdered {
+
+    private final ThreadLocal<Deque<Creation>> creating = ThreadLocal.withInitial(ArrayDeque::new);
+    private final Map<String, Long> ownNanos = new ConcurrentHashMap<>();
+
+    @Override
+    public Object postProcessBeforeInstantiation(@NonNull final Class<?> beanClass, @NonNull final String beanName) {
+        creating.get().push(new Creation(beanName, System.nanoTime()));
+        return null;
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(@NonNull final Object bean, @NonNull final String beanName) {
+        final var stack = creating.get();
+        // objects from factory beans and beans that failed half way leave no matching or a stale entry
+        if (stack.stream().noneMatch(creation -> creation.beanName.equals(beanName))) {
+            return bean;
+        }
+
+        var creation = stack.pop();
+        while (!creation.beanName.equals(beanName)) {
+            creation = stack.pop();
+        }
+        final long elapsed = System.nanoTime() - creation.start;
+        ownNanos.merge(beanName, elapsed - creation.dependencies, Long::sum);
+        if (!stack.isEmpty()) {
+            stack.peek().dependencies += elapsed;
+        }
+        return bean;
+    }
+
+    @Override
+    public int getOrder() {
+        return Ordered.HIGHEST_PRECEDENCE;
+    }
+
+    int count() {
+        return ownNanos.size();
+    }
+
+    List<Map.Entry<String, Duration>> slowest(final int limit) {
+        return ownNanos.entrySet().stream()
+                .sorted(Map.Entry.<String, Long>comparingByValue().reversed())
+                .limit(limit)
+                .map(entry -> Map.entry(entry.getKey(), Duration.ofNanos(entry.getValue())))
+                .collect(Collectors.toList());
+    }
+
+    private static final class Creation {
+
+        private final String beanName;
+        private final long start;
+        private long dependencies;
+
+        private Creation(final String beanName, final long start) {
+            this.beanName = beanName;
+            this.start = start;
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package au.com.ibenta.startup;
+
+import org.springframework.beans.factory.config.BeanFactoryPostProcessor;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.lang.NonNull;
+
+import java.util.List;
+
+/**
+ * Takes the {@code ibenta.startup.eager-types} back out of {@code spring.main.lazy-initialization}. Spring Boot 2.2
+ * marks every bean definition lazy from a post-processor it registers itself, which therefore runs before this one.
+ */
+class EagerBeansPostProcessor implements BeanFactoryPostProcessor {
+
+    private final List<Class<?>> types;
+
+    EagerBeansPostProcessor(final List<Class<?>> types) {
+        this.types = List.copyOf(types);
+    }
+
+    @Override
+    public void postProcessBeanFactory(@NonNull final ConfigurableListableBeanFactory beanFactory) {
+        for (final var type : types) {
+            for (final var name : beanFactory.getBeanNamesForType(type, true, false)) {
+                if (beanFactory.containsBeanDefinition(name)) {
+                    beanFactory.getBeanDefinition(name).setLazyInit(false);
+                }
+            }
+        }
+    }
+}
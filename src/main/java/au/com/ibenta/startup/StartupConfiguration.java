@@ -0,0 +1,53 @@
+package au.com.ibenta.startup;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.core.env.Environment;
+
+@Configuration
+@EnableConfigurationProperties(StartupProperties.class)
+public class StartupConfiguration {
+
+    private final StartupProperties properties;
+
+    public StartupConfiguration(final StartupProperties properties) {
+        this.properties = properties;
+    }
+
+    @Bean
+    static BeanTimings beanTimings() {
+        return new BeanTimings();
+    }
+
+    /**
+     * Binds its properties by hand, bean factory post-processors run before configuration properties are bound.
+     */
+    @Bean
+    static EagerBeansPostProcessor eagerBeansPostProcessor(final Environment environment) {
+        final var properties = Binder.get(environment)
+                .bind("ibenta.startup", StartupProperties.class)
+                .orElseGet(StartupProperties::new);
+        return new EagerBeansPostProcessor(properties.getEagerTypes());
+    }
+
+    @Bean
+    StartupReport startupReport(final ObjectProvider<StartupTimeline> timeline, final BeanTimings beanTimings) {
+        return new StartupReport(timeline.getIfAvailable(), beanTimings, properties.getSlowestBeans());
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(Ordered.LOWEST_PRECEDENCE)
+    public void exitWhenReady(final ApplicationReadyEvent event) {
+        if (properties.isExitWhenReady()) {
+            System.exit(SpringApplication.exit(event.getApplicationContext()));
+        }
+    }
+}
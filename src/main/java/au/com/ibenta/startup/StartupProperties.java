@@ -0,0 +1,29 @@
+package au.com.ibenta.startup;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@ConfigurationProperties(prefix = "ibenta.startup")
+public class StartupProperties {
+
+    /**
+     * Beans listed in the startup report, by the time spent creating them without their dependencies.
+     */
+    private int slowestBeans = 10;
+
+    /**
+     * Bean types still created at startup with {@code spring.main.lazy-initialization}, because the first requests
+     * would otherwise pay for them or because nothing else would ever ask for them.
+     */
+    private List<Class<?>> eagerTypes = new ArrayList<>();
+
+    /**
+     * Closes the application as soon as it is ready, for the training run that lists the classes of the AppCDS
+     * archive.
+     */
+    private boolean exitWhenReady;
+}
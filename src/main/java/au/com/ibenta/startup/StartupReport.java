@@ -0,0 +1,36 @@
+package au.com.ibenta.startup;
+
+import java.time.Duration;
+
+/**
+ * The time spent in each startup phase and creating the slowest beans, laid out like the banner logged once the
+ * application is ready.
+ */
+public class StartupReport {
+
+    private static final String RULE = "+-------------------------------------------------------------------------------------%n";
+
+    private final StartupTimeline timeline;
+    private final BeanTimings beanTimings;
+    private final int slowestBeans;
+
+    StartupReport(final StartupTimeline timeline, final BeanTimings beanTimings, final int slowestBeans) {
+        this.timeline = timeline;
+        this.beanTimings = beanTimings;
+        this.slowestBeans = slowestBeans;
+    }
+
+    public String format() {
+        final var report = new StringBuilder(String.format("%n" + RULE));
+        if (timeline != null) {
+            final var phases = timeline.phases();
+            final var total = phases.values().stream().reduce(Duration.ZERO, Duration::plus);
+            report.append(String.format("|   Startup             : %d ms, %d beans created%n", total.toMillis(), beanTimings.count()));
+            phases.forEach((phase, duration) -> report.append(String.format("|     %-18s: %6d ms%n", phase, duration.toMillis())));
+        }
+        report.append(String.format("|   Slowest beans       :%n"));
+        beanTimings.slowest(slowestBeans).forEach(bean ->
+                report.append(String.format("|     %-50s: %6d ms%n", bean.getKey(), bean.getValue().toMillis())));
+        return report.append(String.format(RULE)).toString();
+    }
+}
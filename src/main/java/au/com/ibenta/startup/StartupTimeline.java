@@ -0,0 +1,81 @@
+package au.com.ibenta.startup;
+
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.context.event.ApplicationEnvironmentPreparedEvent;
+import org.springframework.boot.context.event.ApplicationPreparedEvent;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.boot.context.event.ApplicationStartedEvent;
+import org.springframework.boot.context.event.ApplicationStartingEvent;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.ApplicationEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.lang.NonNull;
+
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Marks the JVM uptime at the end of each phase of {@link SpringApplication#run}. Registered in
+ * {@code spring.factories} to see the phases before the context exists, then added to it as a bean.
+ */
+public class StartupTimeline implements ApplicationListener<ApplicationEvent> {
+
+    static final String BEAN_NAME = "startupTimeline";
+
+    private static final List<String> PHASES = List.of("jvm", "environment", "context", "refresh", "web server", "runners");
+
+    private final Map<String, Long> ends = new LinkedHashMap<>();
+    private ApplicationContext context;
+
+    @Override
+    public synchronized void onApplicationEvent(@NonNull final ApplicationEvent event) {
+        if (event instanceof ApplicationStartingEvent) {
+            mark("jvm");
+        } else if (event instanceof ApplicationEnvironmentPreparedEvent) {
+            mark("environment");
+        } else if (event instanceof ApplicationPreparedEvent) {
+            // published once more by the Spring Cloud restart listener
+            final var beanFactory = ((ApplicationPreparedEvent) event).getApplicationContext().getBeanFactory();
+            if (!beanFactory.containsSingleton(BEAN_NAME)) {
+                context = ((ApplicationPreparedEvent) event).getApplicationContext();
+                beanFactory.registerSingleton(BEAN_NAME, this);
+            }
+            mark("context");
+        } else if (event instanceof ContextRefreshedEvent && ((ContextRefreshedEvent) event).getApplicationContext() == context) {
+            mark("refresh");
+        } else if (event instanceof ApplicationStartedEvent) {
+            mark("web server");
+        } else if (event instanceof ApplicationReadyEvent) {
+            mark("runners");
+        }
+    }
+
+    /**
+     * The duration of each phase reached so far, the one in progress ending now.
+     */
+    synchronized Map<String, Duration> phases() {
+        final var phases = new LinkedHashMap<String, Duration>();
+        long start = 0;
+        for (final var phase : PHASES) {
+            final var end = ends.get(phase);
+            phases.put(phase, Duration.ofMillis((end == null ? uptime() : end) - start));
+            if (end == null) {
+                break;
+            }
+            start = end;
+        }
+        return phases;
+    }
+
+    private void mark(final String phase) {
+        ends.putIfAbsent(phase, uptime());
+    }
+
+    private static long uptime() {
+        return ManagementFactory.getRuntimeMXBean().getUptime();
+    }
+}
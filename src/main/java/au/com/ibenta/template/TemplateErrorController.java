@@ -1,12 +1,12 @@
 package au.com.ibenta.template;
 
+import au.com.ibenta.problem.StaticThrowableProblem;
 import io.swagger.annotations.Api;
 import org.springframework.context.annotation.Profile;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
-import org.zalando.problem.AbstractThrowableProblem;
 import org.zalando.problem.Status;
 import org.zalando.problem.StatusType;
 
@@ -25,7 +25,7 @@ public class TemplateErrorController {
         }
     }
 
-    private static class TemplateException extends AbstractThrowableProblem {
+    private static class TemplateException extends StaticThrowableProblem {
 
         TemplateException(final StatusType status) {
             super(null, status.getReasonPhrase(), status, status.getReasonPhrase());
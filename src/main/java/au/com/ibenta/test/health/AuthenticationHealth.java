@@ -0,0 +1,24 @@
+package au.com.ibenta.test.health;
+
+import lombok.Value;
+import org.springframework.http.MediaType;
+
+import java.time.Instant;
+
+/**
+ * A health response of the authentication service as it was received, {@code stale} once it is served in place of
+ * a fetch that failed or was not attempted.
+ */
+@Value
+public class AuthenticationHealth {
+
+    int status;
+    MediaType contentType;
+    byte[] body;
+    Instant fetchedAt;
+    boolean stale;
+
+    AuthenticationHealth asStale() {
+        return new AuthenticationHealth(status, contentType, body, fetchedAt, true);
+    }
+}
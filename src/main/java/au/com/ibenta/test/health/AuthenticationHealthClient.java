@@ -0,0 +1,142 @@
+package au.com.ibenta.test.health;
+
+import au.com.ibenta.tracing.RequestTrace;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.noop.NoopCounter;
+import io.netty.channel.ChannelOption;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import static org.springframework.http.MediaType.APPLICATION_JSON;
+
+/**
+ * Fetches the health of the authentication service at most once per {@code ttl}, however many calls ask for it:
+ * calls arriving while a fetch is in flight wait for that fetch, later ones get its response until it expires.
+ * Failed or timed out fetches open a {@link CircuitBreaker} after {@code failure-threshold} in a row, and as long as a
+ * fetch fails or the circuit is open the last known health is served again, marked stale. A failed fetch is logged
+ * with the trace of the request that started it.
+ */
+@Slf4j
+@Component
+@EnableConfigurationProperties(AuthenticationHealthProperties.class)
+public class AuthenticationHealthClient implements MeterBinder, DisposableBean {
+
+    public static final String FETCHES = "authentication.health.fetch";
+    public static final String STALE = "authentication.health.stale";
+
+    private static final byte[] EMPTY = new byte[0];
+
+    private final ConnectionProvider connections;
+    private final WebClient webClient;
+    private final AuthenticationHealthProperties properties;
+    private final CircuitBreaker breaker;
+    private final AtomicReference<AuthenticationHealth> lastKnown = new AtomicReference<>();
+    private final Mono<AuthenticationHealth> health;
+
+    private volatile MeterRegistry registry;
+    private volatile Counter staleResponses = new NoopCounter(null);
+
+    public AuthenticationHealthClient(final WebClient.Builder builder, final AuthenticationHealthProperties properties) {
+        this.connections = ConnectionProvider.fixed("authentication-service", properties.getMaxConnections(),
+                properties.getResponseTimeout().toMillis(), properties.getMaxIdleTime());
+        final var httpClient = HttpClient.create(connections)
+                .tcpConfiguration(tcp -> tcp.option(ChannelOption.CONNECT_TIMEOUT_MILLIS,
+                        (int) properties.getConnectTimeout().toMillis()));
+        this.webClient = builder.clientConnector(new ReactorClientHttpConnector(httpClient)).build();
+        this.properties = properties;
+        this.breaker = new CircuitBreaker(properties.getFailureThreshold(), properties.getOpenDuration().toNanos());
+        this.health = Mono.defer(this::fetch)
+                .cache(fetched -> properties.getTtl(), error -> Duration.ZERO, () -> Duration.ZERO);
+    }
+
+    public Mono<AuthenticationHealth> get() {
+        return health.onErrorResume(error -> Mono.justOrEmpty(lastKnown.get())
+                .map(AuthenticationHealth::asStale)
+                .doOnNext(stale -> staleResponses.increment())
+                .switchIfEmpty(Mono.error(AuthenticationHealthUnavailableException::new)));
+    }
+
+    CircuitBreaker.State getState() {
+        return breaker.getState();
+    }
+
+    @Override
+    public void bindTo(@NonNull final MeterRegistry registry) {
+        this.registry = registry;
+        Gauge.builder("authentication.health.circuit", breaker, circuit -> circuit.getState().ordinal())
+                .description("State of the circuit to the authentication service: 0 closed, 1 half open, 2 open")
+                .register(registry);
+        staleResponses = Counter.builder(STALE)
+                .description("Health responses served from the last known state because a fetch failed or was not attempted")
+                .register(registry);
+    }
+
+    @Override
+    public void destroy() {
+        connections.dispose();
+    }
+
+    private Mono<AuthenticationHealth> fetch() {
+        if (!breaker.tryAcquire()) {
+            return Mono.error(new AuthenticationHealthUnavailableException());
+        }
+
+        final long start = System.nanoTime();
+        return webClient.get()
+                .uri(properties.getUrl())
+                .accept(APPLICATION_JSON)
+                .exchange()
+                .flatMap(response -> response.bodyToMono(byte[].class)
+                        .defaultIfEmpty(EMPTY)
+                        .map(body -> new AuthenticationHealth(response.rawStatusCode(),
+                                response.headers().contentType().orElse(APPLICATION_JSON), body, Instant.now(), false)))
+                .timeout(properties.getResponseTimeout())
+                // actuator answers 503 when the service is down, which is a health like any other
+                .filter(fetched -> fetched.getStatus() == HttpStatus.OK.value()
+                        || fetched.getStatus() == HttpStatus.SERVICE_UNAVAILABLE.value())
+                .switchIfEmpty(Mono.error(() -> new IllegalStateException("unexpected authentication-service health status")))
+                .doOnNext(fetched -> {
+                    breaker.onSuccess();
+                    lastKnown.set(fetched);
+                    record("success", System.nanoTime() - start);
+                })
+                .doOnError(error -> {
+                    breaker.onFailure();
+                    record(error instanceof TimeoutException ? "timeout" : "error", System.nanoTime() - start);
+                })
+                .doOnEach(RequestTrace.logOnError(error -> log.warn("Could not fetch the authentication service health: {}", error.toString())))
+                // a half open circuit must hear back from its only call
+                .doOnCancel(breaker::onFailure);
+    }
+
+    private void record(final String outcome, final long nanos) {
+        final var meters = registry;
+        if (meters != null) {
+            Timer.builder(FETCHES)
+                    .tag("outcome", outcome)
+                    .description("Fetches of the authentication service health, by outcome")
+                    .publishPercentileHistogram()
+                    .register(meters)
+                    .record(nanos, NANOSECONDS);
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package au.com.ibenta.test.health;
+
+import io.swagger.annotations.Api;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.Instant;
+
+@Api(tags = "health")
+@RestController
+@RequestMapping("/authentication-service/health")
+public class AuthenticationHealthController {
+
+    static final String STALE_WARNING = "110 - \"Response is Stale\"";
+
+    private final AuthenticationHealthClient client;
+
+    public AuthenticationHealthController(final AuthenticationHealthClient client) {
+        this.client = client;
+    }
+
+    @GetMapping
+    Mono<ResponseEntity<byte[]>> get() {
+        return client.get().map(health -> {
+            final var response = ResponseEntity.status(health.getStatus())
+                    .contentType(health.getContentType())
+                    .header(HttpHeaders.AGE, String.valueOf(Duration.between(health.getFetchedAt(), Instant.now()).toSeconds()));
+            if (health.isStale()) {
+                response.header(HttpHeaders.WARNING, STALE_WARNING);
+            }
+            return response.body(health.getBody());
+        });
+    }
+}
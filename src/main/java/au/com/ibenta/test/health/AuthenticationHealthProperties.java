@@ -0,0 +1,51 @@
+package au.com.ibenta.test.health;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "ibenta.authentication-health")
+public class AuthenticationHealthProperties {
+
+    /**
+     * Health endpoint of the authentication service.
+     */
+    private String url = "http://authentication-service.staging.ibenta.com/actuator/health";
+
+    /**
+     * Time a health response is served from memory before the next call fetches it again.
+     */
+    private Duration ttl = Duration.ofSeconds(5);
+
+    /**
+     * Pooled connections to the authentication service, one is enough since fetches are coalesced.
+     */
+    private int maxConnections = 2;
+
+    /**
+     * Time allowed to open a connection.
+     */
+    private Duration connectTimeout = Duration.ofSeconds(1);
+
+    /**
+     * Time allowed for the whole response, including waiting for a pooled connection.
+     */
+    private Duration responseTimeout = Duration.ofSeconds(2);
+
+    /**
+     * Pooled connections unused for longer are closed rather than reused.
+     */
+    private Duration maxIdleTime = Duration.ofSeconds(30);
+
+    /**
+     * Consecutive failed fetches that open the circuit.
+     */
+    private int failureThreshold = 3;
+
+    /**
+     * Time the circuit stays open, serving the last known health, before one fetch is tried again.
+     */
+    private Duration openDuration = Duration.ofSeconds(30);
+}
@@ -0,0 +1,12 @@
+package au.com.ibenta.test.health;
+
+import au.com.ibenta.problem.StaticThrowableProblem;
+import org.zalando.problem.Status;
+
+public class AuthenticationHealthUnavailableException extends StaticThrowableProblem {
+
+    AuthenticationHealthUnavailableException() {
+        super(null, Status.BAD_GATEWAY.getReasonPhrase(), Status.BAD_GATEWAY,
+                "authentication-service health is not available and was never fetched");
+    }
+}
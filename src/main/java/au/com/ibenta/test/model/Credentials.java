@@ -0,0 +1,21 @@
+package au.com.ibenta.test.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.validation.constraints.NotBlank;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class Credentials {
+
+    @NotBlank
+    private String email;
+
+    @NotBlank
+    private String password;
+}
@@ -0,0 +1,32 @@
+package au.com.ibenta.test.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+import static com.fasterxml.jackson.annotation.JsonInclude.Include.NON_EMPTY;
+
+/**
+ * Outcome of one line of a bulk import, streamed back in input order.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(NON_EMPTY)
+public class UserImportResult {
+
+    public enum Status { CREATED, INVALID, FAILED }
+
+    private long line;
+
+    private Status status;
+
+    private Long id;
+
+    private List<String> errors;
+}
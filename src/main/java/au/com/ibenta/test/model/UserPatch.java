@@ -0,0 +1,41 @@
+package au.com.ibenta.test.model;
+
+import com.fasterxml.jackson.annotation.JsonSetter;
+import com.fasterxml.jackson.annotation.Nulls;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.validation.constraints.Email;
+import javax.validation.constraints.Pattern;
+
+/**
+ * A JSON merge patch of a {@link User}: a property left out keeps its value, and since every property is required
+ * one set to {@code null}, which would remove it, is rejected while the body is read.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserPatch {
+
+    private static final String NOT_BLANK = "(?s).*\\S.*";
+
+    @Pattern(regexp = NOT_BLANK, message = "must not be blank")
+    @JsonSetter(nulls = Nulls.FAIL)
+    private String firstName;
+
+    @Pattern(regexp = NOT_BLANK, message = "must not be blank")
+    @JsonSetter(nulls = Nulls.FAIL)
+    private String lastName;
+
+    @Email
+    @Pattern(regexp = NOT_BLANK, message = "must not be blank")
+    @JsonSetter(nulls = Nulls.FAIL)
+    private String email;
+
+    @Pattern(regexp = NOT_BLANK, message = "must not be blank")
+    @JsonSetter(nulls = Nulls.FAIL)
+    private String password;
+}
@@ -0,0 +1,203 @@
+package au.com.ibenta.test.persistence;
+
+import au.com.ibenta.batch.MicroBatcher;
+import au.com.ibenta.limit.AdaptiveConcurrencyLimiter;
+import au.com.ibenta.pagination.KeysetPageable;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.RejectedExecutionException;
+
+import static au.com.ibenta.limit.ConcurrencyLimitConfiguration.DATABASE_LIMITER;
+import static au.com.ibenta.offload.OffloadConfiguration.JDBC_SCHEDULER;
+import static java.util.stream.Collectors.toList;
+
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "ibenta.persistence", name = "mode", havingValue = "jpa", matchIfMissing = true)
+@EnableConfigurationProperties(UserWriteBatchProperties.class)
+public class JpaUserStore implements UserStore, MeterBinder {
+
+    private final UserRepository repository;
+    private final DataSource dataSource;
+    private final Scheduler scheduler;
+    private final AdaptiveConcurrencyLimiter limiter;
+    private final MicroBatcher<UserEntity, UserEntity> writes;
+
+    public JpaUserStore(final UserRepository repository,
+                        final DataSource dataSource,
+                        @Qualifier(JDBC_SCHEDULER) final Scheduler scheduler,
+                        @Qualifier(DATABASE_LIMITER) final AdaptiveConcurrencyLimiter limiter,
+                        final UserWriteBatchProperties writeBatchProperties) {
+        this.repository = repository;
+        this.dataSource = dataSource;
+        this.scheduler = scheduler;
+        this.limiter = limiter;
+        // an optimistic lock or constraint failure is one user's, the others in its batch are written again alone, and
+        // two saves of one user go in separate batches, or both copies would be merged into one entity and both succeed
+        this.writes = new MicroBatcher<>("user-writes", writeBatchProperties, this::saveAll, this::saveOne,
+                error -> error instanceof DataIntegrityViolationException || error instanceof OptimisticLockingFailureException,
+                UserEntity::getId);
+    }
+
+    @Override
+    public Mono<UserEntity> findById(final Long id) {
+        return limiter.limit(Mono.fromCallable(() -> repository.findById(id))
+                .subscribeOn(scheduler))
+                .flatMap(Mono::justOrEmpty);
+    }
+
+    @Override
+    public Mono<UserEntity> findByEmail(final String email) {
+        return limiter.limit(Mono.fromCallable(() -> repository.findFirstByEmailOrderByIdAsc(email))
+                .subscribeOn(scheduler))
+                .flatMap(Mono::justOrEmpty);
+    }
+
+    @Override
+    public Flux<UserEntity> findAll(final Pageable pageable) {
+        final var request = PageRequest.of(pageable.getPageNumber(), pageable.getPageSize(), pageable.getSortOr(Sort.by("id")));
+        return limiter.limit(Mono.fromCallable(() -> repository.findAll(request))
+                .subscribeOn(scheduler))
+                .flatMapIterable(page -> page);
+    }
+
+    @Override
+    public Flux<UserEntity> findAll(final KeysetPageable pageable) {
+        return limiter.limit(Mono.fromCallable(() -> repository.findAll(pageable))
+                .subscribeOn(scheduler))
+                .flatMapIterable(rows -> rows);
+    }
+
+    /**
+     * Reads straight from JDBC, since a JPA stream would also hold every entity in its persistence context. Each
+     * request reads as many rows on the offload scheduler, so a slow client leaves the cursor where it is. The read
+     * bypasses the concurrency limiter, as its length depends on the table and the client, not on database latency;
+     * callers cap how many run at once instead.
+     */
+    @Override
+    public Flux<UserEntity> streamAll(final int fetchSize) {
+        return Flux.using(() -> new UserRowCursor(dataSource, fetchSize),
+                cursor -> Flux.<UserEntity>generate(sink -> {
+                    try {
+                        final var entity = cursor.next();
+                        if (entity == null) {
+                            sink.complete();
+                        } else {
+                            sink.next(entity);
+                        }
+                    } catch (final SQLException e) {
+                        sink.error(e);
+                    }
+                }),
+                this::closeLater)
+                .subscribeOn(scheduler);
+    }
+
+    /**
+     * With {@code ibenta.persistence.write-batching.enabled}, concurrent saves are written together by
+     * {@link #saveAll(List)}, otherwise each in a transaction of its own.
+     */
+    @Override
+    public Mono<UserEntity> save(final UserEntity user) {
+        return writes.submit(user);
+    }
+
+    @Override
+    public void bindTo(@NonNull final MeterRegistry registry) {
+        writes.bindTo(registry);
+    }
+
+    private Mono<UserEntity> saveOne(final UserEntity user) {
+        return limiter.limit(Mono.fromCallable(() -> repository.save(user))
+                .subscribeOn(scheduler));
+    }
+
+    /**
+     * One transaction for the whole batch, which Hibernate sends as JDBC batches of {@code hibernate.jdbc.batch_size}.
+     */
+    private Mono<List<UserEntity>> saveAll(final List<UserEntity> users) {
+        return limiter.limit(Mono.fromCallable(() -> repository.saveAll(users.stream().map(JpaUserStore::detached).collect(toList())))
+                .subscribeOn(scheduler));
+    }
+
+    /**
+     * A copy to save in a batch, so a rolled back one leaves no id or version on the callers' entities and each can
+     * be saved again on its own.
+     */
+    private static UserEntity detached(final UserEntity user) {
+        final var copy = new UserEntity();
+        copy.setId(user.getId());
+        copy.setFirstName(user.getFirstName());
+        copy.setLastName(user.getLastName());
+        copy.setEmail(user.getEmail());
+        copy.setPassword(user.getPassword());
+        copy.setVersion(user.getVersion());
+        copy.setUpdatedAt(user.getUpdatedAt());
+        return copy;
+    }
+
+    @Override
+    public Mono<UserEntity> patch(final UserEntity changes) {
+        if (changes.getVersion() == null) {
+            return limiter.limit(Mono.fromCallable(() -> {
+                changes.touch();
+                return repository.patch(changes) > 0 ? repository.findById(changes.getId()) : Optional.<UserEntity>empty();
+            }).subscribeOn(scheduler))
+                    .flatMap(Mono::justOrEmpty);
+        }
+        return limiter.limit(Mono.fromCallable(() -> {
+            changes.touch();
+            return repository.patch(changes);
+        }).subscribeOn(scheduler))
+                .filter(rows -> rows > 0)
+                .map(rows -> {
+                    changes.setVersion(changes.getVersion() + 1);
+                    return changes;
+                });
+    }
+
+    @Override
+    public Mono<Void> deleteById(final Long id) {
+        return limiter.limit(Mono.<Void>fromRunnable(() -> repository.deleteById(id))
+                .subscribeOn(scheduler));
+    }
+
+    /**
+     * A cancel arrives on the event loop, which should not wait for the connection to close, unless the offload
+     * scheduler is too busy to take it.
+     */
+    private void closeLater(final UserRowCursor cursor) {
+        try {
+            scheduler.schedule(() -> close(cursor));
+        } catch (final RejectedExecutionException e) {
+            close(cursor);
+        }
+    }
+
+    private static void close(final UserRowCursor cursor) {
+        try {
+            cursor.close();
+        } catch (final SQLException e) {
+            log.warn("Could not close the user cursor", e);
+        }
+    }
+}
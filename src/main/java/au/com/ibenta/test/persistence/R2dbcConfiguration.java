@@ -0,0 +1,42 @@
+package au.com.ibenta.test.persistence;
+
+import io.r2dbc.h2.H2ConnectionConfiguration;
+import io.r2dbc.h2.H2ConnectionFactory;
+import io.r2dbc.spi.ConnectionFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.r2dbc.config.AbstractR2dbcConfiguration;
+
+/**
+ * Opens R2DBC connections against the same H2 database as the JDBC {@code DataSource}, so the schema
+ * managed by Liquibase is shared by both persistence paths.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "ibenta.persistence", name = "mode", havingValue = "r2dbc")
+public class R2dbcConfiguration extends AbstractR2dbcConfiguration {
+
+    private static final String H2_URL_PREFIX = "jdbc:h2:";
+
+    private final DataSourceProperties dataSourceProperties;
+
+    public R2dbcConfiguration(final DataSourceProperties dataSourceProperties) {
+        this.dataSourceProperties = dataSourceProperties;
+    }
+
+    @Override
+    @Bean
+    public ConnectionFactory connectionFactory() {
+        final var url = dataSourceProperties.determineUrl();
+        if (!url.startsWith(H2_URL_PREFIX)) {
+            throw new IllegalStateException("R2DBC persistence only supports H2 datasources, got: " + url);
+        }
+
+        return new H2ConnectionFactory(H2ConnectionConfiguration.builder()
+                .url(url.substring(H2_URL_PREFIX.length()))
+                .username(dataSourceProperties.determineUsername())
+                .password(dataSourceProperties.determinePassword())
+                .build());
+    }
+}
@@ -0,0 +1,286 @@
+package au.com.ibenta.test.persistence;
+
+import au.com.ibenta.limit.AdaptiveConcurrencyLimiter;
+import au.com.ibenta.pagination.KeysetPageable;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.r2dbc.core.DatabaseClient;
+import org.springframework.data.r2dbc.query.Criteria;
+import org.springframework.data.r2dbc.query.Update;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.StringJoiner;
+
+import static au.com.ibenta.limit.ConcurrencyLimitConfiguration.DATABASE_LIMITER;
+import static au.com.ibenta.offload.OffloadConfiguration.JDBC_SCHEDULER;
+import static au.com.ibenta.test.persistence.UserEntity.ID_ALLOCATION_SIZE;
+import static java.lang.String.format;
+import static org.springframework.data.r2dbc.query.Criteria.where;
+
+/**
+ * Reactive store for the {@code user} table. Uses {@link DatabaseClient} directly because Spring Data
+ * JPA claims every repository interface under the application package. Ids come from the same
+ * {@code hibernate_sequence} blocks as the JPA path so both can write to the table, and updates check and
+ * increment {@code version} the way JPA's {@code @Version} does. r2dbc-h2 runs the embedded H2 engine on
+ * whichever thread subscribes or requests, so every call is subscribed on the JDBC scheduler to keep it off
+ * the event loop.
+ *
+ * <p>Against embedded H2 this mode therefore blocks a thread per call just like the JPA path, and is no faster:
+ * r2dbc-h2 has no non-blocking I/O to offer. It is here to keep the service's persistence written against the
+ * R2DBC API, with its ids and versions compatible with JPA's, ready for a driver with a real network protocol
+ * such as r2dbc-postgresql, where the offload would be dropped.
+ */
+@Component
+@ConditionalOnProperty(prefix = "ibenta.persistence", name = "mode", havingValue = "r2dbc")
+public class R2dbcUserStore implements UserStore {
+
+    private static final String TABLE = "user";
+    private static final String ID = "id";
+    private static final String EMAIL = "email";
+    private static final String VERSION = "version";
+    private static final String NEXT_ID = "SELECT NEXT VALUE FOR hibernate_sequence";
+
+    private final DatabaseClient databaseClient;
+    private final AdaptiveConcurrencyLimiter limiter;
+    private final Scheduler scheduler;
+    private final Object idLock = new Object();
+    private long nextId;
+    private long idLimit;
+
+    public R2dbcUserStore(final DatabaseClient databaseClient,
+                          @Qualifier(DATABASE_LIMITER) final AdaptiveConcurrencyLimiter limiter,
+                          @Qualifier(JDBC_SCHEDULER) final Scheduler scheduler) {
+        this.databaseClient = databaseClient;
+        this.limiter = limiter;
+        this.scheduler = scheduler;
+    }
+
+    @Override
+    public Mono<UserEntity> findById(final Long id) {
+        return offload(databaseClient.select()
+                .from(UserEntity.class)
+                .matching(where(ID).is(id))
+                .fetch()
+                .one());
+    }
+
+    @Override
+    public Mono<UserEntity> findByEmail(final String email) {
+        return offload(databaseClient.select()
+                .from(UserEntity.class)
+                .matching(where(EMAIL).is(email))
+                .orderBy(Sort.by(ID))
+                .fetch()
+                .first());
+    }
+
+    @Override
+    public Flux<UserEntity> findAll(final Pageable pageable) {
+        return offload(databaseClient.select()
+                .from(UserEntity.class)
+                .orderBy(pageable.getSortOr(Sort.by(ID)))
+                .page(pageable)
+                .fetch()
+                .all());
+    }
+
+    @Override
+    public Flux<UserEntity> findAll(final KeysetPageable pageable) {
+        final var select = databaseClient.select().from(UserEntity.class);
+        final var page = PageRequest.of(0, pageable.getQueryLimit(), pageable.getQuerySort());
+
+        return offload((pageable.getCursor() == null ? select : select.matching(after(pageable)))
+                .page(page)
+                .fetch()
+                .all());
+    }
+
+    /**
+     * R2DBC streams rows with backpressure on its own; this SPI version has no fetch size to pass on.
+     */
+    @Override
+    public Flux<UserEntity> streamAll(final int fetchSize) {
+        return databaseClient.execute(UserRowCursor.SELECT)
+                .map((row, metadata) -> {
+                    final var entity = new UserEntity();
+                    entity.setId(row.get("id", Long.class));
+                    entity.setFirstName(row.get("first_name", String.class));
+                    entity.setLastName(row.get("last_name", String.class));
+                    entity.setEmail(row.get(EMAIL, String.class));
+                    entity.setVersion(row.get(VERSION, Long.class));
+                    entity.setUpdatedAt(row.get("updated_at", LocalDateTime.class));
+                    return entity;
+                })
+                .all()
+                .subscribeOn(scheduler);
+    }
+
+    @Override
+    public Mono<UserEntity> save(final UserEntity user) {
+        if (user.getId() == null) {
+            return offload(nextId()
+                    .flatMap(id -> {
+                        user.setId(id);
+                        user.setVersion(0L);
+                        user.setUpdatedAt(LocalDateTime.now(ZoneOffset.UTC));
+                        return databaseClient.insert()
+                                .into(UserEntity.class)
+                                .using(user)
+                                .then();
+                    })
+                    .thenReturn(user));
+        }
+
+        final var version = user.getVersion();
+        final var updatedAt = LocalDateTime.now(ZoneOffset.UTC);
+        return offload(databaseClient.update()
+                .table(TABLE)
+                .using(Update.update("first_name", user.getFirstName())
+                        .set("last_name", user.getLastName())
+                        .set(EMAIL, user.getEmail())
+                        .set("password", user.getPassword())
+                        .set(VERSION, version + 1)
+                        .set("updated_at", updatedAt))
+                .matching(where(ID).is(user.getId()).and(VERSION).is(version))
+                .fetch()
+                .rowsUpdated()
+                .flatMap(rows -> {
+                    if (rows == 0) {
+                        return Mono.error(new OptimisticLockingFailureException(
+                                format("user %s was changed or deleted since version %s was read", user.getId(), version)));
+                    }
+                    user.setVersion(version + 1);
+                    user.setUpdatedAt(updatedAt);
+                    return Mono.just(user);
+                }));
+    }
+
+    @Override
+    public Mono<UserEntity> patch(final UserEntity changes) {
+        final var version = changes.getVersion();
+        final var updatedAt = LocalDateTime.now(ZoneOffset.UTC);
+        if (version == null) {
+            return patchAnyVersion(changes, updatedAt);
+        }
+        var update = Update.update(VERSION, version + 1).set("updated_at", updatedAt);
+        update = set(update, "first_name", changes.getFirstName());
+        update = set(update, "last_name", changes.getLastName());
+        update = set(update, EMAIL, changes.getEmail());
+        update = set(update, "password", changes.getPassword());
+
+        return offload(databaseClient.update()
+                .table(TABLE)
+                .using(update)
+                .matching(where(ID).is(changes.getId()).and(VERSION).is(version))
+                .fetch()
+                .rowsUpdated()
+                .filter(rows -> rows > 0)
+                .map(rows -> {
+                    changes.setVersion(version + 1);
+                    changes.setUpdatedAt(updatedAt);
+                    return changes;
+                }));
+    }
+
+    /**
+     * {@link Update} only binds values, so the increment of {@code version} is written out in SQL.
+     */
+    private Mono<UserEntity> patchAnyVersion(final UserEntity changes, final LocalDateTime updatedAt) {
+        final var columns = new LinkedHashMap<String, Object>();
+        put(columns, "first_name", changes.getFirstName());
+        put(columns, "last_name", changes.getLastName());
+        put(columns, EMAIL, changes.getEmail());
+        put(columns, "password", changes.getPassword());
+        columns.put("updated_at", updatedAt);
+
+        final var sql = new StringJoiner(", ", "UPDATE " + TABLE + " SET ", ", version = version + 1 WHERE id = :id");
+        columns.keySet().forEach(column -> sql.add(column + " = :" + column));
+        var update = databaseClient.execute(sql.toString()).bind(ID, changes.getId());
+        for (final var column : columns.entrySet()) {
+            update = update.bind(column.getKey(), column.getValue());
+        }
+
+        return offload(update.fetch().rowsUpdated())
+                .filter(rows -> rows > 0)
+                .flatMap(rows -> findById(changes.getId()));
+    }
+
+    @Override
+    public Mono<Void> deleteById(final Long id) {
+        return offload(databaseClient.delete()
+                .from(UserEntity.class)
+                .matching(where(ID).is(id))
+                .then());
+    }
+
+    /**
+     * Hands out the current pooled-lo block, fetching a new one once it is used up. Concurrent fetches each
+     * reserve a block, the last one to complete is kept.
+     */
+    private Mono<Long> nextId() {
+        synchronized (idLock) {
+            if (nextId < idLimit) {
+                return Mono.just(nextId++);
+            }
+        }
+
+        return databaseClient.execute(NEXT_ID)
+                .map(row -> row.get(0, Long.class))
+                .one()
+                .map(lo -> {
+                    synchronized (idLock) {
+                        nextId = lo + 1;
+                        idLimit = lo + ID_ALLOCATION_SIZE;
+                    }
+                    return lo;
+                });
+    }
+
+    private <T> Mono<T> offload(final Mono<T> call) {
+        return limiter.limit(call.subscribeOn(scheduler));
+    }
+
+    private <T> Flux<T> offload(final Flux<T> call) {
+        return limiter.limit(call.subscribeOn(scheduler));
+    }
+
+    private static Update set(final Update update, final String column, final String value) {
+        return value == null ? update : update.set(column, value);
+    }
+
+    private static void put(final Map<String, Object> columns, final String column, final String value) {
+        if (value != null) {
+            columns.put(column, value);
+        }
+    }
+
+    /**
+     * {@code property > value OR (property = value AND id > lastId)}, relying on AND binding tighter than OR.
+     */
+    private static Criteria after(final KeysetPageable pageable) {
+        final var ascending = pageable.getQueryDirection().isAscending();
+        final var cursor = pageable.getCursor();
+
+        if (ID.equals(pageable.getProperty())) {
+            return ascending ? where(ID).greaterThan(cursor.getId()) : where(ID).lessThan(cursor.getId());
+        }
+
+        final var column = pageable.getProperty();
+        final var value = cursor.getValue();
+        final var sameValue = (ascending ? where(column).greaterThan(value) : where(column).lessThan(value))
+                .or(column).is(value)
+                .and(ID);
+        return ascending ? sameValue.greaterThan(cursor.getId()) : sameValue.lessThan(cursor.getId());
+    }
+}
@@ -3,14 +3,25 @@ package au.com.ibenta.test.persistence;
 import lombok.Data;
 
 import javax.persistence.*;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
 
 @Data
 @Entity
 @Table(name = "user")
+@org.springframework.data.relational.core.mapping.Table("user")
 public class UserEntity {
 
+    /**
+     * Ids reserved per {@code hibernate_sequence} call, matching the sequence increment. The sequence value is
+     * the lowest id of the block (Hibernate's {@code pooled-lo} optimizer).
+     */
+    public static final int ID_ALLOCATION_SIZE = 50;
+
     @Id
-    @GeneratedValue
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "user_id")
+    @SequenceGenerator(name = "user_id", sequenceName = "hibernate_sequence", allocationSize = ID_ALLOCATION_SIZE)
+    @org.springframework.data.annotation.Id
     private Long id;
 
     @Column(nullable = false, name = "first_name")
@@ -24,4 +35,20 @@ public class UserEntity {
 
     @Column(nullable = false)
     private String password;
+
+    @Version
+    @Column(nullable = false)
+    private Long version;
+
+    /**
+     * UTC, as H2 has no {@code Instant} mapping on the R2DBC path.
+     */
+    @Column(nullable = false, name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    @PrePersist
+    @PreUpdate
+    public void touch() {
+        updatedAt = LocalDateTime.now(ZoneOffset.UTC);
+    }
 }
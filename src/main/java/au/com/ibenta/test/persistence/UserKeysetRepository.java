@@ -0,0 +1,10 @@
+package au.com.ibenta.test.persistence;
+
+import au.com.ibenta.pagination.KeysetPageable;
+
+import java.util.List;
+
+public interface UserKeysetRepository {
+
+    List<UserEntity> findAll(KeysetPageable pageable);
+}
@@ -0,0 +1,53 @@
+package au.com.ibenta.test.persistence;
+
+import au.com.ibenta.pagination.KeysetPageable;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.Expression;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+import java.util.List;
+
+import static au.com.ibenta.pagination.KeysetPageable.ID;
+import static org.springframework.data.jpa.repository.query.QueryUtils.toOrders;
+
+public class UserKeysetRepositoryImpl implements UserKeysetRepository {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<UserEntity> findAll(final KeysetPageable pageable) {
+        final var builder = entityManager.getCriteriaBuilder();
+        final var query = builder.createQuery(UserEntity.class);
+        final var root = query.from(UserEntity.class);
+
+        if (pageable.getCursor() != null) {
+            query.where(after(builder, root, pageable));
+        }
+        query.orderBy(toOrders(pageable.getQuerySort(), root, builder));
+
+        return entityManager.createQuery(query)
+                .setMaxResults(pageable.getQueryLimit())
+                .getResultList();
+    }
+
+    private static Predicate after(final CriteriaBuilder builder, final Root<UserEntity> root, final KeysetPageable pageable) {
+        final var ascending = pageable.getQueryDirection().isAscending();
+        final var cursor = pageable.getCursor();
+        final Expression<Long> id = root.get(ID);
+        final var idAfter = ascending ? builder.greaterThan(id, cursor.getId()) : builder.lessThan(id, cursor.getId());
+
+        if (ID.equals(pageable.getProperty())) {
+            return idAfter;
+        }
+
+        final Expression<String> property = root.get(pageable.getProperty());
+        final var value = cursor.getValue();
+        return builder.or(
+                ascending ? builder.greaterThan(property, value) : builder.lessThan(property, value),
+                builder.and(builder.equal(property, value), idAfter));
+    }
+}
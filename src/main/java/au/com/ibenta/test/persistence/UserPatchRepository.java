@@ -0,0 +1,11 @@
+package au.com.ibenta.test.persistence;
+
+public interface UserPatchRepository {
+
+    /**
+     * Sets the non-null columns of {@code changes} in one {@code UPDATE}, provided the row is still at
+     * {@code changes.version}, or at any version when that is null, and moves it to the next version. The number of
+     * rows updated, 0 when the user is gone or was changed meanwhile.
+     */
+    int patch(UserEntity changes);
+}
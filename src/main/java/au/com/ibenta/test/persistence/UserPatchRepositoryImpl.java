@@ -0,0 +1,52 @@
+package au.com.ibenta.test.persistence;
+
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.StringJoiner;
+
+public class UserPatchRepositoryImpl implements UserPatchRepository {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    /**
+     * Built as JPQL with named parameters: a criteria update inlines numeric literals, which would make every id and
+     * version a statement of its own, and Hibernate cannot bind parameters in its {@code SET} clause.
+     */
+    @Override
+    @Transactional
+    public int patch(final UserEntity changes) {
+        final var values = new LinkedHashMap<String, Object>();
+        put(values, "firstName", changes.getFirstName());
+        put(values, "lastName", changes.getLastName());
+        put(values, "email", changes.getEmail());
+        put(values, "password", changes.getPassword());
+
+        final var guarded = changes.getVersion() != null;
+        final var assignments = new StringJoiner(", ", "update UserEntity u set ",
+                guarded ? " where u.id = :id and u.version = :expectedVersion" : " where u.id = :id");
+        values.keySet().forEach(property -> assignments.add("u." + property + " = :" + property));
+        assignments.add(guarded ? "u.version = :version" : "u.version = u.version + 1");
+        assignments.add("u.updatedAt = :updatedAt");
+
+        final var query = entityManager.createQuery(assignments.toString())
+                .setParameter("id", changes.getId())
+                .setParameter("updatedAt", changes.getUpdatedAt());
+        if (guarded) {
+            query.setParameter("version", changes.getVersion() + 1)
+                    .setParameter("expectedVersion", changes.getVersion());
+        }
+        values.forEach(query::setParameter);
+        return query.executeUpdate();
+    }
+
+    private static void put(final Map<String, Object> values, final String property, final String value) {
+        if (value != null) {
+            values.put(property, value);
+        }
+    }
+}
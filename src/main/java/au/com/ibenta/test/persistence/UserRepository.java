@@ -1,6 +1,17 @@
 package au.com.ibenta.test.persistence;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 
-public interface UserRepository extends JpaRepository<UserEntity, Long> {
+import java.util.List;
+import java.util.Optional;
+
+public interface UserRepository extends JpaRepository<UserEntity, Long>, UserKeysetRepository, UserPatchRepository {
+
+    Optional<UserEntity> findFirstByEmailOrderByIdAsc(String email);
+
+    /**
+     * Users by id after {@code id}, as many as the page size, without the count query of a {@code Page}.
+     */
+    List<UserEntity> findByIdGreaterThanOrderByIdAsc(Long id, Pageable pageable);
 }
@@ -0,0 +1,66 @@
+package au.com.ibenta.test.persistence;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+
+/**
+ * A forward-only, read-only JDBC cursor over the {@code user} table without its password, for reads too large to
+ * hold at once. Auto-commit is turned off for the query, as some drivers, PostgreSQL's among them, only honour the
+ * fetch size inside a transaction; embedded H2 ignores it and keeps large results in a temporary file instead.
+ */
+class UserRowCursor implements AutoCloseable {
+
+    static final String SELECT = "SELECT id, first_name, last_name, email, version, updated_at FROM user ORDER BY id";
+
+    private final Connection connection;
+    private final PreparedStatement statement;
+    private final ResultSet rows;
+
+    UserRowCursor(final DataSource dataSource, final int fetchSize) throws SQLException {
+        this.connection = dataSource.getConnection();
+        try {
+            connection.setReadOnly(true);
+            connection.setAutoCommit(false);
+            this.statement = connection.prepareStatement(SELECT, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            statement.setFetchSize(fetchSize);
+            this.rows = statement.executeQuery();
+        } catch (final SQLException | RuntimeException e) {
+            connection.close();
+            throw e;
+        }
+    }
+
+    /**
+     * The next user, or {@code null} after the last one.
+     */
+    UserEntity next() throws SQLException {
+        if (!rows.next()) {
+            return null;
+        }
+
+        final var entity = new UserEntity();
+        entity.setId(rows.getLong(1));
+        entity.setFirstName(rows.getString(2));
+        entity.setLastName(rows.getString(3));
+        entity.setEmail(rows.getString(4));
+        entity.setVersion(rows.getLong(5));
+        final Timestamp updatedAt = rows.getTimestamp(6);
+        entity.setUpdatedAt(updatedAt == null ? null : updatedAt.toLocalDateTime());
+        return entity;
+    }
+
+    /**
+     * Ends the read-only transaction and hands the connection back to the pool, which restores its auto-commit and
+     * read-only flags.
+     */
+    @Override
+    public void close() throws SQLException {
+        try (connection; statement; rows) {
+            connection.rollback();
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package au.com.ibenta.test.persistence;
+
+import au.com.ibenta.pagination.KeysetPageable;
+import org.springframework.data.domain.Pageable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Reactive access to the {@code user} table, backed either by JPA or by R2DBC depending on
+ * {@code ibenta.persistence.mode}.
+ */
+public interface UserStore {
+
+    Mono<UserEntity> findById(Long id);
+
+    /**
+     * The oldest user registered with the email.
+     */
+    Mono<UserEntity> findByEmail(String email);
+
+    Flux<UserEntity> findAll(Pageable pageable);
+
+    /**
+     * Rows following the cursor in {@link KeysetPageable#getQuerySort()} order, at most
+     * {@link KeysetPageable#getQueryLimit()} of them.
+     */
+    Flux<UserEntity> findAll(KeysetPageable pageable);
+
+    /**
+     * Every user in id order, read from one query as the subscriber requests them rather than loaded up front, with
+     * {@code fetchSize} rows per round trip where the driver supports it. The password is never read.
+     */
+    Flux<UserEntity> streamAll(int fetchSize);
+
+    Mono<UserEntity> save(UserEntity user);
+
+    /**
+     * Writes only the non-null properties of {@code changes} in a single statement, provided the user is still at
+     * {@code changes.version}. Emits {@code changes} moved to the next version and with its new {@code updatedAt},
+     * or nothing when the user is gone or was changed meanwhile. Without a {@code version} the user is written at
+     * whatever version it is, moved to the next one, and read back to be emitted whole.
+     */
+    Mono<UserEntity> patch(UserEntity changes);
+
+    Mono<Void> deleteById(Long id);
+}
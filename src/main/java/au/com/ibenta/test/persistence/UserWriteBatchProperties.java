@@ -0,0 +1,11 @@
+package au.com.ibenta.test.persistence;
+
+import au.com.ibenta.batch.MicroBatchProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Batching of user saves on the JPA path, off unless {@code enabled}.
+ */
+@ConfigurationProperties(prefix = "ibenta.persistence.write-batching")
+public class UserWriteBatchProperties extends MicroBatchProperties {
+}
@@ -0,0 +1,11 @@
+package au.com.ibenta.test.service;
+
+import au.com.ibenta.problem.StaticThrowableProblem;
+import org.zalando.problem.Status;
+
+public class EmailTakenException extends StaticThrowableProblem {
+
+    EmailTakenException() {
+        super(null, Status.CONFLICT.getReasonPhrase(), Status.CONFLICT, "email is already registered");
+    }
+}
@@ -0,0 +1,12 @@
+package au.com.ibenta.test.service;
+
+import au.com.ibenta.problem.StaticThrowableProblem;
+import org.zalando.problem.Status;
+
+public class ExportLimitExceededException extends StaticThrowableProblem {
+
+    ExportLimitExceededException() {
+        super(null, Status.SERVICE_UNAVAILABLE.getReasonPhrase(), Status.SERVICE_UNAVAILABLE,
+                "too many concurrent exports, retry later");
+    }
+}
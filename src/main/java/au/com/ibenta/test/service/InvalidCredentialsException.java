@@ -0,0 +1,11 @@
+package au.com.ibenta.test.service;
+
+import au.com.ibenta.problem.StaticThrowableProblem;
+import org.zalando.problem.Status;
+
+public class InvalidCredentialsException extends StaticThrowableProblem {
+
+    InvalidCredentialsException() {
+        super(null, Status.UNAUTHORIZED.getReasonPhrase(), Status.UNAUTHORIZED, "invalid email or password");
+    }
+}
@@ -0,0 +1,82 @@
+package au.com.ibenta.test.service;
+
+import au.com.ibenta.test.model.User;
+import au.com.ibenta.test.persistence.UserStore;
+import com.github.benmanes.caffeine.cache.AsyncLoadingCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.util.Optional;
+
+/**
+ * Read-through cache of users by id in front of the {@link UserStore}. Concurrent misses for the same id share one
+ * load, unknown ids are cached as empty for {@code negative-ttl}. Writers must {@link #invalidate(Long)} once their
+ * change is committed, which also discards a load still in flight.
+ */
+@Component
+@EnableConfigurationProperties(UserCacheProperties.class)
+public class UserCache implements MeterBinder {
+
+    private static final String NAME = "users";
+
+    private final AsyncLoadingCache<Long, Optional<User>> cache;
+
+    public UserCache(final UserStore store, final UserCacheProperties properties) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(properties.getMaximumSize())
+                .expireAfter(new UserExpiry(properties.getTtl().toNanos(), properties.getNegativeTtl().toNanos()))
+                .recordStats()
+                .buildAsync((id, executor) -> store.findById(id)
+                        .map(UserService::toUser)
+                        .map(Optional::of)
+                        .defaultIfEmpty(Optional.empty())
+                        .toFuture());
+    }
+
+    public Mono<User> get(final Long id) {
+        return Mono.fromFuture(cache.get(id)).flatMap(Mono::justOrEmpty);
+    }
+
+    public void invalidate(final Long id) {
+        cache.synchronous().invalidate(id);
+    }
+
+    @Override
+    public void bindTo(@NonNull final MeterRegistry registry) {
+        new CaffeineCacheMetrics(cache.synchronous(), NAME, Tags.empty()).bindTo(registry);
+    }
+
+    private static final class UserExpiry implements Expiry<Long, Optional<User>> {
+
+        private final long ttl;
+        private final long negativeTtl;
+
+        private UserExpiry(final long ttl, final long negativeTtl) {
+            this.ttl = ttl;
+            this.negativeTtl = negativeTtl;
+        }
+
+        @Override
+        public long expireAfterCreate(@NonNull final Long id, @NonNull final Optional<User> user, final long currentTime) {
+            return user.isPresent() ? ttl : negativeTtl;
+        }
+
+        @Override
+        public long expireAfterUpdate(@NonNull final Long id, @NonNull final Optional<User> user, final long currentTime, final long currentDuration) {
+            return expireAfterCreate(id, user, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(@NonNull final Long id, @NonNull final Optional<User> user, final long currentTime, final long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package au.com.ibenta.test.service;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "ibenta.user-cache")
+public class UserCacheProperties {
+
+    /**
+     * Users kept in memory, least recently used ones are evicted first.
+     */
+    private long maximumSize = 10_000;
+
+    /**
+     * How long a loaded user is served from memory.
+     */
+    private Duration ttl = Duration.ofMinutes(5);
+
+    /**
+     * How long an unknown id is remembered as missing.
+     */
+    private Duration negativeTtl = Duration.ofSeconds(30);
+}
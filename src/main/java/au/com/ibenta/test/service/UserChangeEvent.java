@@ -0,0 +1,21 @@
+package au.com.ibenta.test.service;
+
+import au.com.ibenta.test.model.User;
+import lombok.Value;
+
+@Value
+public class UserChangeEvent {
+
+    public enum Type {
+        CREATED, UPDATED, DELETED,
+        /**
+         * Changes after the subscriber's {@code Last-Event-ID} are no longer held, it should reload the users it keeps.
+         * The events after it follow on from its id, and it has no user.
+         */
+        RESET
+    }
+
+    private long id;
+    private Type type;
+    private User user;
+}
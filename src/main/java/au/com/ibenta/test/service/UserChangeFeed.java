@@ -0,0 +1,161 @@
+package au.com.ibenta.test.service;
+
+import au.com.ibenta.test.model.User;
+import au.com.ibenta.tracing.RequestTrace;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposables;
+import reactor.core.publisher.DirectProcessor;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.UnicastProcessor;
+import reactor.util.context.Context;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static java.lang.Math.max;
+
+/**
+ * Fans committed user changes out to Server-Sent Event subscribers.
+ *
+ * <p>The last {@code replaySize} changes are kept in a ring buffer for {@code Last-Event-ID} replay, emitted as the
+ * subscriber asks for them. A subscriber whose id is no longer held, or was never issued by this instance, first gets
+ * a {@link UserChangeEvent.Type#RESET} event rather than a silent gap. Live changes go through a bounded buffer per
+ * subscriber; when it overflows the subscriber is detached from the feed and its stream ends with an overflow error
+ * once the buffered changes are written, so one slow consumer never holds back the others. Only appending to the ring
+ * takes its lock, changes are handed to subscribers outside it in id order. A subscriber's buffer only allocates the
+ * changes it holds, so idle subscribers cost little more than their slot in the processor. Heartbeats share one timer,
+ * and each subscriber drops the ticks it is not ready for, so a stalled connection never stops them for the others.
+ */
+@Slf4j
+@Component
+@EnableConfigurationProperties(UserChangeFeedProperties.class)
+public class UserChangeFeed {
+
+    private final UserChangeFeedProperties properties;
+    private final UserChangeEvent[] ring;
+    private final DirectProcessor<UserChangeEvent> processor = DirectProcessor.create();
+    private final Flux<ServerSentEvent<UserChangeEvent>> heartbeats;
+    private final AtomicInteger subscribers = new AtomicInteger();
+    private final Queue<UserChangeEvent> undelivered = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger delivering = new AtomicInteger();
+    private final Counter published;
+    private final Counter evicted;
+
+    private long nextId = 1;
+
+    public UserChangeFeed(final UserChangeFeedProperties properties, final MeterRegistry registry) {
+        this.properties = properties;
+        this.ring = new UserChangeEvent[properties.getReplaySize()];
+        this.heartbeats = Flux.interval(properties.getHeartbeat())
+                .map(tick -> ServerSentEvent.<UserChangeEvent>builder().comment("heartbeat").build())
+                .share();
+        this.published = registry.counter("user.feed.published");
+        this.evicted = registry.counter("user.feed.evicted");
+        registry.gauge("user.feed.subscribers", subscribers);
+    }
+
+    public void publish(final UserChangeEvent.Type type, final User user) {
+        synchronized (ring) {
+            final var event = new UserChangeEvent(nextId++, type, user);
+            ring[(int) (event.getId() % ring.length)] = event;
+            undelivered.offer(event);
+        }
+        published.increment();
+        deliver();
+    }
+
+    /**
+     * Id of the latest change published, which a subscriber can resume after with {@link #changes(Long)}.
+     */
+    public long lastEventId() {
+        synchronized (ring) {
+            return nextId - 1;
+        }
+    }
+
+    /**
+     * Changes after {@code lastEventId} still held in the ring buffer, followed by live changes. Without a
+     * {@code lastEventId} only live changes are emitted. Live changes are subscribed to before the ring is read, and
+     * those it already held are dropped, so the two meet without a gap or a repeat.
+     */
+    public Flux<UserChangeEvent> changes(final Long lastEventId) {
+        return Flux.deferWithContext(context -> {
+            final var subscription = Disposables.swap();
+            final var live = UnicastProcessor.<UserChangeEvent>create(
+                    new LinkedBlockingQueue<>(properties.getSubscriberBuffer()), event -> evict(context, event), subscription);
+            subscription.update(processor.subscribe(live::onNext));
+
+            final List<UserChangeEvent> missed;
+            final long held;
+            synchronized (ring) {
+                missed = lastEventId == null ? List.of() : replay(lastEventId);
+                held = nextId - 1;
+            }
+            return Flux.fromIterable(missed)
+                    .concatWith(live.filter(event -> event.getId() > held))
+                    .doFinally(signal -> subscription.dispose());
+        });
+    }
+
+    public Flux<ServerSentEvent<UserChangeEvent>> stream(final Long lastEventId) {
+        final var events = changes(lastEventId)
+                .map(event -> ServerSentEvent.builder(event)
+                        .id(Long.toString(event.getId()))
+                        .event(event.getType().name().toLowerCase())
+                        .build());
+
+        return Flux.merge(events, heartbeats.onBackpressureDrop())
+                .doOnSubscribe(subscription -> subscribers.incrementAndGet())
+                .doFinally(signal -> subscribers.decrementAndGet());
+    }
+
+    private List<UserChangeEvent> replay(final long lastEventId) {
+        final var oldest = max(1, nextId - ring.length);
+        final var reset = lastEventId + 1 < oldest || lastEventId >= nextId;
+        final var from = reset ? oldest : lastEventId + 1;
+        final var events = new ArrayList<UserChangeEvent>((int) (nextId - from) + 1);
+        if (reset) {
+            events.add(new UserChangeEvent(oldest - 1, UserChangeEvent.Type.RESET, null));
+        }
+        for (long id = from; id < nextId; id++) {
+            events.add(ring[(int) (id % ring.length)]);
+        }
+        return events;
+    }
+
+    /**
+     * Hands the appended changes to the processor in id order. Whichever publisher finds no delivery in progress
+     * delivers them all, including those appended by others meanwhile, so the processor is never called concurrently.
+     */
+    private void deliver() {
+        if (delivering.getAndIncrement() != 0) {
+            return;
+        }
+        var missed = 1;
+        do {
+            UserChangeEvent event;
+            while ((event = undelivered.poll()) != null) {
+                processor.onNext(event);
+            }
+            missed = delivering.addAndGet(-missed);
+        } while (missed != 0);
+    }
+
+    /**
+     * Runs on the publishing thread, logged with the trace of the evicted subscriber's request.
+     */
+    private void evict(final Context context, final UserChangeEvent event) {
+        evicted.increment();
+        RequestTrace.log(context, () -> log.warn("Evicting user change subscriber that fell {} events behind at event {}",
+                properties.getSubscriberBuffer(), event.getId()));
+    }
+}
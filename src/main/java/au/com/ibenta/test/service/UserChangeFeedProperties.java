@@ -0,0 +1,26 @@
+package au.com.ibenta.test.service;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "ibenta.feed")
+public class UserChangeFeedProperties {
+
+    /**
+     * Most recent changes kept in memory for {@code Last-Event-ID} replay.
+     */
+    private int replaySize = 1024;
+
+    /**
+     * Changes a subscriber may fall behind by before it is evicted.
+     */
+    private int subscriberBuffer = 256;
+
+    /**
+     * Interval of the comment lines that keep idle connections open.
+     */
+    private Duration heartbeat = Duration.ofSeconds(15);
+}
@@ -0,0 +1,191 @@
+package au.com.ibenta.test.service;
+
+import au.com.ibenta.pagination.KeysetPageable;
+import au.com.ibenta.test.model.Credentials;
+import au.com.ibenta.test.model.User;
+import au.com.ibenta.test.model.UserImportResult;
+import au.com.ibenta.test.model.UserPatch;
+import io.swagger.annotations.Api;
+import org.springframework.data.domain.Pageable;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PatchMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import javax.validation.Valid;
+import java.util.List;
+
+import static au.com.ibenta.config.WebConfiguration.APPLICATION_MERGE_PATCH_JSON_VALUE;
+import static au.com.ibenta.config.WebConfiguration.APPLICATION_NDJSON_VALUE;
+import static au.com.ibenta.pagination.KeysetPageable.AFTER;
+import static au.com.ibenta.pagination.KeysetPageable.BEFORE;
+import static org.springframework.http.HttpHeaders.ACCEPT;
+import static org.springframework.http.HttpHeaders.IF_MATCH;
+import static org.springframework.http.HttpStatus.CREATED;
+import static org.springframework.http.HttpStatus.NO_CONTENT;
+import static org.springframework.http.MediaType.TEXT_EVENT_STREAM_VALUE;
+
+@Api(tags = "user")
+@RestController
+@RequestMapping("/users")
+public class UserController {
+
+    private static final String LAST_EVENT_ID = "Last-Event-ID";
+    private static final String TOTAL_COUNT = "X-Total-Count";
+    private static final String TEXT_CSV_VALUE = "text/csv";
+
+    private final UserService userService;
+    private final UserImportService userImportService;
+    private final UserChangeFeed feed;
+    private final UserSearchIndex searchIndex;
+    private final UserExporter userExporter;
+
+    public UserController(final UserService userService, final UserImportService userImportService, final UserChangeFeed feed,
+                          final UserSearchIndex searchIndex, final UserExporter userExporter) {
+        this.userService = userService;
+        this.userImportService = userImportService;
+        this.feed = feed;
+        this.searchIndex = searchIndex;
+        this.userExporter = userExporter;
+    }
+
+    @PostMapping
+    @ResponseStatus(CREATED)
+    Mono<User> create(@Valid @RequestBody final User user) {
+        return userService.create(user);
+    }
+
+    @PostMapping(path = "/import", consumes = APPLICATION_NDJSON_VALUE, produces = APPLICATION_NDJSON_VALUE)
+    Flux<UserImportResult> importUsers(@RequestBody final Flux<String> lines) {
+        return userImportService.importUsers(lines);
+    }
+
+    @PostMapping("/authenticate")
+    Mono<User> authenticate(@Valid @RequestBody final Credentials credentials) {
+        return userService.authenticate(credentials);
+    }
+
+    @GetMapping("/{id}")
+    Mono<ResponseEntity<User>> get(@PathVariable("id") final Long id, final ServerHttpRequest request) {
+        return userService.get(id).map(user -> tagged(user, request));
+    }
+
+    @PutMapping("/{id}")
+    Mono<ResponseEntity<User>> update(@PathVariable("id") final Long id,
+                                      @RequestHeader(name = IF_MATCH, required = false) final String ifMatch,
+                                      @Valid @RequestBody final User user,
+                                      final ServerHttpRequest request) {
+        return userService.update(id, user, ifMatch).map(updated -> tagged(updated, request));
+    }
+
+    /**
+     * Changes the properties present in a JSON merge patch and leaves the others, see {@link UserService#patch}.
+     */
+    @PatchMapping(path = "/{id}", consumes = APPLICATION_MERGE_PATCH_JSON_VALUE)
+    Mono<ResponseEntity<User>> patch(@PathVariable("id") final Long id,
+                                     @RequestHeader(name = IF_MATCH, required = false) final String ifMatch,
+                                     @Valid @RequestBody final UserPatch patch,
+                                     final ServerHttpRequest request) {
+        return userService.patch(id, patch, ifMatch).map(patched -> tagged(patched, request));
+    }
+
+    @DeleteMapping("/{id}")
+    @ResponseStatus(NO_CONTENT)
+    Mono<Void> delete(@PathVariable("id") final Long id) {
+        return userService.delete(id);
+    }
+
+    @GetMapping
+    Mono<ResponseEntity<List<User>>> list(final Pageable pageable) {
+        return userService.list(pageable)
+                .collectList()
+                .map(users -> tagged(ResponseEntity.ok(), users).body(users));
+    }
+
+    @GetMapping(params = AFTER)
+    Mono<ResponseEntity<List<User>>> listAfter(final KeysetPageable pageable, final ServerHttpRequest request) {
+        return listKeyset(pageable, request);
+    }
+
+    @GetMapping(params = BEFORE)
+    Mono<ResponseEntity<List<User>>> listBefore(final KeysetPageable pageable, final ServerHttpRequest request) {
+        return listKeyset(pageable, request);
+    }
+
+    /**
+     * Users whose first name, last name or email contain every word of {@code q}, best matches first. Words of two
+     * characters match the start of a word only, single characters are ignored.
+     */
+    @GetMapping("/search")
+    Mono<ResponseEntity<List<User>>> search(@RequestParam("q") final String query, final Pageable pageable) {
+        return searchIndex.search(query, pageable)
+                .map(page -> ResponseEntity.ok()
+                        .header(TOTAL_COUNT, String.valueOf(page.getTotalElements()))
+                        .body(page.getContent()));
+    }
+
+    /**
+     * Every user, one JSON object per line, streamed as the client reads it.
+     */
+    @GetMapping(path = "/export", produces = APPLICATION_NDJSON_VALUE)
+    Mono<Void> exportNdjson(final ServerHttpResponse response) {
+        return export(UserExporter.Format.NDJSON, response);
+    }
+
+    /**
+     * Every user, one CSV record per line after a header, streamed as the client reads it.
+     */
+    @GetMapping(path = "/export", produces = TEXT_CSV_VALUE)
+    Mono<Void> exportCsv(final ServerHttpResponse response) {
+        return export(UserExporter.Format.CSV, response);
+    }
+
+    @GetMapping(path = "/events", produces = TEXT_EVENT_STREAM_VALUE)
+    Flux<ServerSentEvent<UserChangeEvent>> events(@RequestHeader(name = LAST_EVENT_ID, required = false) final Long lastEventId) {
+        return feed.stream(lastEventId);
+    }
+
+    private Mono<Void> export(final UserExporter.Format format, final ServerHttpResponse response) {
+        response.getHeaders().setContentType(format.getMediaType());
+        return response.writeWith(userExporter.export(format, response.bufferFactory()));
+    }
+
+    private Mono<ResponseEntity<List<User>>> listKeyset(final KeysetPageable pageable, final ServerHttpRequest request) {
+        return userService.list(pageable)
+                .map(page -> tagged(ResponseEntity.ok().headers(page.headers(request)), page.getContent()).body(page.getContent()));
+    }
+
+    /**
+     * Validators for conditional GETs, answered with a 304 and no body by the {@code ResponseEntity} result handler.
+     * The tag depends on the format the user is rendered in, which caches have to key on too.
+     */
+    private static ResponseEntity<User> tagged(final User user, final ServerHttpRequest request) {
+        return ResponseEntity.ok()
+                .eTag(UserETags.of(user, UserETags.format(request.getHeaders().getAccept())))
+                .lastModified(user.getUpdatedAt())
+                .varyBy(ACCEPT)
+                .body(user);
+    }
+
+    /**
+     * Pages only get a weak tag, no {@code Last-Modified}: deleting a user or shifting an older one onto the page
+     * changes it without moving the newest {@code updatedAt} forward.
+     */
+    private static ResponseEntity.BodyBuilder tagged(final ResponseEntity.BodyBuilder builder, final List<User> users) {
+        return builder.eTag(UserETags.of(users)).varyBy(ACCEPT);
+    }
+}
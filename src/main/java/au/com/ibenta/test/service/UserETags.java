@@ -0,0 +1,93 @@
+package au.com.ibenta.test.service;
+
+import au.com.ibenta.test.model.User;
+import org.springframework.http.MediaType;
+import org.springframework.util.StringUtils;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+
+import static au.com.ibenta.config.WebConfiguration.APPLICATION_SMILE;
+import static org.springframework.http.MediaType.APPLICATION_CBOR;
+import static org.springframework.http.MediaType.APPLICATION_JSON;
+
+/**
+ * Entity tags for user representations. A single user is tagged with its {@code version}, which changes with every
+ * write, and the format it is rendered in, as JSON, Smile and CBOR bodies differ byte for byte, so the tag is strong.
+ * {@code If-Match} only compares the version, whichever format the tag came from. A list is tagged with a hash of the
+ * ids and versions it holds, which is only weak since two lists with the same users may still be rendered differently.
+ * Both are sent with {@code Vary: Accept}.
+ */
+final class UserETags {
+
+    private static final String ANY = "*";
+    private static final String WEAK_PREFIX = "W/";
+    private static final String FORMAT_SEPARATOR = "-";
+    private static final List<MediaType> FORMATS = List.of(APPLICATION_JSON, APPLICATION_SMILE, APPLICATION_CBOR);
+
+    private UserETags() {
+    }
+
+    static String of(final User user, final MediaType format) {
+        return quote(user.getVersion() + FORMAT_SEPARATOR + format.getSubtype());
+    }
+
+    /**
+     * The format a user is rendered in for an {@code Accept} header, JSON unless Smile or CBOR is preferred.
+     */
+    static MediaType format(final List<MediaType> accept) {
+        final var sorted = new ArrayList<>(accept);
+        MediaType.sortBySpecificityAndQuality(sorted);
+        for (final var acceptable : sorted) {
+            for (final var format : FORMATS) {
+                if (acceptable.includes(format)) {
+                    return format;
+                }
+            }
+        }
+        return APPLICATION_JSON;
+    }
+
+    static String of(final Collection<User> users) {
+        long hash = 1;
+        for (final var user : users) {
+            hash = 31 * hash + Objects.hashCode(user.getId());
+            hash = 31 * hash + Objects.hashCode(user.getVersion());
+        }
+        return WEAK_PREFIX + quote(Long.toHexString(hash) + "-" + users.size());
+    }
+
+    /**
+     * Strong comparison of an {@code If-Match} header against the current version, in any format or as a bare version
+     * tag as issued before formats were tagged; weak tags never match.
+     */
+    static boolean matches(final String ifMatch, final long version) {
+        final var current = quote(Long.toString(version));
+        final var currentPrefix = "\"" + version + FORMAT_SEPARATOR;
+        for (final var tag : StringUtils.commaDelimitedListToStringArray(ifMatch)) {
+            final var trimmed = tag.trim();
+            if (ANY.equals(trimmed) || current.equals(trimmed) || trimmed.startsWith(currentPrefix) && trimmed.endsWith("\"")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Whether an {@code If-Match} header holds {@code *}, which any current version matches.
+     */
+    static boolean matchesAny(final String ifMatch) {
+        for (final var tag : StringUtils.commaDelimitedListToStringArray(ifMatch)) {
+            if (ANY.equals(tag.trim())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String quote(final String value) {
+        return "\"" + value + "\"";
+    }
+}
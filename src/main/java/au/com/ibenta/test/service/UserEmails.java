@@ -0,0 +1,197 @@
+package au.com.ibenta.test.service;
+
+import au.com.ibenta.bloom.BloomFilter;
+import au.com.ibenta.test.persistence.UserEntity;
+import au.com.ibenta.test.persistence.UserRepository;
+import au.com.ibenta.test.persistence.UserStore;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.noop.NoopCounter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static au.com.ibenta.offload.OffloadConfiguration.JDBC_SCHEDULER;
+
+/**
+ * Tells whether an email is registered, answering most checks for new emails without a query: a {@link BloomFilter}
+ * of every registered email is built from {@link UserRepository} once the application is ready and follows the
+ * {@link UserChangeFeed} from then on. An email it has never seen is free, anything else is looked up by the unique
+ * index on {@code email}, as is every email while the filter loads. Emails of deleted users stay in the filter, so
+ * they cost a query until the next restart. Should it stop following the feed, every email is checked in the database
+ * again until it has resubscribed and reloaded the filter.
+ */
+@Slf4j
+@Component
+@EnableConfigurationProperties(UserEmailsProperties.class)
+public class UserEmails implements MeterBinder, DisposableBean {
+
+    public static final String CHECKS = "user.email.checks";
+
+    private static final Duration RESUME_FIRST_BACKOFF = Duration.ofMillis(100);
+    private static final Duration RESUME_MAX_BACKOFF = Duration.ofSeconds(10);
+
+    private final UserStore store;
+    private final UserRepository repository;
+    private final Scheduler scheduler;
+    private final UserChangeFeed feed;
+    private final UserEmailsProperties properties;
+    private final BloomFilter filter;
+
+    /**
+     * Incremented by each reload and each time the feed is lost, so only a reload nothing has superseded marks the
+     * filter loaded.
+     */
+    private final AtomicLong reloads = new AtomicLong();
+
+    private volatile boolean loaded;
+    private volatile long lastEventId;
+    private volatile Disposable changes;
+    private volatile Counter absent = new NoopCounter(null);
+    private volatile Counter taken = new NoopCounter(null);
+    private volatile Counter falsePositives = new NoopCounter(null);
+    private volatile Counter unfiltered = new NoopCounter(null);
+
+    public UserEmails(final UserStore store,
+                      final UserRepository repository,
+                      @Qualifier(JDBC_SCHEDULER) final Scheduler scheduler,
+                      final UserChangeFeed feed,
+                      final UserEmailsProperties properties) {
+        this.store = store;
+        this.repository = repository;
+        this.scheduler = scheduler;
+        this.feed = feed;
+        this.properties = properties;
+        this.filter = BloomFilter.create(properties.getExpectedInsertions(), properties.getFalsePositiveRate());
+    }
+
+    /**
+     * Follows the feed, then fills the filter from the database each time it subscribes, so changes it missed while
+     * unsubscribed are read back either way.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        lastEventId = feed.lastEventId();
+        changes = Flux.defer(() -> feed.changes(lastEventId))
+                .doOnSubscribe(subscription -> reload())
+                .doOnNext(this::apply)
+                .doOnError(error -> {
+                    reloads.incrementAndGet();
+                    loaded = false;
+                    log.warn("Stopped following user changes after change {}, checking emails in the database until "
+                            + "the bloom filter is reloaded", lastEventId, error);
+                })
+                .retryBackoff(Long.MAX_VALUE, RESUME_FIRST_BACKOFF, RESUME_MAX_BACKOFF)
+                .subscribe();
+    }
+
+    /**
+     * Whether a user is registered with the email.
+     */
+    public Mono<Boolean> isTaken(final String email) {
+        if (loaded && !filter.mightContain(email)) {
+            absent.increment();
+            return Mono.just(false);
+        }
+
+        final var filtered = loaded;
+        return store.findByEmail(email)
+                .hasElement()
+                .doOnNext(found -> (!filtered ? unfiltered : found ? taken : falsePositives).increment());
+    }
+
+    public void put(final String email) {
+        if (email != null) {
+            filter.put(email);
+        }
+    }
+
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    @Override
+    public void bindTo(@NonNull final MeterRegistry registry) {
+        Gauge.builder("user.email.bloom.fpp", filter, BloomFilter::expectedFalsePositiveRate)
+                .description("False positive rate the email bloom filter is expected to have given the bits it has set")
+                .register(registry);
+        Gauge.builder("user.email.bloom.false.positives", this, UserEmails::observedFalsePositiveRate)
+                .description("Share of unregistered emails the bloom filter has sent to the database")
+                .register(registry);
+        absent = check(registry, "absent");
+        taken = check(registry, "taken");
+        falsePositives = check(registry, "false_positive");
+        unfiltered = check(registry, "unfiltered");
+    }
+
+    @Override
+    public void destroy() {
+        final var subscription = changes;
+        if (subscription != null) {
+            subscription.dispose();
+        }
+    }
+
+    private void apply(final UserChangeEvent event) {
+        if (event.getType() == UserChangeEvent.Type.CREATED || event.getType() == UserChangeEvent.Type.UPDATED) {
+            put(event.getUser().getEmail());
+        }
+        lastEventId = event.getId();
+    }
+
+    private void reload() {
+        final var reload = reloads.incrementAndGet();
+        loaded = false;
+
+        final long started = System.nanoTime();
+        Mono.fromCallable(this::loadAll)
+                .subscribeOn(scheduler)
+                .subscribe(count -> {
+                    if (reloads.get() == reload) {
+                        loaded = true;
+                    }
+                    log.info("Loaded {} emails into the bloom filter in {} ms", count, (System.nanoTime() - started) / 1_000_000);
+                }, error -> log.error("Could not load the email bloom filter, emails are checked in the database", error));
+    }
+
+    private double observedFalsePositiveRate() {
+        final var free = absent.count() + falsePositives.count();
+        return free == 0 ? 0 : falsePositives.count() / free;
+    }
+
+    private long loadAll() {
+        long count = 0;
+        long after = 0;
+        List<UserEntity> rows;
+        do {
+            rows = repository.findByIdGreaterThanOrderByIdAsc(after, PageRequest.of(0, properties.getBuildBatchSize()));
+            rows.forEach(row -> put(row.getEmail()));
+            count += rows.size();
+            after = rows.isEmpty() ? after : rows.get(rows.size() - 1).getId();
+        } while (rows.size() == properties.getBuildBatchSize());
+        return count;
+    }
+
+    private static Counter check(final MeterRegistry registry, final String result) {
+        return Counter.builder(CHECKS)
+                .tag("result", result)
+                .description("Email uniqueness checks, by whether the bloom filter answered them and what the database said")
+                .register(registry);
+    }
+}
@@ -0,0 +1,24 @@
+package au.com.ibenta.test.service;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Data
+@ConfigurationProperties(prefix = "ibenta.user-emails")
+public class UserEmailsProperties {
+
+    /**
+     * Emails the Bloom filter is sized for; past that its false positive rate climbs until the next restart.
+     */
+    private long expectedInsertions = 100_000;
+
+    /**
+     * Share of unregistered emails the filter still sends to the database at {@code expected-insertions} emails.
+     */
+    private double falsePositiveRate = 0.01;
+
+    /**
+     * Emails read from the database per query while the filter is built at startup.
+     */
+    private int buildBatchSize = 1000;
+}
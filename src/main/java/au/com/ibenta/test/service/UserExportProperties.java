@@ -0,0 +1,25 @@
+package au.com.ibenta.test.service;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Data
+@ConfigurationProperties(prefix = "ibenta.user-export")
+public class UserExportProperties {
+
+    /**
+     * Rows the JDBC driver fetches per round trip while an export reads the table.
+     */
+    private int fetchSize = 1000;
+
+    /**
+     * Rows encoded into each buffer written to the response.
+     */
+    private int rowsPerBuffer = 256;
+
+    /**
+     * Exports streamed at once, each holding a database connection for its whole download. Further exports are
+     * rejected with a 503 until one ends.
+     */
+    private int maxConcurrent = 2;
+}
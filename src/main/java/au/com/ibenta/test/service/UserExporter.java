@@ -0,0 +1,186 @@
+package au.com.ibenta.test.service;
+
+import au.com.ibenta.test.model.User;
+import au.com.ibenta.test.persistence.UserStore;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.noop.NoopCounter;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.MediaType;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+
+import static au.com.ibenta.config.WebConfiguration.APPLICATION_NDJSON;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Streams the whole {@code user} table as newline delimited JSON or CSV. Rows are read through
+ * {@link UserStore#streamAll(int)} only as fast as the response is written, and encoded a few hundred at a time
+ * straight into buffers from the response's own factory, pooled Netty buffers on the server, so memory stays the same
+ * whatever the size of the table. Passwords are never read, let alone written. Each export holds a connection for as
+ * long as the client takes to download it, outside the concurrency limiter, so only {@code max-concurrent} run at
+ * once and the rest are rejected with an {@link ExportLimitExceededException}.
+ */
+@Component
+@EnableConfigurationProperties(UserExportProperties.class)
+public class UserExporter implements MeterBinder {
+
+    public static final String ROWS = "user.export.rows";
+    public static final MediaType TEXT_CSV = new MediaType("text", "csv", UTF_8);
+
+    private static final String CSV_HEADER = "id,firstName,lastName,email,version,updatedAt\r\n";
+    private static final int ROW_BYTES = 160;
+    private static final String FORMULA_PREFIXES = "=+-@\t\r";
+
+    public enum Format {
+        NDJSON(APPLICATION_NDJSON), CSV(TEXT_CSV);
+
+        private final MediaType mediaType;
+
+        Format(final MediaType mediaType) {
+            this.mediaType = mediaType;
+        }
+
+        public MediaType getMediaType() {
+            return mediaType;
+        }
+    }
+
+    private final UserStore store;
+    private final ObjectWriter writer;
+    private final UserExportProperties properties;
+    private final Map<Format, Counter> rows = new EnumMap<>(Format.class);
+    private final Semaphore exports;
+
+    public UserExporter(final UserStore store, final ObjectMapper objectMapper, final UserExportProperties properties) {
+        this.store = store;
+        this.writer = objectMapper.writerFor(User.class);
+        this.properties = properties;
+        this.exports = new Semaphore(properties.getMaxConcurrent());
+        for (final var format : Format.values()) {
+            rows.put(format, new NoopCounter(null));
+        }
+    }
+
+    public Flux<DataBuffer> export(final Format format, final DataBufferFactory factory) {
+        return Flux.defer(() -> {
+            if (!exports.tryAcquire()) {
+                return Flux.error(new ExportLimitExceededException());
+            }
+            return stream(format, factory).doFinally(signal -> exports.release());
+        });
+    }
+
+    @Override
+    public void bindTo(@NonNull final MeterRegistry registry) {
+        for (final var format : Format.values()) {
+            rows.put(format, Counter.builder(ROWS)
+                    .tag("format", format.name().toLowerCase(Locale.ROOT))
+                    .description("Users written by exports")
+                    .register(registry));
+        }
+    }
+
+    private Flux<DataBuffer> stream(final Format format, final DataBufferFactory factory) {
+        final var counter = rows.get(format);
+        final var body = store.streamAll(properties.getFetchSize())
+                .map(UserService::toUser)
+                .buffer(properties.getRowsPerBuffer())
+                .map(users -> {
+                    final var buffer = encode(format, users, factory);
+                    counter.increment(users.size());
+                    return buffer;
+                });
+        return format == Format.CSV
+                ? Flux.concat(Mono.fromSupplier(() -> factory.wrap(CSV_HEADER.getBytes(UTF_8))), body)
+                : body;
+    }
+
+    private DataBuffer encode(final Format format, final List<User> users, final DataBufferFactory factory) {
+        final var buffer = factory.allocateBuffer(users.size() * ROW_BYTES);
+        try {
+            if (format == Format.CSV) {
+                writeCsv(users, buffer);
+            } else {
+                writeNdjson(users, buffer);
+            }
+            return buffer;
+        } catch (final IOException e) {
+            DataBufferUtils.release(buffer);
+            throw new UncheckedIOException(e);
+        } catch (final RuntimeException e) {
+            DataBufferUtils.release(buffer);
+            throw e;
+        }
+    }
+
+    private void writeNdjson(final List<User> users, final DataBuffer buffer) throws IOException {
+        try (JsonGenerator generator = writer.getFactory().createGenerator(buffer.asOutputStream())) {
+            // lines are ended explicitly, Jackson would otherwise put a space between root values
+            generator.setRootValueSeparator(null);
+            for (final var user : users) {
+                writer.writeValue(generator, user);
+                generator.writeRaw('\n');
+            }
+        }
+    }
+
+    private static void writeCsv(final List<User> users, final DataBuffer buffer) throws IOException {
+        try (Writer out = new OutputStreamWriter(buffer.asOutputStream(), UTF_8)) {
+            for (final var user : users) {
+                out.write(String.valueOf(user.getId()));
+                out.write(',');
+                writeCsvField(out, user.getFirstName());
+                out.write(',');
+                writeCsvField(out, user.getLastName());
+                out.write(',');
+                writeCsvField(out, user.getEmail());
+                out.write(',');
+                out.write(String.valueOf(user.getVersion()));
+                out.write(',');
+                out.write(user.getUpdatedAt() == null ? "" : user.getUpdatedAt().toString());
+                out.write("\r\n");
+            }
+        }
+    }
+
+    /**
+     * Quotes the value as RFC 4180 requires when it holds a separator, a quote or a line break. A value a spreadsheet
+     * would run as a formula is quoted too, behind a {@code '} that keeps it text.
+     */
+    static void writeCsvField(final Writer out, final String value) throws IOException {
+        if (value == null || value.isEmpty()) {
+            return;
+        }
+        final var formula = FORMULA_PREFIXES.indexOf(value.charAt(0)) >= 0;
+        if (!formula && value.chars().noneMatch(c -> c == ',' || c == '"' || c == '\r' || c == '\n')) {
+            out.write(value);
+            return;
+        }
+        out.write('"');
+        if (formula) {
+            out.write('\'');
+        }
+        out.write(value.replace("\"", "\"\""));
+        out.write('"');
+    }
+}
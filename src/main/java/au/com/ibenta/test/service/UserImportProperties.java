@@ -0,0 +1,14 @@
+package au.com.ibenta.test.service;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Data
+@ConfigurationProperties(prefix = "ibenta.user-import")
+public class UserImportProperties {
+
+    /**
+     * Records written per transaction.
+     */
+    private int batchSize = 500;
+}
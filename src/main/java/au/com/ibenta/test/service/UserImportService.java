@@ -0,0 +1,217 @@
+package au.com.ibenta.test.service;
+
+import au.com.ibenta.hashing.PasswordHasher;
+import au.com.ibenta.test.model.User;
+import au.com.ibenta.test.model.UserImportResult;
+import au.com.ibenta.test.persistence.UserEntity;
+import au.com.ibenta.test.persistence.UserRepository;
+import au.com.ibenta.tracing.RequestTrace;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.Setter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+
+import javax.validation.Validator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+
+import static au.com.ibenta.offload.OffloadConfiguration.JDBC_SCHEDULER;
+import static au.com.ibenta.test.model.UserImportResult.Status.CREATED;
+import static au.com.ibenta.test.model.UserImportResult.Status.FAILED;
+import static au.com.ibenta.test.model.UserImportResult.Status.INVALID;
+import static java.util.stream.Collectors.toList;
+
+/**
+ * Imports newline delimited users as they arrive. Each line is parsed and validated on its own, valid records are
+ * hashed, then written through JPA in one transaction per {@code ibenta.user-import.batch-size} records, which
+ * Hibernate sends as JDBC batches with ids from the pooled {@code hibernate_sequence}. A record whose email repeats one
+ * earlier in its batch or is already registered fails alone rather than rolling back its batch. The import always
+ * takes the JDBC path, whatever {@code ibenta.persistence.mode} is.
+ */
+@Slf4j
+@Service
+@EnableConfigurationProperties(UserImportProperties.class)
+public class UserImportService {
+
+    private static final String BATCH_FAILED = "batch rolled back";
+    private static final String EMAIL_TAKEN = "email is already registered";
+    private static final String EMAIL_REPEATED = "email repeats an earlier record";
+    private static final int EMAIL_CHECKS = 16;
+
+    private final UserRepository repository;
+    private final Scheduler scheduler;
+    private final UserChangeFeed feed;
+    private final PasswordHasher hasher;
+    private final UserCache cache;
+    private final ObjectMapper objectMapper;
+    private final Validator validator;
+    private final UserEmails emails;
+    private final UserImportProperties properties;
+
+    public UserImportService(final UserRepository repository,
+                             @Qualifier(JDBC_SCHEDULER) final Scheduler scheduler,
+                             final UserChangeFeed feed,
+                             final PasswordHasher hasher,
+                             final UserCache cache,
+                             final ObjectMapper objectMapper,
+                             final Validator validator,
+                             final UserEmails emails,
+                             final UserImportProperties properties) {
+        this.repository = repository;
+        this.scheduler = scheduler;
+        this.feed = feed;
+        this.hasher = hasher;
+        this.cache = cache;
+        this.objectMapper = objectMapper;
+        this.validator = validator;
+        this.emails = emails;
+        this.properties = properties;
+    }
+
+    public Flux<UserImportResult> importUsers(final Flux<String> lines) {
+        return lines.index()
+                .filter(line -> StringUtils.hasText(line.getT2()))
+                .map(line -> parse(line.getT1() + 1, line.getT2()))
+                .buffer(properties.getBatchSize())
+                .concatMap(this::write);
+    }
+
+    private ImportRecord parse(final long line, final String json) {
+        final User user;
+        try {
+            user = objectMapper.readValue(json, User.class);
+        } catch (final JsonProcessingException e) {
+            return new ImportRecord(line, null, List.of(e.getOriginalMessage()));
+        }
+
+        final var errors = validator.validate(user).stream()
+                .map(violation -> violation.getPropertyPath() + " " + violation.getMessage())
+                .sorted()
+                .collect(toList());
+        if (!errors.isEmpty()) {
+            return new ImportRecord(line, null, errors);
+        }
+
+        final var entity = new UserEntity();
+        UserService.copy(user, entity);
+        entity.setPassword(user.getPassword());
+        return new ImportRecord(line, entity, List.of());
+    }
+
+    private Flux<UserImportResult> write(final List<ImportRecord> batch) {
+        final var batchEmails = new HashSet<String>();
+        batch.stream()
+                .filter(ImportRecord::isValid)
+                .filter(record -> !batchEmails.add(record.getEntity().getEmail()))
+                .forEach(record -> record.fail(EMAIL_REPEATED));
+
+        return Flux.fromIterable(batch)
+                .filter(ImportRecord::isPending)
+                .flatMap(record -> emails.isTaken(record.getEntity().getEmail())
+                        .doOnNext(taken -> {
+                            if (taken) {
+                                record.fail(EMAIL_TAKEN);
+                            }
+                        }), EMAIL_CHECKS)
+                .thenMany(Flux.fromIterable(batch))
+                .filter(ImportRecord::isPending)
+                .flatMap(record -> hasher.encode(record.getEntity().getPassword())
+                        .doOnNext(record.getEntity()::setPassword)
+                        .thenReturn(record), hasher.getParallelism())
+                .collectList()
+                .filter(pending -> !pending.isEmpty())
+                .flatMap(pending -> Mono.fromRunnable(() -> save(pending)).subscribeOn(scheduler).thenReturn(pending))
+                .doOnNext(pending -> pending.stream()
+                        .map(ImportRecord::getSaved)
+                        .filter(Objects::nonNull)
+                        .forEach(entity -> {
+                            cache.invalidate(entity.getId());
+                            feed.publish(UserChangeEvent.Type.CREATED, UserService.toUser(entity));
+                        }))
+                .thenMany(Flux.fromIterable(batch))
+                .map(ImportRecord::toResult)
+                .doOnEach(RequestTrace.logOnError(e ->
+                        log.warn("User import batch of {} records starting at line {} failed", batch.size(), batch.get(0).getLine(), e)))
+                .onErrorResume(e -> Flux.fromIterable(batch).map(ImportRecord::toResult));
+    }
+
+    /**
+     * Writes the records in one transaction, or each in a transaction of its own once the unique email index rejects
+     * the batch, as an email may have been registered since it was checked, so only that record fails.
+     */
+    private void save(final List<ImportRecord> pending) {
+        try {
+            final var saved = repository.saveAll(pending.stream().map(ImportRecord::detached).collect(toList()));
+            for (var i = 0; i < pending.size(); i++) {
+                pending.get(i).setSaved(saved.get(i));
+            }
+        } catch (final DataIntegrityViolationException e) {
+            log.debug("User import batch starting at line {} rejected, writing its records one by one", pending.get(0).getLine(), e);
+            for (final var record : pending) {
+                try {
+                    record.setSaved(repository.save(record.detached()));
+                } catch (final DataIntegrityViolationException rejected) {
+                    record.fail(EMAIL_TAKEN);
+                }
+            }
+        }
+    }
+
+    @Getter
+    @RequiredArgsConstructor
+    private static class ImportRecord {
+
+        private final long line;
+        private final UserEntity entity;
+        private final List<String> errors;
+
+        @Setter
+        private UserEntity saved;
+        private String failure;
+
+        boolean isValid() {
+            return entity != null;
+        }
+
+        boolean isPending() {
+            return isValid() && failure == null && saved == null;
+        }
+
+        void fail(final String failure) {
+            this.failure = failure;
+        }
+
+        /**
+         * A copy to save, so a rolled back batch leaves no id or version on the entity and it can be saved again alone.
+         */
+        UserEntity detached() {
+            final var copy = new UserEntity();
+            copy.setFirstName(entity.getFirstName());
+            copy.setLastName(entity.getLastName());
+            copy.setEmail(entity.getEmail());
+            copy.setPassword(entity.getPassword());
+            return copy;
+        }
+
+        UserImportResult toResult() {
+            if (!isValid()) {
+                return UserImportResult.builder().line(line).status(INVALID).errors(errors).build();
+            }
+            if (saved == null) {
+                return UserImportResult.builder().line(line).status(FAILED).errors(List.of(failure == null ? BATCH_FAILED : failure)).build();
+            }
+            return UserImportResult.builder().line(line).status(CREATED).id(saved.getId()).build();
+        }
+    }
+}
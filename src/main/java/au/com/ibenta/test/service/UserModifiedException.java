@@ -0,0 +1,14 @@
+package au.com.ibenta.test.service;
+
+import org.zalando.problem.AbstractThrowableProblem;
+import org.zalando.problem.Status;
+
+import static java.lang.String.format;
+
+public class UserModifiedException extends AbstractThrowableProblem {
+
+    UserModifiedException(final Long id, final Long version) {
+        super(null, Status.PRECONDITION_FAILED.getReasonPhrase(), Status.PRECONDITION_FAILED,
+                format("user %s has been modified, current version is %s", id, version));
+    }
+}
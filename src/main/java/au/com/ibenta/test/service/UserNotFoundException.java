@@ -0,0 +1,13 @@
+package au.com.ibenta.test.service;
+
+import org.zalando.problem.AbstractThrowableProblem;
+import org.zalando.problem.Status;
+
+import static java.lang.String.format;
+
+public class UserNotFoundException extends AbstractThrowableProblem {
+
+    UserNotFoundException(final Long id) {
+        super(null, Status.NOT_FOUND.getReasonPhrase(), Status.NOT_FOUND, format("user %s does not exist", id));
+    }
+}
@@ -0,0 +1,29 @@
+package au.com.ibenta.test.service;
+
+import au.com.ibenta.offload.BulkheadExecutor;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import static java.util.Optional.ofNullable;
+
+@Configuration
+@EnableConfigurationProperties(UserSearchProperties.class)
+public class UserSearchConfiguration {
+
+    public static final String SEARCH_SCHEDULER = "searchScheduler";
+
+    @Bean
+    BulkheadExecutor searchBulkhead(final UserSearchProperties properties) {
+        final int threads = ofNullable(properties.getThreads()).orElseGet(() -> Runtime.getRuntime().availableProcessors());
+        return new BulkheadExecutor("search", threads, properties.getQueueCapacity());
+    }
+
+    @Bean(name = SEARCH_SCHEDULER, destroyMethod = "dispose")
+    Scheduler searchScheduler(@Qualifier("searchBulkhead") final BulkheadExecutor searchBulkhead) {
+        return Schedulers.fromExecutorService(searchBulkhead, searchBulkhead.getName());
+    }
+}
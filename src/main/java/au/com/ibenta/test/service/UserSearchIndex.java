@@ -0,0 +1,584 @@
+package au.com.ibenta.test.service;
+
+import au.com.ibenta.test.model.User;
+import au.com.ibenta.test.persistence.UserEntity;
+import au.com.ibenta.test.persistence.UserRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.noop.NoopTimer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.IntConsumer;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
+
+import static au.com.ibenta.offload.OffloadConfiguration.JDBC_SCHEDULER;
+import static au.com.ibenta.test.service.UserSearchConfiguration.SEARCH_SCHEDULER;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+/**
+ * In-memory search over first names, last names and emails, so partial matches never scan the {@code user} table.
+ *
+ * <p>Each field is indexed by its trigrams, which find query words of three characters or more anywhere in it, and
+ * by its words in a sorted map, which finds two character query words as word prefixes; single characters would
+ * match nearly every user and are ignored. Every query word must match, and users are ranked by how well they do:
+ * a whole field, a whole word, a word prefix, then anywhere in a field. The index is loaded from
+ * {@link UserRepository} once the application is ready and follows the {@link UserChangeFeed} from then on;
+ * searches made while it loads see the users read so far. Should it stop following the feed, it resumes after the
+ * last change it applied, and reloads from scratch when the feed no longer holds the changes it missed. Searches run on their own bounded scheduler, never on the
+ * event loop, as they wait for the read lock while a batch of the load or a change is indexed.
+ */
+@Slf4j
+@Component
+public class UserSearchIndex implements MeterBinder, DisposableBean {
+
+    public static final String SEARCHES = "user.search";
+
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+    private static final Pattern WORD_SEPARATORS = Pattern.compile("[^\\p{L}\\p{N}]+");
+    private static final int GRAM = 3;
+    private static final int MIN_TERM_LENGTH = 2;
+    private static final int[] NONE = new int[0];
+    private static final Duration RESUME_FIRST_BACKOFF = Duration.ofMillis(100);
+    private static final Duration RESUME_MAX_BACKOFF = Duration.ofSeconds(10);
+
+    /**
+     * Rough sizes of the JVM objects behind the index, for the memory gauge: an object header with a reference,
+     * a map entry, a string, and a user with its strings, their lowercase copies and its set of words.
+     */
+    private static final long OBJECT_BYTES = 16;
+    private static final long ENTRY_BYTES = 40;
+    private static final long STRING_BYTES = 40;
+    private static final long DOCUMENT_BYTES = 600;
+
+    private final UserRepository repository;
+    private final Scheduler scheduler;
+    private final Scheduler searchScheduler;
+    private final UserChangeFeed feed;
+    private final UserSearchProperties properties;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Long, Integer> ordinals = new HashMap<>();
+    private final List<Document> documents = new ArrayList<>();
+    /**
+     * Ordinals of deleted users, handed to the next new users so {@link #documents} stays as long as the most users
+     * ever indexed at once.
+     */
+    private final BitSet freeOrdinals = new BitSet();
+    private final Map<String, Postings> trigrams = new HashMap<>();
+    private final NavigableMap<String, Postings> words = new TreeMap<>();
+
+    /**
+     * Users deleted while the index loads, which the rows read before their deletion must not bring back.
+     */
+    private Set<Long> deletedWhileLoading;
+    /**
+     * Loads in progress, {@link #deletedWhileLoading} is only dropped once the last one ends.
+     */
+    private int loads;
+    private volatile long lastEventId;
+    private volatile Disposable changes;
+    private volatile Timer searches = new NoopTimer(null);
+
+    public UserSearchIndex(final UserRepository repository,
+                           @Qualifier(JDBC_SCHEDULER) final Scheduler scheduler,
+                           @Qualifier(SEARCH_SCHEDULER) final Scheduler searchScheduler,
+                           final UserChangeFeed feed,
+                           final UserSearchProperties properties) {
+        this.repository = repository;
+        this.scheduler = scheduler;
+        this.searchScheduler = searchScheduler;
+        this.feed = feed;
+        this.properties = properties;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        lastEventId = feed.lastEventId();
+        changes = Flux.defer(() -> feed.changes(lastEventId))
+                .doOnNext(this::apply)
+                .doOnError(error -> log.warn("Stopped following user changes after change {}, resuming", lastEventId, error))
+                .retryBackoff(Long.MAX_VALUE, RESUME_FIRST_BACKOFF, RESUME_MAX_BACKOFF)
+                .subscribe();
+        reload(false);
+    }
+
+    /**
+     * The page of users matching every word of the query, best matches first and by id among equals.
+     */
+    public Mono<Page<User>> search(final String query, final Pageable pageable) {
+        return Mono.fromCallable(() -> {
+            final long started = System.nanoTime();
+            final var page = searchNow(query, pageable);
+            searches.record(System.nanoTime() - started, NANOSECONDS);
+            return page;
+        }).subscribeOn(searchScheduler);
+    }
+
+    public void put(final User user) {
+        write(() -> index(user, false));
+    }
+
+    public void remove(final Long id) {
+        write(() -> {
+            if (deletedWhileLoading != null) {
+                deletedWhileLoading.add(id);
+            }
+            final var ordinal = ordinals.remove(id);
+            if (ordinal != null) {
+                unindex(ordinal, documents.set(ordinal, null));
+                freeOrdinals.set(ordinal);
+            }
+        });
+    }
+
+    public int size() {
+        return read(ordinals::size);
+    }
+
+    @Override
+    public void bindTo(@NonNull final MeterRegistry registry) {
+        Gauge.builder("user.search.index.documents", this, UserSearchIndex::size)
+                .description("Users in the search index")
+                .register(registry);
+        Gauge.builder("user.search.index.terms", this, index -> index.read(index.trigrams::size))
+                .tag("kind", "trigram")
+                .description("Distinct terms with postings in the search index")
+                .register(registry);
+        Gauge.builder("user.search.index.terms", this, index -> index.read(index.words::size))
+                .tag("kind", "word")
+                .description("Distinct terms with postings in the search index")
+                .register(registry);
+        Gauge.builder("user.search.index.memory", this, UserSearchIndex::estimateBytes)
+                .baseUnit("bytes")
+                .description("Estimated heap held by the search index")
+                .register(registry);
+        searches = Timer.builder(SEARCHES)
+                .description("Time to find, rank and page the users matching a search")
+                .publishPercentileHistogram()
+                .register(registry);
+    }
+
+    @Override
+    public void destroy() {
+        final var subscription = changes;
+        if (subscription != null) {
+            subscription.dispose();
+        }
+    }
+
+    private void apply(final UserChangeEvent event) {
+        if (event.getType() == UserChangeEvent.Type.RESET) {
+            log.warn("Missed user changes the feed no longer holds, reloading the search index");
+            reload(true);
+        } else if (event.getType() == UserChangeEvent.Type.DELETED) {
+            remove(event.getUser().getId());
+        } else {
+            put(event.getUser());
+        }
+        lastEventId = event.getId();
+    }
+
+    /**
+     * Indexes every user in the database, after dropping those indexed so far if {@code clear}.
+     */
+    private void reload(final boolean clear) {
+        write(() -> {
+            if (clear) {
+                ordinals.clear();
+                documents.clear();
+                freeOrdinals.clear();
+                trigrams.clear();
+                words.clear();
+            }
+            if (loads++ == 0) {
+                deletedWhileLoading = new HashSet<>();
+            }
+        });
+
+        final long started = System.nanoTime();
+        Mono.fromCallable(this::loadAll)
+                .subscribeOn(scheduler)
+                .doFinally(signal -> write(() -> {
+                    if (--loads == 0) {
+                        deletedWhileLoading = null;
+                    }
+                }))
+                .subscribe(count -> log.info("Indexed {} users for search in {} ms", count, (System.nanoTime() - started) / 1_000_000),
+                        error -> log.error("Could not load the user search index", error));
+    }
+
+    private long loadAll() {
+        long loaded = 0;
+        long after = 0;
+        List<UserEntity> rows;
+        do {
+            rows = repository.findByIdGreaterThanOrderByIdAsc(after, PageRequest.of(0, properties.getBuildBatchSize()));
+            final var batch = rows;
+            write(() -> batch.forEach(row -> index(UserService.toUser(row), true)));
+            loaded += rows.size();
+            after = rows.isEmpty() ? after : rows.get(rows.size() - 1).getId();
+        } while (rows.size() == properties.getBuildBatchSize());
+        return loaded;
+    }
+
+    /**
+     * Indexes the user unless a later version of it is indexed already, or, for a row read by the initial load, it
+     * was deleted in the meantime. Runs under the write lock.
+     */
+    private void index(final User user, final boolean loaded) {
+        if (loaded && deletedWhileLoading != null && deletedWhileLoading.contains(user.getId())) {
+            return;
+        }
+
+        final var existing = ordinals.get(user.getId());
+        final var document = new Document(user);
+        if (existing == null) {
+            final var ordinal = nextOrdinal();
+            ordinals.put(user.getId(), ordinal);
+            documents.set(ordinal, document);
+            postings(ordinal, document);
+            return;
+        }
+
+        final var previous = documents.get(existing);
+        if (previous.version >= document.version) {
+            return;
+        }
+        unindex(existing, previous);
+        documents.set(existing, document);
+        postings(existing, document);
+    }
+
+    private int nextOrdinal() {
+        final var free = freeOrdinals.nextSetBit(0);
+        if (free >= 0) {
+            freeOrdinals.clear(free);
+            return free;
+        }
+        documents.add(null);
+        return documents.size() - 1;
+    }
+
+    private void unindex(final int ordinal, final Document document) {
+        document.trigrams().forEach(gram -> remove(trigrams, gram, ordinal));
+        document.words.forEach(word -> remove(words, word, ordinal));
+    }
+
+    private void postings(final int ordinal, final Document document) {
+        document.trigrams().forEach(gram -> trigrams.computeIfAbsent(gram, key -> new Postings()).add(ordinal));
+        document.words.forEach(word -> words.computeIfAbsent(word, key -> new Postings()).add(ordinal));
+    }
+
+    private static void remove(final Map<String, Postings> index, final String term, final int ordinal) {
+        final var postings = index.get(term);
+        if (postings != null) {
+            postings.remove(ordinal);
+            if (postings.isEmpty()) {
+                index.remove(term);
+            }
+        }
+    }
+
+    private Page<User> searchNow(final String query, final Pageable pageable) {
+        final var terms = Arrays.stream(WHITESPACE.split(query.trim().toLowerCase(Locale.ROOT)))
+                .filter(term -> term.length() >= MIN_TERM_LENGTH)
+                .distinct()
+                .toArray(String[]::new);
+        if (terms.length == 0) {
+            return Page.empty(pageable);
+        }
+
+        final var hits = read(() -> {
+            int[] candidates = null;
+            for (final var term : terms) {
+                final var matches = term.length() >= GRAM ? containing(term) : prefixed(term);
+                candidates = candidates == null ? matches : intersect(candidates, matches);
+                if (candidates.length == 0) {
+                    break;
+                }
+            }
+
+            final var scored = new ArrayList<Hit>();
+            for (final var ordinal : candidates) {
+                final var document = documents.get(ordinal);
+                final var score = document.score(terms);
+                if (score > 0) {
+                    scored.add(new Hit(document.user, score));
+                }
+            }
+            return scored;
+        });
+
+        hits.sort(Comparator.comparingInt((Hit hit) -> hit.score).reversed().thenComparing(hit -> hit.user.getId()));
+        final var from = (int) Math.min(pageable.getOffset(), hits.size());
+        final var to = Math.min(from + pageable.getPageSize(), hits.size());
+        final var content = new ArrayList<User>(to - from);
+        hits.subList(from, to).forEach(hit -> content.add(hit.user));
+        return new PageImpl<>(content, pageable, hits.size());
+    }
+
+    /**
+     * Users with every trigram of the term, a superset of those containing it that {@link Document#score} narrows.
+     */
+    private int[] containing(final String term) {
+        final var postings = new ArrayList<Postings>();
+        for (int i = 0; i + GRAM <= term.length(); i++) {
+            final var gram = trigrams.get(term.substring(i, i + GRAM));
+            if (gram == null) {
+                return NONE;
+            }
+            postings.add(gram);
+        }
+        postings.sort(Comparator.comparingInt(Postings::size));
+
+        var matches = postings.get(0).toArray();
+        for (int i = 1; i < postings.size() && matches.length > 0; i++) {
+            matches = intersect(matches, postings.get(i).toArray());
+        }
+        return matches;
+    }
+
+    private int[] prefixed(final String term) {
+        final var matches = new BitSet(documents.size());
+        words.subMap(term, true, term + Character.MAX_VALUE, false).values()
+                .forEach(postings -> postings.forEach(matches::set));
+        return matches.stream().toArray();
+    }
+
+    private static int[] intersect(final int[] left, final int[] right) {
+        final var both = new int[Math.min(left.length, right.length)];
+        int size = 0;
+        for (int i = 0, j = 0; i < left.length && j < right.length; ) {
+            if (left[i] < right[j]) {
+                i++;
+            } else if (left[i] > right[j]) {
+                j++;
+            } else {
+                both[size++] = left[i];
+                i++;
+                j++;
+            }
+        }
+        return Arrays.copyOf(both, size);
+    }
+
+    private long estimateBytes() {
+        return read(() -> {
+            long bytes = 0;
+            for (final var entry : trigrams.entrySet()) {
+                bytes += ENTRY_BYTES + STRING_BYTES + GRAM + entry.getValue().bytes();
+            }
+            for (final var entry : words.entrySet()) {
+                bytes += ENTRY_BYTES + STRING_BYTES + entry.getKey().length() + entry.getValue().bytes();
+            }
+            for (final var document : documents) {
+                bytes += document == null ? OBJECT_BYTES : DOCUMENT_BYTES + document.chars();
+            }
+            return bytes + ordinals.size() * ENTRY_BYTES;
+        });
+    }
+
+    private <T> T read(final Supplier<T> reader) {
+        lock.readLock().lock();
+        try {
+            return reader.get();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void write(final Runnable writer) {
+        lock.writeLock().lock();
+        try {
+            writer.run();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private static final class Document {
+
+        private final User user;
+        private final long version;
+        private final String[] fields;
+        private final Set<String> words = new HashSet<>();
+
+        private Document(final User user) {
+            this.user = User.builder()
+                    .id(user.getId())
+                    .firstName(user.getFirstName())
+                    .lastName(user.getLastName())
+                    .email(user.getEmail())
+                    .version(user.getVersion())
+                    .updatedAt(user.getUpdatedAt())
+                    .build();
+            this.version = user.getVersion() == null ? -1 : user.getVersion();
+            this.fields = new String[]{normalize(user.getFirstName()), normalize(user.getLastName()), normalize(user.getEmail())};
+            for (final var field : fields) {
+                Arrays.stream(WORD_SEPARATORS.split(field)).filter(word -> !word.isEmpty()).forEach(words::add);
+            }
+        }
+
+        /**
+         * The sum of each term's best match, or 0 unless every term matches: 4 for a whole field, 3 for a whole word,
+         * 2 for a word prefix and 1 anywhere in a field. Terms shorter than a trigram only match as word prefixes.
+         */
+        private int score(final String[] terms) {
+            int total = 0;
+            for (final var term : terms) {
+                final var score = score(term);
+                if (score == 0) {
+                    return 0;
+                }
+                total += score;
+            }
+            return total;
+        }
+
+        private int score(final String term) {
+            int best = 0;
+            for (final var field : fields) {
+                if (field.equals(term)) {
+                    return 4;
+                }
+            }
+            if (words.contains(term)) {
+                return 3;
+            }
+            for (final var word : words) {
+                if (word.startsWith(term)) {
+                    best = 2;
+                }
+            }
+            if (best == 0 && term.length() >= GRAM) {
+                for (final var field : fields) {
+                    if (field.contains(term)) {
+                        return 1;
+                    }
+                }
+            }
+            return best;
+        }
+
+        private Set<String> trigrams() {
+            final var grams = new HashSet<String>();
+            for (final var field : fields) {
+                for (int i = 0; i + GRAM <= field.length(); i++) {
+                    grams.add(field.substring(i, i + GRAM));
+                }
+            }
+            return grams;
+        }
+
+        private long chars() {
+            return fields[0].length() + fields[1].length() + fields[2].length();
+        }
+
+        private static String normalize(final String value) {
+            return value == null ? "" : value.toLowerCase(Locale.ROOT);
+        }
+    }
+
+    private static final class Hit {
+
+        private final User user;
+        private final int score;
+
+        private Hit(final User user, final int score) {
+            this.user = user;
+            this.score = score;
+        }
+    }
+
+    /**
+     * Sorted ordinals of the users holding a term. New users mostly get increasing ordinals, so adding one is an
+     * append but for updates and reused ordinals.
+     */
+    private static final class Postings {
+
+        private int[] ordinals = new int[2];
+        private int size;
+
+        private void add(final int ordinal) {
+            if (size > 0 && ordinals[size - 1] >= ordinal) {
+                final var index = Arrays.binarySearch(ordinals, 0, size, ordinal);
+                if (index >= 0) {
+                    return;
+                }
+                insert(-index - 1, ordinal);
+                return;
+            }
+            insert(size, ordinal);
+        }
+
+        private void remove(final int ordinal) {
+            final var index = Arrays.binarySearch(ordinals, 0, size, ordinal);
+            if (index >= 0) {
+                System.arraycopy(ordinals, index + 1, ordinals, index, size - index - 1);
+                size--;
+            }
+        }
+
+        private void insert(final int index, final int ordinal) {
+            if (size == ordinals.length) {
+                ordinals = Arrays.copyOf(ordinals, size * 2);
+            }
+            System.arraycopy(ordinals, index, ordinals, index + 1, size - index);
+            ordinals[index] = ordinal;
+            size++;
+        }
+
+        private void forEach(final IntConsumer action) {
+            for (int i = 0; i < size; i++) {
+                action.accept(ordinals[i]);
+            }
+        }
+
+        private int[] toArray() {
+            return Arrays.copyOf(ordinals, size);
+        }
+
+        private int size() {
+            return size;
+        }
+
+        private boolean isEmpty() {
+            return size == 0;
+        }
+
+        private long bytes() {
+            return 2 * OBJECT_BYTES + 4L * ordinals.length;
+        }
+    }
+}
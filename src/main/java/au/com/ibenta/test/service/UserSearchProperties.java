@@ -0,0 +1,25 @@
+package au.com.ibenta.test.service;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Data
+@ConfigurationProperties(prefix = "ibenta.user-search")
+public class UserSearchProperties {
+
+    /**
+     * Users read from the database per query while the index is built at startup.
+     */
+    private int buildBatchSize = 1000;
+
+    /**
+     * Threads searches run on, defaults to the available processors since a search is CPU work once it holds the
+     * index's read lock.
+     */
+    private Integer threads;
+
+    /**
+     * Searches allowed to wait for a thread before new ones are rejected with a 503.
+     */
+    private int queueCapacity = 256;
+}
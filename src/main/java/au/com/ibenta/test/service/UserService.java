@@ -0,0 +1,303 @@
+package au.com.ibenta.test.service;
+
+import au.com.ibenta.hashing.PasswordHasher;
+import au.com.ibenta.pagination.InvalidCursorException;
+import au.com.ibenta.pagination.KeysetPage;
+import au.com.ibenta.pagination.KeysetPageable;
+import au.com.ibenta.test.model.Credentials;
+import au.com.ibenta.test.model.User;
+import au.com.ibenta.test.model.UserPatch;
+import au.com.ibenta.test.persistence.UserEntity;
+import au.com.ibenta.test.persistence.UserStore;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.ZoneOffset;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+
+import static au.com.ibenta.test.service.UserChangeEvent.Type.CREATED;
+import static au.com.ibenta.test.service.UserChangeEvent.Type.DELETED;
+import static au.com.ibenta.test.service.UserChangeEvent.Type.UPDATED;
+import static java.lang.String.format;
+
+@Slf4j
+@Service
+public class UserService {
+
+    /**
+     * Properties keyset pages can be sorted by, each backed by a {@code (column, id)} index.
+     */
+    private static final Map<String, Function<UserEntity, String>> KEYSET_PROPERTIES = Map.of(
+            KeysetPageable.ID, entity -> String.valueOf(entity.getId()),
+            "firstName", UserEntity::getFirstName,
+            "lastName", UserEntity::getLastName,
+            "email", UserEntity::getEmail);
+
+    private final UserStore store;
+    private final UserChangeFeed feed;
+    private final PasswordHasher hasher;
+    private final UserCache cache;
+    private final UserEmails emails;
+
+    /**
+     * Matched against when the email is unknown, so both failures cost the same hash.
+     */
+    private final Mono<String> unknownUserHash;
+
+    public UserService(final UserStore store, final UserChangeFeed feed, final PasswordHasher hasher, final UserCache cache,
+                       final UserEmails emails) {
+        this.store = store;
+        this.feed = feed;
+        this.hasher = hasher;
+        this.cache = cache;
+        this.emails = emails;
+        this.unknownUserHash = hasher.encode("unknown user").cache();
+    }
+
+    public Mono<User> create(final User user) {
+        final var entity = new UserEntity();
+        copy(user, entity);
+        return checkEmailFree(user.getEmail())
+                .then(hasher.encode(user.getPassword()))
+                .flatMap(hash -> {
+                    entity.setPassword(hash);
+                    return store.save(entity);
+                })
+                .map(UserService::toUser)
+                .doOnNext(created -> {
+                    cache.invalidate(created.getId());
+                    feed.publish(CREATED, created);
+                });
+    }
+
+    public Mono<User> get(final Long id) {
+        return cache.get(id).switchIfEmpty(Mono.error(() -> new UserNotFoundException(id)));
+    }
+
+    /**
+     * Replaces the user, provided {@code ifMatch} is absent or matches its current version.
+     */
+    public Mono<User> update(final Long id, final User user, final String ifMatch) {
+        return findExisting(id)
+                .flatMap(entity -> ifMatch == null || UserETags.matches(ifMatch, entity.getVersion())
+                        ? Mono.just(entity)
+                        : Mono.error(new UserModifiedException(id, entity.getVersion())))
+                .flatMap(entity -> Objects.equals(entity.getEmail(), user.getEmail())
+                        ? Mono.just(entity)
+                        : checkEmailFree(user.getEmail()).thenReturn(entity))
+                .zipWith(hasher.encode(user.getPassword()))
+                .flatMap(existing -> {
+                    final var entity = existing.getT1();
+                    copy(user, entity);
+                    entity.setPassword(existing.getT2());
+                    return store.save(entity);
+                })
+                .map(UserService::toUser)
+                .doOnNext(updated -> {
+                    cache.invalidate(id);
+                    feed.publish(UPDATED, updated);
+                });
+    }
+
+    /**
+     * Applies a merge patch. Given an {@code ifMatch}, the patch is a single {@code UPDATE} of the columns it changes,
+     * guarded by that version: the user is read through the cache, which a client usually filled with the {@code GET}
+     * it took its {@code ETag} from, or from the database when the cache holds another version, and the result is
+     * that user with the patch applied. Without one, every property the patch holds is written over whatever version
+     * the user is at, as a stale cached copy cannot tell which columns change, and the user is read back. The
+     * password is hashed only when the patch holds one.
+     */
+    public Mono<User> patch(final Long id, final UserPatch patch, final String ifMatch) {
+        if (ifMatch == null || UserETags.matchesAny(ifMatch)) {
+            return patchAnyVersion(id, patch);
+        }
+
+        return get(id)
+                .flatMap(cached -> UserETags.matches(ifMatch, cached.getVersion())
+                        ? Mono.just(cached)
+                        : findExisting(id).map(UserService::toUser))
+                .flatMap(current -> UserETags.matches(ifMatch, current.getVersion())
+                        ? Mono.just(current)
+                        : Mono.error(new UserModifiedException(id, current.getVersion())))
+                .flatMap(current -> {
+                    final var changes = new UserEntity();
+                    changes.setId(id);
+                    changes.setVersion(current.getVersion());
+                    changes.setFirstName(changed(patch.getFirstName(), current.getFirstName()));
+                    changes.setLastName(changed(patch.getLastName(), current.getLastName()));
+                    changes.setEmail(changed(patch.getEmail(), current.getEmail()));
+                    if (isEmpty(patch, changes)) {
+                        return Mono.just(current);
+                    }
+
+                    return write(patch, changes)
+                            .switchIfEmpty(Mono.defer(() -> findExisting(id)
+                                    .flatMap(entity -> Mono.error(new UserModifiedException(id, entity.getVersion())))))
+                            .map(patched -> patched(current, patched))
+                            .doOnNext(this::publishUpdated);
+                });
+    }
+
+    /**
+     * The user owning the credentials. A hash made with an older work factor is replaced, since this is the
+     * only time the raw password is known.
+     */
+    public Mono<User> authenticate(final Credentials credentials) {
+        return store.findByEmail(credentials.getEmail())
+                .flatMap(entity -> hasher.matches(credentials.getPassword(), entity.getPassword())
+                        .flatMap(matched -> matched
+                                ? rehash(entity, credentials.getPassword())
+                                : Mono.error(new InvalidCredentialsException())))
+                .switchIfEmpty(Mono.defer(() -> unknownUserHash
+                        .flatMap(hash -> hasher.matches(credentials.getPassword(), hash))
+                        .then(Mono.error(InvalidCredentialsException::new))))
+                .map(UserService::toUser);
+    }
+
+    public Mono<Void> delete(final Long id) {
+        return findExisting(id).flatMap(entity -> store.deleteById(entity.getId())
+                .then(Mono.fromRunnable(() -> {
+                    cache.invalidate(id);
+                    feed.publish(DELETED, toUser(entity));
+                })));
+    }
+
+    public Flux<User> list(final Pageable pageable) {
+        return store.findAll(pageable).map(UserService::toUser);
+    }
+
+    public Mono<KeysetPage<User>> list(final KeysetPageable pageable) {
+        final var valueOf = KEYSET_PROPERTIES.get(pageable.getProperty());
+        if (valueOf == null) {
+            return Mono.error(new InvalidCursorException(format("cannot page by %s", pageable.getProperty())));
+        }
+
+        return store.findAll(pageable)
+                .collectList()
+                .map(rows -> KeysetPage.of(rows, pageable, entity -> pageable.cursor(entity.getId(), valueOf.apply(entity))))
+                .map(page -> page.map(UserService::toUser));
+    }
+
+    /**
+     * Fails with {@link EmailTakenException} when the email is registered already. Two requests for the same email can
+     * still both pass, the unique index on {@code email} then rejects the second save.
+     */
+    private Mono<Void> checkEmailFree(final String email) {
+        return emails.isTaken(email).flatMap(taken -> taken ? Mono.error(new EmailTakenException()) : Mono.empty());
+    }
+
+    private Mono<User> patchAnyVersion(final Long id, final UserPatch patch) {
+        final var changes = new UserEntity();
+        changes.setId(id);
+        changes.setFirstName(patch.getFirstName());
+        changes.setLastName(patch.getLastName());
+        changes.setEmail(patch.getEmail());
+        if (isEmpty(patch, changes)) {
+            return get(id);
+        }
+
+        return write(patch, changes)
+                .switchIfEmpty(Mono.error(() -> new UserNotFoundException(id)))
+                .map(UserService::toUser)
+                .doOnNext(this::publishUpdated);
+    }
+
+    private Mono<UserEntity> write(final UserPatch patch, final UserEntity changes) {
+        return (changes.getEmail() == null ? Mono.<Void>empty() : checkEmailFree(changes.getId(), changes.getEmail()))
+                .then(patch.getPassword() == null ? Mono.empty() : hasher.encode(patch.getPassword()))
+                .doOnNext(changes::setPassword)
+                .then(Mono.defer(() -> store.patch(changes)));
+    }
+
+    private void publishUpdated(final User updated) {
+        cache.invalidate(updated.getId());
+        feed.publish(UPDATED, updated);
+    }
+
+    /**
+     * Like {@link #checkEmailFree(String)}, except that the user's own email is free for it, which a patch made
+     * without knowing the current email may well repeat.
+     */
+    private Mono<Void> checkEmailFree(final Long id, final String email) {
+        return emails.isTaken(email)
+                .flatMap(taken -> taken ? store.findByEmail(email).map(owner -> !id.equals(owner.getId())) : Mono.just(false))
+                .flatMap(taken -> taken ? Mono.error(new EmailTakenException()) : Mono.empty());
+    }
+
+    /**
+     * Best effort: when the save fails, for instance because the user was updated meanwhile, the login still succeeds
+     * and the old hash is replaced on a later one.
+     */
+    private Mono<UserEntity> rehash(final UserEntity entity, final String password) {
+        if (!hasher.upgradeEncoding(entity.getPassword())) {
+            return Mono.just(entity);
+        }
+
+        final var previousHash = entity.getPassword();
+        return hasher.encode(password).flatMap(hash -> {
+            entity.setPassword(hash);
+            return store.save(entity);
+        })
+                .doOnNext(rehashed -> publishUpdated(toUser(rehashed)))
+                .onErrorResume(error -> {
+                    log.warn("Could not replace the password hash of user {}, keeping the old one", entity.getId(), error);
+                    entity.setPassword(previousHash);
+                    return Mono.just(entity);
+                });
+    }
+
+    private Mono<UserEntity> findExisting(final Long id) {
+        return store.findById(id).switchIfEmpty(Mono.error(() -> new UserNotFoundException(id)));
+    }
+
+    /**
+     * The patched value when it differs from the current one, otherwise {@code null} for a column left as it is.
+     */
+    private static String changed(final String patched, final String current) {
+        return patched == null || patched.equals(current) ? null : patched;
+    }
+
+    private static boolean isEmpty(final UserPatch patch, final UserEntity changes) {
+        return patch.getPassword() == null && changes.getFirstName() == null
+                && changes.getLastName() == null && changes.getEmail() == null;
+    }
+
+    /**
+     * The user as it is after {@code changes} were written over it.
+     */
+    private static User patched(final User current, final UserEntity changes) {
+        return User.builder()
+                .id(current.getId())
+                .firstName(changes.getFirstName() == null ? current.getFirstName() : changes.getFirstName())
+                .lastName(changes.getLastName() == null ? current.getLastName() : changes.getLastName())
+                .email(changes.getEmail() == null ? current.getEmail() : changes.getEmail())
+                .version(changes.getVersion())
+                .updatedAt(changes.getUpdatedAt().toInstant(ZoneOffset.UTC))
+                .build();
+    }
+
+    /**
+     * Copies everything but the password, which is only ever stored hashed.
+     */
+    static void copy(final User user, final UserEntity entity) {
+        entity.setFirstName(user.getFirstName());
+        entity.setLastName(user.getLastName());
+        entity.setEmail(user.getEmail());
+    }
+
+    static User toUser(final UserEntity entity) {
+        return User.builder()
+                .id(entity.getId())
+                .firstName(entity.getFirstName())
+                .lastName(entity.getLastName())
+                .email(entity.getEmail())
+                .version(entity.getVersion())
+                .updatedAt(entity.getUpdatedAt() == null ? null : entity.getUpdatedAt().toInstant(ZoneOffset.UTC))
+                .build();
+    }
+}
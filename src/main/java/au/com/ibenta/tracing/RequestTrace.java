@@ -0,0 +1,96 @@
+package au.com.ibenta.tracing;
+
+import brave.propagation.TraceContext;
+import org.slf4j.MDC;
+import reactor.core.publisher.Signal;
+import reactor.util.context.Context;
+
+import java.net.URI;
+import java.util.function.Consumer;
+
+/**
+ * The request and trace a reactive pipeline runs for, kept in the Reactor {@link Context} by {@link TracingWebFilter}.
+ * Nothing is rendered or copied to the {@link MDC} until a log statement asks for it through {@link #log(Context, Runnable)},
+ * {@link #logOnNext(Consumer)} or {@link #logOnError(Consumer)}, which fill the MDC for that statement only.
+ */
+public final class RequestTrace {
+
+    public static final String SERVICE_URL = "serviceUrl";
+    public static final String TRACE_ID = "traceId";
+    public static final String SPAN_ID = "spanId";
+
+    private final URI uri;
+    private final TraceContext traceContext;
+
+    RequestTrace(final URI uri, final TraceContext traceContext) {
+        this.uri = uri;
+        this.traceContext = traceContext;
+    }
+
+    public String getServiceUrl() {
+        return uri.toString();
+    }
+
+    public String getTraceId() {
+        return traceContext == null ? null : traceContext.traceIdString();
+    }
+
+    public String getSpanId() {
+        return traceContext == null ? null : traceContext.spanIdString();
+    }
+
+    /**
+     * Runs {@code statement} with the MDC holding the trace of {@code context}, restoring the previous MDC afterwards.
+     */
+    public static void log(final Context context, final Runnable statement) {
+        final RequestTrace trace = context.getOrDefault(RequestTrace.class, null);
+        if (trace == null) {
+            statement.run();
+            return;
+        }
+
+        final var serviceUrl = MDC.get(SERVICE_URL);
+        final var traceId = MDC.get(TRACE_ID);
+        final var spanId = MDC.get(SPAN_ID);
+        try {
+            put(SERVICE_URL, trace.getServiceUrl());
+            put(TRACE_ID, trace.getTraceId());
+            put(SPAN_ID, trace.getSpanId());
+            statement.run();
+        } finally {
+            put(SERVICE_URL, serviceUrl);
+            put(TRACE_ID, traceId);
+            put(SPAN_ID, spanId);
+        }
+    }
+
+    /**
+     * For {@code doOnEach}, logs each element with the MDC of the subscriber context.
+     */
+    public static <T> Consumer<Signal<T>> logOnNext(final Consumer<T> statement) {
+        return signal -> {
+            if (signal.isOnNext()) {
+                log(signal.getContext(), () -> statement.accept(signal.get()));
+            }
+        };
+    }
+
+    /**
+     * For {@code doOnEach}, logs an error with the MDC of the subscriber context.
+     */
+    public static <T> Consumer<Signal<T>> logOnError(final Consumer<Throwable> statement) {
+        return signal -> {
+            if (signal.isOnError()) {
+                log(signal.getContext(), () -> statement.accept(signal.getThrowable()));
+            }
+        };
+    }
+
+    private static void put(final String key, final String value) {
+        if (value == null) {
+            MDC.remove(key);
+        } else {
+            MDC.put(key, value);
+        }
+    }
+}
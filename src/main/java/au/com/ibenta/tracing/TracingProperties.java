@@ -0,0 +1,15 @@
+package au.com.ibenta.tracing;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Data
+@ConfigurationProperties(prefix = "ibenta.tracing")
+public class TracingProperties {
+
+    /**
+     * Share of traces, from 0 to 1, whose responses carry the B3 trace and span id headers. The decision is taken
+     * from the trace id, so every service sampling at the same rate agrees on it.
+     */
+    private double headerSampleRate = 1.0;
+}
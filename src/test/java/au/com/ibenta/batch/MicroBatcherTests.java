@@ -0,0 +1,119 @@
+package au.com.ibenta.batch;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.everyItem;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+
+@DisplayName("test micro batcher")
+public class MicroBatcherTests {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final Queue<List<Integer>> batches = new ConcurrentLinkedQueue<>();
+    private final MicroBatchProperties properties = new MicroBatchProperties();
+
+    @Test
+    @DisplayName("test concurrent items are written in bounded batches and each caller gets its own result")
+    public void testBatches() {
+        properties.setEnabled(true);
+        properties.setMaxSize(10);
+        properties.setMaxDelay(Duration.ofMillis(50));
+        final var batcher = batcher();
+
+        final var results = Flux.range(1, 95)
+                .flatMap(i -> batcher.submit(i).map(doubled -> doubled - 2 * i), 256)
+                .collectList()
+                .block(Duration.ofSeconds(5));
+
+        assertThat(results, everyItem(is(0)));
+        assertThat(batches.stream().map(List::size).collect(Collectors.toList()), everyItem(lessThanOrEqualTo(10)));
+        assertThat(batches.stream().mapToInt(List::size).sum(), is(95));
+        assertThat(registry.get("batch.size").summary().count(), is((long) batches.size()));
+        assertThat(registry.get("batch.wait").timer().count(), is(95L));
+        // the last five waited for the timer rather than for a full batch
+        assertThat(registry.get("batch.wait").timer().max(TimeUnit.MILLISECONDS), greaterThanOrEqualTo(50.0));
+    }
+
+    @Test
+    @DisplayName("test an error blamed on one item fails only that item and any other fails the batch")
+    public void testErrors() {
+        properties.setEnabled(true);
+        properties.setMaxSize(4);
+        properties.setMaxDelay(Duration.ofSeconds(1));
+        final var batcher = batcher();
+
+        final var results = Flux.just(1, 2, -3, 4)
+                .flatMap(i -> batcher.submit(i).map(String::valueOf).onErrorResume(e -> Mono.just(e.getMessage())))
+                .collectList()
+                .block(Duration.ofSeconds(5));
+
+        assertThat(results.stream().sorted().collect(Collectors.toList()), is(List.of("2", "4", "8", "negative")));
+        assertThat(registry.get("batch.isolated").counter().count(), is(1.0));
+
+        StepVerifier.create(Flux.just(1, 0, 2, 3).flatMap(batcher::submit))
+                .expectErrorMessage("zero")
+                .verify(Duration.ofSeconds(5));
+    }
+
+    @Test
+    @DisplayName("test items with the same key are written in separate batches")
+    public void testRepeatedKeys() {
+        properties.setEnabled(true);
+        properties.setMaxSize(10);
+        properties.setMaxDelay(Duration.ofMillis(50));
+        final var batcher = batcher();
+
+        StepVerifier.create(Flux.just(1, 2, 1, 3, 1).flatMap(batcher::submit))
+                .expectNextCount(5)
+                .verifyComplete();
+
+        assertThat(batches, containsInAnyOrder(List.of(1, 2), List.of(1, 3), List.of(1)));
+    }
+
+    @Test
+    @DisplayName("test items are written one by one when batching is off")
+    public void testDisabled() {
+        StepVerifier.create(batcher().submit(21)).expectNext(42).verifyComplete();
+        assertThat(batches.size(), is(0));
+    }
+
+    private MicroBatcher<Integer, Integer> batcher() {
+        final var batcher = new MicroBatcher<Integer, Integer>("test", properties,
+                items -> Mono.fromCallable(() -> {
+                    batches.add(items);
+                    return items.stream().map(MicroBatcherTests::write).collect(Collectors.toList());
+                }).subscribeOn(Schedulers.boundedElastic()),
+                item -> Mono.fromCallable(() -> write(item)),
+                error -> error instanceof IllegalArgumentException,
+                item -> item);
+        batcher.bindTo(registry);
+        return batcher;
+    }
+
+    private static int write(final int item) {
+        if (item < 0) {
+            throw new IllegalArgumentException("negative");
+        }
+        if (item == 0) {
+            throw new IllegalStateException("zero");
+        }
+        return item * 2;
+    }
+}
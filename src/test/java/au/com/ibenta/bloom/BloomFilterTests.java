@@ -0,0 +1,48 @@
+package au.com.ibenta.bloom;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.stream.IntStream;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.closeTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+
+@DisplayName("test bloom filter")
+public class BloomFilterTests {
+
+    private static final int INSERTIONS = 100_000;
+    private static final double FALSE_POSITIVE_RATE = 0.01;
+
+    @Test
+    @DisplayName("test every added string is found and others are found at about the configured rate")
+    public void testFalsePositiveRate() {
+        final var filter = BloomFilter.create(INSERTIONS, FALSE_POSITIVE_RATE);
+        IntStream.range(0, INSERTIONS).parallel().forEach(i -> filter.put(email(i)));
+
+        final var missed = IntStream.range(0, INSERTIONS).filter(i -> !filter.mightContain(email(i))).count();
+        final var falsePositives = IntStream.range(INSERTIONS, 2 * INSERTIONS).filter(i -> filter.mightContain(email(i))).count();
+
+        assertThat(missed, is(0L));
+        assertThat((double) falsePositives / INSERTIONS, lessThan(FALSE_POSITIVE_RATE * 1.5));
+        assertThat(filter.expectedFalsePositiveRate(), closeTo(FALSE_POSITIVE_RATE, FALSE_POSITIVE_RATE / 5));
+        assertThat(filter.hashCount(), is(7));
+    }
+
+    @Test
+    @DisplayName("test putting a string again changes nothing")
+    public void testPutAgain() {
+        final var filter = BloomFilter.create(10, FALSE_POSITIVE_RATE);
+
+        assertThat(filter.put("first@ibenta.com.au"), is(true));
+        assertThat(filter.put("first@ibenta.com.au"), is(false));
+        assertThat(filter.mightContain("first@ibenta.com.au"), is(true));
+        assertThat(filter.mightContain("second@ibenta.com.au"), is(false));
+    }
+
+    private static String email(final int i) {
+        return "user" + i + "@ibenta.com.au";
+    }
+}
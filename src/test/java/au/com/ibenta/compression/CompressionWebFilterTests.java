@@ -0,0 +1,127 @@
+package au.com.ibenta.compression;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.reactivestreams.Publisher;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.util.unit.DataSize;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPInputStream;
+
+import static au.com.ibenta.compression.CompressionWebFilter.COMPRESSED_BYTES;
+import static au.com.ibenta.compression.CompressionWebFilter.SKIPPED_BYTES;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.Matchers.nullValue;
+
+@DisplayName("test compression web filter")
+public class CompressionWebFilterTests {
+
+    private static final String LARGE = "{\"users\":\"" + "first last ".repeat(200) + "\"}";
+    private static final String SMALL = "{\"users\":[]}";
+
+    private final DefaultDataBufferFactory factory = new DefaultDataBufferFactory();
+
+    private SimpleMeterRegistry registry;
+    private CompressionWebFilter filter;
+
+    @BeforeEach
+    public void setup() {
+        final var properties = new CompressionProperties();
+        properties.setMinResponseSize(DataSize.ofBytes(1024));
+        registry = new SimpleMeterRegistry();
+        filter = new CompressionWebFilter(properties, registry);
+    }
+
+    @Test
+    @DisplayName("test large bodies are compressed for clients accepting gzip")
+    public void testCompressed() throws IOException {
+        final var exchange = exchange("gzip, deflate");
+
+        write(exchange, MediaType.APPLICATION_JSON, Mono.just(buffer(LARGE)));
+
+        final var headers = exchange.getResponse().getHeaders();
+        final var body = body(exchange);
+        assertThat(headers.getFirst(HttpHeaders.CONTENT_ENCODING), is("gzip"));
+        assertThat(headers.getFirst(HttpHeaders.VARY), is(HttpHeaders.ACCEPT_ENCODING));
+        assertThat(headers.getContentLength(), is((long) body.length));
+        assertThat(body.length, lessThan(LARGE.length() / 10));
+        assertThat(gunzip(body), is(LARGE));
+        assertThat(registry.get(COMPRESSED_BYTES).tag("stage", "in").counter().count(), is((double) LARGE.length()));
+        assertThat(registry.get(COMPRESSED_BYTES).tag("stage", "out").counter().count(), is((double) body.length));
+    }
+
+    @Test
+    @DisplayName("test streamed bodies are compressed from their first buffer")
+    public void testCompressedStream() throws IOException {
+        final var exchange = exchange("gzip");
+
+        write(exchange, MediaType.APPLICATION_PROBLEM_JSON, Flux.just(buffer(LARGE), buffer(SMALL)));
+
+        assertThat(exchange.getResponse().getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING), is("gzip"));
+        assertThat(exchange.getResponse().getHeaders().getFirst(HttpHeaders.CONTENT_LENGTH), nullValue());
+        assertThat(gunzip(body(exchange)), is(LARGE + SMALL));
+    }
+
+    @Test
+    @DisplayName("test small, unlisted or unaccepted bodies are sent as they are")
+    public void testSkipped() {
+        final var small = exchange("gzip");
+        write(small, MediaType.APPLICATION_JSON, Mono.just(buffer(SMALL)));
+        final var binary = exchange("gzip");
+        write(binary, MediaType.IMAGE_PNG, Mono.just(buffer(LARGE)));
+        final var identity = exchange("gzip;q=0, identity");
+        write(identity, MediaType.APPLICATION_JSON, Mono.just(buffer(LARGE)));
+
+        for (final var exchange : new MockServerWebExchange[]{small, binary, identity}) {
+            assertThat(exchange.getResponse().getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING), nullValue());
+        }
+        assertThat(new String(body(identity), StandardCharsets.UTF_8), is(LARGE));
+        assertThat(registry.get(SKIPPED_BYTES).tag("reason", "size").counter().count(), is((double) SMALL.length()));
+        assertThat(registry.get(SKIPPED_BYTES).tag("reason", "type").counter().count(), is((double) LARGE.length()));
+        assertThat(registry.get(SKIPPED_BYTES).tag("reason", "encoding").counter().count(), is((double) LARGE.length()));
+    }
+
+    private MockServerWebExchange exchange(final String acceptEncoding) {
+        return MockServerWebExchange.from(MockServerHttpRequest.get("/users").header(HttpHeaders.ACCEPT_ENCODING, acceptEncoding));
+    }
+
+    private void write(final MockServerWebExchange exchange, final MediaType contentType, final Publisher<DataBuffer> body) {
+        filter.filter(exchange, filtered -> {
+            final var response = filtered.getResponse();
+            response.getHeaders().setContentType(contentType);
+            return response.writeWith(body);
+        }).block();
+    }
+
+    private DataBuffer buffer(final String content) {
+        return factory.wrap(content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static byte[] body(final MockServerWebExchange exchange) {
+        final var joined = DataBufferUtils.join(exchange.getResponse().getBody()).block();
+        final var bytes = new byte[joined.readableByteCount()];
+        joined.read(bytes);
+        return bytes;
+    }
+
+    private static String gunzip(final byte[] compressed) throws IOException {
+        try (final var input = new GZIPInputStream(new ByteArrayInputStream(compressed))) {
+            return new String(input.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+}
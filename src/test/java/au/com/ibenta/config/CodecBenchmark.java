@@ -0,0 +1,93 @@
+package au.com.ibenta.config;
+
+import au.com.ibenta.test.model.User;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.Module;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.module.afterburner.AfterburnerModule;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+/**
+ * Encoding and decoding a page of users in each negotiated format, with and without Afterburner. The payload size of
+ * every format is printed during setup.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CodecBenchmark {
+
+    private static final int PAGE_SIZE = 20;
+    private static final TypeReference<List<User>> USERS = new TypeReference<>() {
+    };
+    private static final Map<String, Supplier<JsonFactory>> FACTORIES = Map.of(
+            "json", JsonFactory::new,
+            "smile", SmileFactory::new,
+            "cbor", CBORFactory::new);
+
+    @Param({"json", "smile", "cbor"})
+    private String format;
+
+    @Param({"true", "false"})
+    private boolean afterburner;
+
+    private ObjectMapper mapper;
+    private List<User> page;
+    private byte[] encoded;
+
+    @Setup
+    public void setup() throws JsonProcessingException {
+        final List<Module> modules = afterburner ? List.of(new AfterburnerModule()) : List.of();
+        mapper = new ObjectMapper(FACTORIES.get(format).get());
+        new WebConfiguration().configureObjectMapper(modules).configure(mapper);
+        page = LongStream.rangeClosed(1, PAGE_SIZE).mapToObj(CodecBenchmark::user).collect(Collectors.toList());
+        encoded = mapper.writeValueAsBytes(page);
+        System.out.printf("%n%s page of %d users: %d bytes%n", format, PAGE_SIZE, encoded.length);
+    }
+
+    @Benchmark
+    public byte[] encodeUserPage() throws JsonProcessingException {
+        return mapper.writeValueAsBytes(page);
+    }
+
+    @Benchmark
+    public List<User> decodeUserPage() throws IOException {
+        return mapper.readValue(encoded, USERS);
+    }
+
+    private static User user(final long id) {
+        return User.builder()
+                .id(id)
+                .firstName("first")
+                .lastName("last")
+                .email(id + "@ibenta.com.au")
+                .version(3L)
+                .updatedAt(Instant.parse("2026-10-18T18:20:00Z"))
+                .build();
+    }
+}
@@ -0,0 +1,90 @@
+package au.com.ibenta.config;
+
+import au.com.ibenta.problem.ProblemRenderingModule;
+import au.com.ibenta.template.Template;
+import au.com.ibenta.test.model.User;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.zalando.problem.ProblemModule;
+import org.zalando.problem.violations.ConstraintViolationProblemModule;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+/**
+ * Jackson (de)serialization of response bodies through the {@link WebConfiguration} object mapper, with the module
+ * beans the application context installs in it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JacksonBenchmark {
+
+    private static final int PAGE_SIZE = 20;
+
+    private ObjectMapper mapper;
+    private Template template;
+    private User user;
+    private List<User> page;
+    private byte[] userJson;
+
+    @Setup
+    public void setup() throws JsonProcessingException {
+        final var configuration = new WebConfiguration();
+        mapper = configuration.configureObjectMapper(List.of(configuration.afterburnerModule(),
+                new ProblemModule().withStackTraces(), new ProblemRenderingModule(), new ConstraintViolationProblemModule()))
+                .build();
+        template = Template.builder().id("1").name("template").build();
+        user = user(1);
+        page = LongStream.rangeClosed(1, PAGE_SIZE).mapToObj(JacksonBenchmark::user).collect(Collectors.toList());
+        userJson = mapper.writeValueAsBytes(user);
+    }
+
+    @Benchmark
+    public byte[] writeTemplate() throws JsonProcessingException {
+        return mapper.writeValueAsBytes(template);
+    }
+
+    @Benchmark
+    public byte[] writeUser() throws JsonProcessingException {
+        return mapper.writeValueAsBytes(user);
+    }
+
+    @Benchmark
+    public byte[] writeUserPage() throws JsonProcessingException {
+        return mapper.writeValueAsBytes(page);
+    }
+
+    @Benchmark
+    public User readUser() throws IOException {
+        return mapper.readValue(userJson, User.class);
+    }
+
+    private static User user(final long id) {
+        return User.builder()
+                .id(id)
+                .firstName("first")
+                .lastName("last")
+                .email(id + "@ibenta.com.au")
+                .version(3L)
+                .updatedAt(Instant.parse("2026-10-18T18:20:00Z"))
+                .build();
+    }
+}
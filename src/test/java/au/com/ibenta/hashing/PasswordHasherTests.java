@@ -0,0 +1,70 @@
+package au.com.ibenta.hashing;
+
+import au.com.ibenta.offload.BulkheadExecutor;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.allOf;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.hamcrest.Matchers.startsWith;
+
+@DisplayName("test password hasher")
+public class PasswordHasherTests {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final BulkheadExecutor executor = new BulkheadExecutor("hashing", 2, 4);
+    private final Scheduler scheduler = Schedulers.fromExecutorService(executor, executor.getName());
+
+    @AfterEach
+    public void teardown() {
+        scheduler.dispose();
+    }
+
+    @Test
+    @DisplayName("test hashes are made and matched off the calling thread")
+    public void testEncodeAndMatch() {
+        final var hasher = hasher(4);
+        final var hash = hasher.encode("secret").block();
+
+        assertThat(hash, startsWith("$2a$04$"));
+        StepVerifier.create(hasher.matches("secret", hash)).expectNext(true).verifyComplete();
+        StepVerifier.create(hasher.matches("wrong", hash)).expectNext(false).verifyComplete();
+        assertThat(registry.get("password.hash").tag("operation", "encode").timer().count(), is(1L));
+        assertThat(registry.get("password.hash").tag("operation", "match").timer().count(), is(2L));
+        assertThat(registry.get("password.hash.strength").gauge().value(), is(4.0));
+    }
+
+    @Test
+    @DisplayName("test hashes made with a lower work factor are upgraded")
+    public void testUpgradeEncoding() {
+        final var hash = hasher(4).encode("secret").block();
+
+        assertThat(hasher(4).upgradeEncoding(hash), is(false));
+        assertThat(hasher(5).upgradeEncoding(hash), is(true));
+        StepVerifier.create(hasher(5).matches("secret", hash)).expectNext(true).verifyComplete();
+    }
+
+    @Test
+    @DisplayName("test calibration stays within bounds")
+    public void testCalibrate() {
+        assertThat(PasswordHasher.calibrate(Duration.ZERO, 4, 8), is(4));
+        assertThat(PasswordHasher.calibrate(Duration.ofDays(1), 4, 8), is(8));
+        assertThat(PasswordHasher.calibrate(Duration.ofMillis(20), 4, 12), allOf(greaterThanOrEqualTo(4), lessThanOrEqualTo(12)));
+    }
+
+    private PasswordHasher hasher(final int strength) {
+        final var hasher = new PasswordHasher(strength, scheduler, executor.getMaximumPoolSize());
+        hasher.bindTo(registry);
+        return hasher;
+    }
+}
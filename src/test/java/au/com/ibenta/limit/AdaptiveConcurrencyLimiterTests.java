@@ -0,0 +1,144 @@
+package au.com.ibenta.limit;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+import reactor.test.scheduler.VirtualTimeScheduler;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+
+@DisplayName("test adaptive concurrency limiter")
+public class AdaptiveConcurrencyLimiterTests {
+
+    private static final int THREADS = 4;
+    private static final int OFFERED = 2000;
+    private static final Duration SERVICE_TIME = Duration.ofMillis(10);
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    @Test
+    @DisplayName("test calls over the limit are rejected and counted")
+    public void testRejection() {
+        final var properties = new ConcurrencyLimitProperties();
+        properties.setInitialLimit(1);
+        properties.setMinLimit(1);
+        final var limiter = new AdaptiveConcurrencyLimiter("test", properties);
+        limiter.bindTo(registry);
+
+        final var first = limiter.limit(Mono.delay(Duration.ofMillis(200))).subscribe();
+
+        StepVerifier.create(limiter.limit(Flux.just(1)))
+                .verifyError(ConcurrencyLimitExceededException.class);
+        assertThat(registry.get("concurrency.inflight").tag("limiter", "test").gauge().value(), is(1.0));
+        assertThat(registry.get("concurrency.rejected").tag("limiter", "test").counter().count(), is(1.0));
+
+        first.dispose();
+        assertThat(limiter.getInFlight(), is(0));
+    }
+
+    @Test
+    @DisplayName("test a full bulkhead cuts the limit")
+    public void testBackoff() {
+        final var limiter = new AdaptiveConcurrencyLimiter("test", new ConcurrencyLimitProperties());
+
+        StepVerifier.create(limiter.limit(Mono.error(new RejectedExecutionException("full"))))
+                .verifyError(RejectedExecutionException.class);
+
+        assertThat(limiter.getLimit(), is(18));
+    }
+
+    @Test
+    @DisplayName("test p99 latency stays bounded when offered more than the database can take")
+    public void testOverload() {
+        final var unlimited = new ConcurrencyLimitProperties();
+        unlimited.setEnabled(false);
+        final var clock = VirtualTimeScheduler.create();
+        final var limiter = new AdaptiveConcurrencyLimiter("test", new ConcurrencyLimitProperties(), () -> clock.now(NANOSECONDS));
+
+        final var queued = overload(new AdaptiveConcurrencyLimiter("test", unlimited), VirtualTimeScheduler.create());
+        final var limited = overload(limiter, clock);
+
+        // with 4 threads at 10ms, a call finds about limit / 4 * 10ms of work ahead of it, while the database keeps
+        // serving close to the 800 calls it can take in two seconds
+        assertThat(queued.percentile(0.99), greaterThan(Duration.ofMillis(1000)));
+        assertThat(limited.percentile(0.99), lessThan(Duration.ofMillis(150)));
+        assertThat(limited.latencies.size(), greaterThan(700));
+        assertThat(limited.rejected.get(), greaterThan(0));
+        assertThat(limiter.getLimit(), lessThan(40));
+    }
+
+    /**
+     * Offers calls at one per millisecond for two seconds of virtual time to a {@link Database}, two and a half times
+     * what it can serve, whatever the latency.
+     */
+    private static Load overload(final AdaptiveConcurrencyLimiter limiter, final VirtualTimeScheduler clock) {
+        final var load = new Load();
+        final var database = new Database(clock);
+        Flux.interval(Duration.ofMillis(1), clock)
+                .take(OFFERED)
+                .flatMap(tick -> {
+                    final var start = clock.now(NANOSECONDS);
+                    return limiter.limit(database.query())
+                            .doOnSuccess(result -> load.latencies.add(clock.now(NANOSECONDS) - start))
+                            .onErrorResume(ConcurrencyLimitExceededException.class, rejection -> {
+                                load.rejected.incrementAndGet();
+                                return Mono.empty();
+                            });
+                }, Integer.MAX_VALUE)
+                .subscribe();
+        clock.advanceTimeBy(Duration.ofMinutes(1));
+        return load;
+    }
+
+    /**
+     * A database taking {@link #SERVICE_TIME} per call on {@link #THREADS} threads, which serve calls in the order
+     * they arrive.
+     */
+    private static final class Database {
+
+        private final VirtualTimeScheduler clock;
+        private final long[] freeAt = new long[THREADS];
+
+        private Database(final VirtualTimeScheduler clock) {
+            this.clock = clock;
+        }
+
+        private Mono<Integer> query() {
+            return Mono.defer(() -> {
+                final var now = clock.now(NANOSECONDS);
+                var thread = 0;
+                for (int i = 1; i < THREADS; i++) {
+                    thread = freeAt[i] < freeAt[thread] ? i : thread;
+                }
+                freeAt[thread] = Math.max(now, freeAt[thread]) + SERVICE_TIME.toNanos();
+                return Mono.delay(Duration.ofNanos(freeAt[thread] - now), clock).thenReturn(1);
+            });
+        }
+    }
+
+    private static final class Load {
+
+        private final List<Long> latencies = new ArrayList<>();
+        private final AtomicInteger rejected = new AtomicInteger();
+
+        private Duration percentile(final double percentile) {
+            final List<Long> sorted = new ArrayList<>(latencies);
+            Collections.sort(sorted);
+            return Duration.ofNanos(sorted.get((int) Math.ceil(percentile * sorted.size()) - 1));
+        }
+    }
+}
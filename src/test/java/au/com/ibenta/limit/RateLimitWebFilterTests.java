@@ -0,0 +1,133 @@
+package au.com.ibenta.limit;
+
+import au.com.ibenta.problem.ProblemHandler;
+import au.com.ibenta.problem.ProblemProperties;
+import au.com.ibenta.problem.ProblemRenderingModule;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.zalando.problem.ProblemModule;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+
+@DisplayName("test rate limit web filter")
+public class RateLimitWebFilterTests {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    private RateLimitProperties properties;
+    private RateLimitWebFilter filter;
+
+    @BeforeEach
+    public void setup() {
+        final var export = new RateLimitProperties.Route();
+        export.setName("export");
+        export.setPath("/users/export");
+        export.setMethods(Set.of(HttpMethod.GET));
+        export.setRequestsPerSecond(0.1);
+        export.setBurst(1);
+        final var actuator = new RateLimitProperties.Route();
+        actuator.setName("actuator");
+        actuator.setPath("/actuator/**");
+
+        properties = new RateLimitProperties();
+        properties.setRequestsPerSecond(1);
+        properties.setBurst(2);
+        properties.setRoutes(List.of(export, actuator));
+        properties.setApiKeys(Set.of("partner"));
+
+        final var mapper = new ObjectMapper().registerModule(new ProblemModule());
+        filter = new RateLimitWebFilter(properties, new ProblemHandler(new ProblemProperties(), new ProblemRenderingModule(), registry), mapper);
+        filter.bindTo(registry);
+    }
+
+    @Test
+    @DisplayName("test requests past the burst get a 429 problem with Retry-After")
+    public void testThrottled() {
+        assertThat(status(filter(get("/users/1"))), is(HttpStatus.OK));
+        assertThat(status(filter(get("/users/2"))), is(HttpStatus.OK));
+
+        final var throttled = filter(get("/users/3"));
+        final var response = throttled.getResponse();
+        assertThat(response.getStatusCode(), is(HttpStatus.TOO_MANY_REQUESTS));
+        assertThat(response.getHeaders().getFirst(HttpHeaders.RETRY_AFTER), is("1"));
+        assertThat(response.getHeaders().getContentType(), is(MediaType.APPLICATION_PROBLEM_JSON));
+        assertThat(response.getBodyAsString().block(), containsString("\"status\":429"));
+        assertThat(registry.get(RateLimitWebFilter.THROTTLED).tag("route", "default").counter().count(), is(1.0));
+        assertThat(registry.get(ProblemHandler.PROBLEMS).tag("status", "429").counter().count(), is(1.0));
+    }
+
+    @Test
+    @DisplayName("test routes have limits of their own and clients are told apart by known api keys")
+    public void testRoutesAndClients() {
+        assertThat(status(filter(get("/users/export"))), is(HttpStatus.OK));
+        final var export = filter(get("/users/export"));
+        assertThat(status(export), is(HttpStatus.TOO_MANY_REQUESTS));
+        assertThat(export.getResponse().getHeaders().getFirst(HttpHeaders.RETRY_AFTER), is("10"));
+
+        assertThat(status(filter(get("/users/1"))), is(HttpStatus.OK));
+        assertThat(status(filter(MockServerHttpRequest.get("/users/export").header("X-API-Key", "partner"))), is(HttpStatus.OK));
+        assertThat(status(filter(MockServerHttpRequest.get("/users/export").header("X-API-Key", "made up"))), is(HttpStatus.TOO_MANY_REQUESTS));
+        assertThat(registry.get(RateLimitWebFilter.THROTTLED).tag("route", "export").counter().count(), is(2.0));
+    }
+
+    @Test
+    @DisplayName("test clients behind trusted proxies are told apart by the address the proxies forwarded")
+    public void testForwarded() {
+        properties.setTrustedHops(2);
+
+        // the first entry is made up by the client, the proxies appended the other two
+        assertThat(status(filter(forwarded("10.0.0.1, 203.0.113.7", "172.16.0.2"))), is(HttpStatus.OK));
+        assertThat(status(filter(forwarded("10.0.0.2, 203.0.113.7, 172.16.0.2"))), is(HttpStatus.TOO_MANY_REQUESTS));
+        assertThat(status(filter(forwarded("203.0.113.8, 172.16.0.2"))), is(HttpStatus.OK));
+
+        // a request that did not come through every proxy falls back to its remote address
+        assertThat(status(filter(forwarded("203.0.113.9"))), is(HttpStatus.OK));
+        assertThat(status(filter(get("/users/export"))), is(HttpStatus.TOO_MANY_REQUESTS));
+    }
+
+    @Test
+    @DisplayName("test routes without a rate are not limited")
+    public void testUnlimited() {
+        for (int i = 0; i < 10; i++) {
+            assertThat(status(filter(get("/actuator/health"))), is(HttpStatus.OK));
+        }
+        assertThat(registry.find(RateLimitWebFilter.THROTTLED).tag("route", "actuator").counter(), nullValue());
+    }
+
+    private MockServerWebExchange filter(final MockServerHttpRequest.BaseBuilder<?> request) {
+        final var exchange = MockServerWebExchange.from(request.accept(MediaType.APPLICATION_JSON));
+        filter.filter(exchange, chained -> {
+            chained.getResponse().setStatusCode(HttpStatus.OK);
+            return Mono.empty();
+        }).block();
+        return exchange;
+    }
+
+    private static MockServerHttpRequest.BaseBuilder<?> get(final String path) {
+        return MockServerHttpRequest.get(path);
+    }
+
+    private static MockServerHttpRequest.BaseBuilder<?> forwarded(final String... forwardedFor) {
+        return get("/users/export").header("X-Forwarded-For", forwardedFor);
+    }
+
+    private static HttpStatus status(final MockServerWebExchange exchange) {
+        return exchange.getResponse().getStatusCode();
+    }
+}
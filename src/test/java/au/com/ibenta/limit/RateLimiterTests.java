@@ -0,0 +1,79 @@
+package au.com.ibenta.limit;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+@DisplayName("test rate limiter")
+public class RateLimiterTests {
+
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    @Test
+    @DisplayName("test a full bucket lets the burst through and then refills at the rate")
+    public void testBurstThenRate() {
+        final var limiter = new RateLimiter("test", 10, 5, 100);
+        final var now = System.nanoTime();
+
+        IntStream.range(0, 5).forEach(i -> assertThat(limiter.tryAcquire("client", now), is(0L)));
+        assertThat(limiter.tryAcquire("client", now), is(SECOND / 10));
+        assertThat(limiter.tryAcquire("other", now), is(0L));
+
+        assertThat(limiter.tryAcquire("client", now + SECOND / 10), is(0L));
+        assertThat(limiter.tryAcquire("client", now + SECOND / 10), is(SECOND / 10));
+        assertThat(limiter.tryAcquire("client", now + 2 * SECOND / 10), is(0L));
+    }
+
+    @Test
+    @DisplayName("test concurrent requests take exactly the tokens there are")
+    public void testConcurrent() {
+        final var registry = new SimpleMeterRegistry();
+        final var limiter = new RateLimiter("test", 1, 1_000, 100);
+        limiter.bindTo(registry);
+        final var now = System.nanoTime();
+
+        final var allowed = IntStream.range(0, 10_000).parallel().filter(i -> limiter.tryAcquire("client", now) == 0).count();
+
+        assertThat(allowed, is(1_000L));
+        assertThat(registry.get(RateLimitWebFilter.THROTTLED).tag("route", "test").counter().count(), is(9_000.0));
+    }
+
+    @Test
+    @DisplayName("test idle clients are forgotten once their bucket is full again")
+    public void testIdleEviction() {
+        final var time = new AtomicLong(System.nanoTime());
+        final var limiter = new RateLimiter("test", 1, 2, 100, time::get);
+
+        assertThat(limiter.tryAcquire("client", time.get()), is(0L));
+        assertThat(limiter.tryAcquire("client", time.get()), is(0L));
+        assertThat(limiter.tryAcquire("client", time.get()), is(SECOND));
+
+        time.addAndGet(SECOND);
+        limiter.cleanUp();
+        assertThat(limiter.getClients(), is(1L));
+
+        time.addAndGet(2 * SECOND);
+        limiter.cleanUp();
+        assertThat(limiter.getClients(), is(0L));
+        assertThat(limiter.tryAcquire("client", time.get()), is(0L));
+    }
+
+    @Test
+    @DisplayName("test clients past the maximum are forgotten rather than sharing a bucket")
+    public void testMaxClients() {
+        final var limiter = new RateLimiter("test", 1, 1, 2);
+        final var now = System.nanoTime();
+
+        IntStream.range(0, 10).forEach(i -> assertThat(limiter.tryAcquire("client" + i, now), is(0L)));
+        limiter.cleanUp();
+
+        assertThat(limiter.getClients(), is(2L));
+    }
+}
@@ -0,0 +1,37 @@
+package au.com.ibenta.metrics;
+
+import au.com.ibenta.template.BaseTestClass;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.not;
+
+@DisplayName("test route metrics")
+@AutoConfigureWebTestClient
+public class RouteMetricsWebFilterTests extends BaseTestClass {
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @Test
+    @DisplayName("test requests are measured per route pattern")
+    public void testRouteMetrics() {
+        webTestClient.get().uri("/template/{id}", 1).exchange().expectStatus().isOk();
+        webTestClient.get().uri("/template/{id}", 2).exchange().expectStatus().isOk();
+
+        final var metrics = webTestClient.get().uri("/actuator/metrics")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(String.class).returnResult().getResponseBody();
+
+        assertThat(metrics, containsString("http_server_requests_seconds_bucket{exception=\"None\",method=\"GET\",outcome=\"SUCCESS\",status=\"200\",uri=\"/template/{id}\",le=\"0.1\",}"));
+        assertThat(metrics, containsString("http_server_response_size_bytes_bucket{method=\"GET\",uri=\"/template/{id}\",le=\"1024.0\",}"));
+        assertThat(metrics, containsString("http_server_requests_active{method=\"GET\",}"));
+        assertThat(metrics, not(containsString("uri=\"/template/1\"")));
+    }
+}
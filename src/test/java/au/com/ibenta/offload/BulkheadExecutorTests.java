@@ -0,0 +1,77 @@
+package au.com.ibenta.offload;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import reactor.test.StepVerifier;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.startsWith;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@DisplayName("test bulkhead executor")
+public class BulkheadExecutorTests {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    private BulkheadExecutor executor;
+
+    @BeforeEach
+    public void setup() {
+        executor = new BulkheadExecutor("test", 1, 1);
+        executor.bindTo(registry);
+    }
+
+    @AfterEach
+    public void teardown() {
+        release.countDown();
+        executor.shutdownNow();
+    }
+
+    @Test
+    @DisplayName("test work beyond threads and queue is rejected")
+    public void testRejection() throws InterruptedException {
+        final var started = new CountDownLatch(1);
+        executor.execute(() -> {
+            started.countDown();
+            await();
+        });
+        started.await();
+        executor.execute(this::await);
+
+        assertThrows(RejectedExecutionException.class, () -> executor.execute(this::await));
+
+        assertThat(registry.get("offload.rejected").tag("bulkhead", "test").counter().count(), is(1.0));
+        assertThat(registry.get("offload.queue.depth").tag("bulkhead", "test").gauge().value(), is(1.0));
+        assertThat(registry.get("offload.active").tag("bulkhead", "test").gauge().value(), is(1.0));
+    }
+
+    @Test
+    @DisplayName("test work runs on bulkhead threads and records wait time")
+    public void testScheduler() {
+        final var scheduler = Schedulers.fromExecutorService(executor);
+
+        StepVerifier.create(Mono.fromCallable(() -> Thread.currentThread().getName()).subscribeOn(scheduler))
+                .assertNext(thread -> assertThat(thread, startsWith("test-offload-")))
+                .verifyComplete();
+
+        assertThat(registry.get("offload.wait").tag("bulkhead", "test").timer().count(), is(1L));
+    }
+
+    private void await() {
+        try {
+            release.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
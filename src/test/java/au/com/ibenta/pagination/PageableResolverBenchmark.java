@@ -0,0 +1,260 @@
+package au.com.ibenta.pagination;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.autoconfigure.data.web.SpringDataWebProperties;
+import org.springframework.core.MethodParameter;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.web.PageableHandlerMethodArgumentResolver;
+import org.springframework.data.web.SortHandlerMethodArgumentResolver;
+import org.springframework.lang.NonNull;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.util.MultiValueMap;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.reactive.BindingContext;
+
+import java.security.Principal;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of resolving page requests per call, against Spring Data's own {@link PageableHandlerMethodArgumentResolver}
+ * reading the same query through a {@link NativeWebRequest} adapter as a baseline. Run with {@code -prof gc} to see
+ * the bytes allocated per operation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PageableResolverBenchmark {
+
+    @Param({"/users", "/users?page=2&size=20&sort=email,desc", "/users?size=7&sort=lastName&sort=firstName,asc"})
+    private String uri;
+
+    private WebFluxPageableResolverSupport resolver;
+    private PageableHandlerMethodArgumentResolver servletResolver;
+    private MethodParameter pageable;
+    private MethodParameter keysetPageable;
+    private BindingContext bindingContext;
+    private MockServerWebExchange exchange;
+
+    @Setup
+    public void setup() throws NoSuchMethodException {
+        final var properties = new SpringDataWebProperties();
+        resolver = new PaginationConfiguration().pageableResolver(properties);
+        servletResolver = new PageableHandlerMethodArgumentResolver(new SortHandlerMethodArgumentResolver());
+        servletResolver.setMaxPageSize(properties.getPageable().getMaxPageSize());
+        servletResolver.setFallbackPageable(PageRequest.of(0, properties.getPageable().getDefaultPageSize()));
+        pageable = new MethodParameter(PageableResolverBenchmark.class.getDeclaredMethod("list", Pageable.class), 0);
+        keysetPageable = new MethodParameter(PageableResolverBenchmark.class.getDeclaredMethod("list", KeysetPageable.class), 0);
+        bindingContext = new BindingContext();
+        exchange = MockServerWebExchange.from(MockServerHttpRequest.get(uri));
+    }
+
+    @Benchmark
+    public Object resolvePageable() {
+        return resolver.resolveArgument(pageable, bindingContext, exchange).block();
+    }
+
+    @Benchmark
+    public Object resolveKeysetPageable() {
+        return resolver.resolveArgument(keysetPageable, bindingContext, exchange).block();
+    }
+
+    @Benchmark
+    public Object resolvePageableBaseline() {
+        return servletResolver.resolveArgument(pageable, null, new QueryWebRequest(exchange.getRequest().getQueryParams()), null);
+    }
+
+    @SuppressWarnings("unused")
+    private void list(final Pageable pageable) {
+    }
+
+    @SuppressWarnings("unused")
+    private void list(final KeysetPageable pageable) {
+    }
+
+    /**
+     * Just enough of a {@link NativeWebRequest} for the servlet stack's resolvers, which only read parameters.
+     */
+    private static final class QueryWebRequest implements NativeWebRequest {
+
+        private final MultiValueMap<String, String> parameters;
+
+        private QueryWebRequest(final MultiValueMap<String, String> parameters) {
+            this.parameters = parameters;
+        }
+
+        @Override
+        public String getParameter(@NonNull final String name) {
+            return parameters.getFirst(name);
+        }
+
+        @Override
+        public String[] getParameterValues(@NonNull final String name) {
+            final var values = parameters.get(name);
+            return values == null ? null : values.toArray(new String[0]);
+        }
+
+        @NonNull
+        @Override
+        public Iterator<String> getParameterNames() {
+            return parameters.keySet().iterator();
+        }
+
+        @NonNull
+        @Override
+        public Map<String, String[]> getParameterMap() {
+            final var map = new LinkedHashMap<String, String[]>();
+            parameters.forEach((name, values) -> map.put(name, values.toArray(new String[0])));
+            return map;
+        }
+
+        @NonNull
+        @Override
+        public Object getNativeRequest() {
+            return parameters;
+        }
+
+        @Override
+        public Object getNativeResponse() {
+            return null;
+        }
+
+        @Override
+        public <T> T getNativeRequest(final Class<T> requiredType) {
+            return null;
+        }
+
+        @Override
+        public <T> T getNativeResponse(final Class<T> requiredType) {
+            return null;
+        }
+
+        @Override
+        public String getHeader(@NonNull final String headerName) {
+            return null;
+        }
+
+        @Override
+        public String[] getHeaderValues(@NonNull final String headerName) {
+            return null;
+        }
+
+        @NonNull
+        @Override
+        public Iterator<String> getHeaderNames() {
+            return Collections.emptyIterator();
+        }
+
+        @NonNull
+        @Override
+        public Locale getLocale() {
+            return Locale.getDefault();
+        }
+
+        @NonNull
+        @Override
+        public String getContextPath() {
+            return "";
+        }
+
+        @Override
+        public String getRemoteUser() {
+            return null;
+        }
+
+        @Override
+        public Principal getUserPrincipal() {
+            return null;
+        }
+
+        @Override
+        public boolean isUserInRole(@NonNull final String role) {
+            return false;
+        }
+
+        @Override
+        public boolean isSecure() {
+            return false;
+        }
+
+        @Override
+        public boolean checkNotModified(final long lastModifiedTimestamp) {
+            return false;
+        }
+
+        @Override
+        public boolean checkNotModified(final String etag) {
+            return false;
+        }
+
+        @Override
+        public boolean checkNotModified(final String etag, final long lastModifiedTimestamp) {
+            return false;
+        }
+
+        @NonNull
+        @Override
+        public String getDescription(final boolean includeClientInfo) {
+            return "query=" + parameters;
+        }
+
+        @Override
+        public Object getAttribute(@NonNull final String name, final int scope) {
+            return null;
+        }
+
+        @Override
+        public void setAttribute(@NonNull final String name, @NonNull final Object value, final int scope) {
+        }
+
+        @Override
+        public void removeAttribute(@NonNull final String name, final int scope) {
+        }
+
+        @NonNull
+        @Override
+        public String[] getAttributeNames(final int scope) {
+            return new String[0];
+        }
+
+        @Override
+        public void registerDestructionCallback(@NonNull final String name, @NonNull final Runnable callback, final int scope) {
+        }
+
+        @Override
+        public Object resolveReference(@NonNull final String key) {
+            return null;
+        }
+
+        @NonNull
+        @Override
+        public String getSessionId() {
+            return "";
+        }
+
+        @NonNull
+        @Override
+        public Object getSessionMutex() {
+            return this;
+        }
+    }
+}
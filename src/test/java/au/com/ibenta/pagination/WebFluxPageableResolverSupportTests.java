@@ -0,0 +1,110 @@
+package au.com.ibenta.pagination;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.data.web.SpringDataWebProperties;
+import org.springframework.core.MethodParameter;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.reactive.BindingContext;
+import reactor.test.StepVerifier;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.sameInstance;
+
+@DisplayName("test webflux pageable resolver")
+public class WebFluxPageableResolverSupportTests {
+
+    private final SpringDataWebProperties properties = new SpringDataWebProperties();
+
+    @Test
+    @DisplayName("test page, size and sort are read from the query")
+    public void testResolve() {
+        assertThat(resolve("/users"), is(PageRequest.of(0, 20)));
+        assertThat(resolve("/users?page=2&size=5"), is(PageRequest.of(2, 5)));
+        assertThat(resolve("/users?page=x&size=-1"), is(PageRequest.of(0, 20)));
+        assertThat(resolve("/users?size=5000"), is(PageRequest.of(0, 2000)));
+        assertThat(resolve("/users?sort=lastName,firstName,desc&sort=email"),
+                is(PageRequest.of(0, 20, Sort.by(Sort.Direction.DESC, "lastName", "firstName").and(Sort.by("email")))));
+        assertThat(resolve("/users?sort=email,asc,ignorecase"), is(PageRequest.of(0, 20, Sort.by(Sort.Order.asc("email").ignoreCase()))));
+    }
+
+    @Test
+    @DisplayName("test spring.data.web properties are honoured")
+    public void testProperties() {
+        properties.getPageable().setOneIndexedParameters(true);
+        properties.getPageable().setPrefix("p_");
+        properties.getPageable().setDefaultPageSize(10);
+        properties.getSort().setSortParameter("order");
+
+        assertThat(resolve("/users?p_page=1&p_size=3&order=email"), is(PageRequest.of(0, 3, Sort.by("email"))));
+        assertThat(resolve("/users?p_page=3"), is(PageRequest.of(2, 10)));
+        assertThat(resolve("qualified", "/users?p_users_page=2&users_order=email,desc"),
+                is(PageRequest.of(1, 10, Sort.by(Sort.Direction.DESC, "email"))));
+    }
+
+    @Test
+    @DisplayName("test repeated sort values are parsed once")
+    public void testSortCache() {
+        final var resolver = new WebFluxPageableResolverSupport(properties);
+        final var first = (Pageable) resolve(resolver, "list", "/users?sort=email,desc");
+        final var second = (Pageable) resolve(resolver, "list", "/users?page=1&sort=email,desc");
+
+        assertThat(second.getSort(), sameInstance(first.getSort()));
+    }
+
+    @Test
+    @DisplayName("test keyset pageables take their sort and cursor from the query")
+    public void testKeyset() {
+        final var resolver = new WebFluxPageableResolverSupport(properties);
+        final var pageable = (KeysetPageable) resolve(resolver, "keyset", "/users?size=7&sort=email,desc");
+
+        assertThat(pageable.getSize(), is(7));
+        assertThat(pageable.getOrder(), is(Sort.Order.desc("email")));
+
+        StepVerifier.create(resolver.resolveArgument(parameter("keyset"), new BindingContext(),
+                MockServerWebExchange.from(MockServerHttpRequest.get("/users?after=not-a-cursor"))))
+                .expectError(InvalidCursorException.class)
+                .verify();
+    }
+
+    private Object resolve(final String uri) {
+        return resolve("list", uri);
+    }
+
+    private Object resolve(final String method, final String uri) {
+        return resolve(new WebFluxPageableResolverSupport(properties), method, uri);
+    }
+
+    private static Object resolve(final WebFluxPageableResolverSupport resolver, final String method, final String uri) {
+        return resolver.resolveArgument(parameter(method), new BindingContext(), MockServerWebExchange.from(MockServerHttpRequest.get(uri)))
+                .block();
+    }
+
+    private static MethodParameter parameter(final String method) {
+        for (final var candidate : Handler.class.getDeclaredMethods()) {
+            if (candidate.getName().equals(method)) {
+                return new MethodParameter(candidate, 0);
+            }
+        }
+        throw new IllegalArgumentException(method);
+    }
+
+    @SuppressWarnings("unused")
+    private static class Handler {
+
+        void list(final Pageable pageable) {
+        }
+
+        void qualified(@Qualifier("users") final Pageable pageable) {
+        }
+
+        void keyset(final KeysetPageable pageable) {
+        }
+    }
+}
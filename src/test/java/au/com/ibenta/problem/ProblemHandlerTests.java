@@ -0,0 +1,143 @@
+package au.com.ibenta.problem;
+
+import au.com.ibenta.config.WebConfiguration;
+import au.com.ibenta.tracing.RequestTrace;
+import au.com.ibenta.tracing.TracingProperties;
+import au.com.ibenta.tracing.TracingWebFilter;
+import brave.Span;
+import brave.Tracing;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.read.ListAppender;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+import org.slf4j.MDC;
+import org.springframework.boot.autoconfigure.web.ServerProperties;
+import org.springframework.http.MediaType;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.server.WebFilterChain;
+import org.zalando.problem.Problem;
+import org.zalando.problem.Status;
+import org.zalando.problem.ThrowableProblem;
+import org.zalando.problem.spring.common.AdviceTraits;
+import reactor.util.context.Context;
+
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.nullValue;
+import static org.springframework.boot.autoconfigure.web.ErrorProperties.IncludeStacktrace.ALWAYS;
+
+@DisplayName("test problem handler")
+public class ProblemHandlerTests {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    private ObjectMapper mapper;
+    private ProblemHandler handler;
+
+    @BeforeEach
+    public void setup() {
+        final var serverProperties = new ServerProperties();
+        serverProperties.getError().setIncludeStacktrace(ALWAYS);
+        final var configuration = new ProblemConfiguration();
+        final var rendering = configuration.problemRenderingModule();
+        mapper = new WebConfiguration()
+                .configureObjectMapper(List.of(configuration.problemModule(serverProperties), rendering))
+                .build();
+
+        final var properties = new ProblemProperties();
+        properties.setStackTracesPerSecond(1);
+        handler = new ProblemHandler(properties, rendering, registry);
+    }
+
+    @Test
+    @DisplayName("test 5xx stack traces past the budget are left out without touching the problem")
+    public void testStackTraceBudget() throws Exception {
+        final var first = render(Problem.valueOf(Status.INTERNAL_SERVER_ERROR));
+        final var unsampled = Problem.valueOf(Status.INTERNAL_SERVER_ERROR);
+        final var second = render(unsampled);
+
+        assertThat(first, containsString("\"stacktrace\":[\""));
+        assertThat(second, not(containsString("stacktrace")));
+        assertThat(unsampled.getStackTrace().length, greaterThan(0));
+        assertThat(mapper.writeValueAsString(unsampled), containsString("\"stacktrace\":[\""));
+        assertThat(registry.get(ProblemHandler.PROBLEMS).tag("status", "500").tag("stacktrace", "true").counter().count(), is(1.0));
+        assertThat(registry.get(ProblemHandler.PROBLEMS).tag("status", "500").tag("stacktrace", "false").counter().count(), is(1.0));
+    }
+
+    @Test
+    @DisplayName("test 4xx problems are rendered without a stack trace and leave the budget to 5xx")
+    public void testClientErrors() throws Exception {
+        final var conflict = render(Problem.valueOf(Status.CONFLICT));
+        final var error = render(Problem.valueOf(Status.INTERNAL_SERVER_ERROR));
+
+        assertThat(conflict, not(containsString("stacktrace")));
+        assertThat(error, containsString("\"stacktrace\":[\""));
+        assertThat(registry.get(ProblemHandler.PROBLEMS).tag("status", "409").tag("stacktrace", "false").counter().count(), is(1.0));
+    }
+
+    @Test
+    @DisplayName("test static problems are rendered from the cached body without using the budget")
+    public void testStaticProblem() throws Exception {
+        final var first = render(new TeapotProblem("short and stout"));
+        final var second = render(new TeapotProblem("tall and thin"));
+        final var dynamic = render(Problem.valueOf(Status.INTERNAL_SERVER_ERROR));
+
+        assertThat(first, is("{\"title\":\"I'm a teapot\",\"status\":418,\"detail\":\"short and stout\"}"));
+        assertThat(second, is(first));
+        assertThat(dynamic, containsString("\"stacktrace\":[\""));
+    }
+
+    @Test
+    @DisplayName("test problems are logged with the trace of their request")
+    public void testLogTrace() {
+        final var appender = new ListAppender<ILoggingEvent>();
+        final var logger = (Logger) LoggerFactory.getLogger(AdviceTraits.class);
+        appender.start();
+        logger.addAppender(appender);
+        final var tracing = Tracing.newBuilder().build();
+        final var span = tracing.tracer().newTrace();
+        try {
+            final var exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/users/1").accept(MediaType.APPLICATION_JSON));
+            final WebFilterChain chain = ex -> handler.create(new IllegalStateException("sampled"), ex)
+                    .then(handler.create(new IllegalStateException("past the budget"), ex))
+                    .then();
+            new TracingWebFilter(new TracingProperties()).filter(exchange, chain)
+                    .subscriberContext(Context.of(Span.class, span))
+                    .block();
+        } finally {
+            logger.detachAppender(appender);
+            tracing.close();
+        }
+
+        assertThat(appender.list.size(), is(2));
+        for (final var event : appender.list) {
+            assertThat(event.getMDCPropertyMap().get(RequestTrace.SERVICE_URL), is("/users/1"));
+            assertThat(event.getMDCPropertyMap().get(RequestTrace.TRACE_ID), is(span.context().traceIdString()));
+        }
+        assertThat(MDC.get(RequestTrace.SERVICE_URL), is(nullValue()));
+    }
+
+    private String render(final ThrowableProblem problem) throws Exception {
+        final var exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/users/1").accept(MediaType.APPLICATION_JSON));
+        final var entity = handler.create(problem, exchange).block();
+        return mapper.writeValueAsString(entity.getBody());
+    }
+
+    private static final class TeapotProblem extends StaticThrowableProblem {
+
+        private TeapotProblem(final String detail) {
+            super(null, Status.I_AM_A_TEAPOT.getReasonPhrase(), Status.I_AM_A_TEAPOT, detail);
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package au.com.ibenta.problem;
+
+import au.com.ibenta.config.WebConfiguration;
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.web.ServerProperties;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.server.MethodNotAllowedException;
+import org.springframework.web.server.ResponseStatusException;
+import org.zalando.problem.Problem;
+import org.zalando.problem.Status;
+import org.zalando.problem.spring.common.AdviceTraits;
+import org.zalando.problem.spring.webflux.advice.ProblemExceptionHandler;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import static org.springframework.boot.autoconfigure.web.ErrorProperties.IncludeStacktrace.ALWAYS;
+import static org.springframework.http.HttpStatus.NOT_FOUND;
+import static org.springframework.http.HttpStatus.SERVICE_UNAVAILABLE;
+
+/**
+ * Rendering of framework errors by {@link ProblemExceptionHandler}, with stack traces enabled as in {@code application.yml}
+ * and a stack trace budget of unlimited or none. Each operation builds a fresh mock exchange to write the body to.
+ * {@link #writeStaticProblem()} shows the replayed body of a {@link StaticThrowableProblem} next to a regular one.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ProblemRenderingBenchmark {
+
+    @Param({"-1", "0"})
+    private int stackTracesPerSecond;
+
+    private ObjectMapper mapper;
+    private ProblemExceptionHandler handler;
+    private Throwable notFound;
+    private Throwable unavailable;
+    private Throwable methodNotAllowed;
+
+    @Setup
+    public void setup() {
+        // 5xx problems are logged with their stack trace, which would dominate the measurement
+        ((Logger) LoggerFactory.getLogger(AdviceTraits.class)).setLevel(Level.OFF);
+
+        final var serverProperties = new ServerProperties();
+        serverProperties.getError().setIncludeStacktrace(ALWAYS);
+        final var configuration = new ProblemConfiguration();
+        final var rendering = configuration.problemRenderingModule();
+        mapper = new WebConfiguration()
+                .configureObjectMapper(List.of(configuration.problemModule(serverProperties), rendering))
+                .build();
+
+        final var properties = new ProblemProperties();
+        properties.setStackTracesPerSecond(stackTracesPerSecond);
+        handler = new ProblemExceptionHandler(mapper, new ProblemHandler(properties, rendering, new SimpleMeterRegistry()));
+        notFound = new ResponseStatusException(NOT_FOUND, "user 1 does not exist");
+        unavailable = new ResponseStatusException(SERVICE_UNAVAILABLE, "bulkhead jdbc is full (10 threads, 256 queued)");
+        methodNotAllowed = new MethodNotAllowedException(HttpMethod.PATCH, Set.of(HttpMethod.GET, HttpMethod.PUT));
+    }
+
+    @Benchmark
+    public byte[] writeProblem() throws JsonProcessingException {
+        final var problem = Problem.valueOf(Status.UNAUTHORIZED, "invalid email or password");
+        problem.setStackTrace(new StackTraceElement[0]);
+        return mapper.writeValueAsBytes(problem);
+    }
+
+    @Benchmark
+    public byte[] writeStaticProblem() throws JsonProcessingException {
+        return mapper.writeValueAsBytes(new UnauthorizedProblem());
+    }
+
+    @Benchmark
+    public Object renderClientError() {
+        return render(notFound);
+    }
+
+    @Benchmark
+    public Object renderServerError() {
+        return render(unavailable);
+    }
+
+    @Benchmark
+    public Object renderMethodNotAllowed() {
+        return render(methodNotAllowed);
+    }
+
+    private Object render(final Throwable throwable) {
+        final var exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/users/1").accept(MediaType.APPLICATION_JSON));
+        handler.handle(exchange, throwable).block();
+        return exchange;
+    }
+
+    private static final class UnauthorizedProblem extends StaticThrowableProblem {
+
+        private UnauthorizedProblem() {
+            super(null, Status.UNAUTHORIZED.getReasonPhrase(), Status.UNAUTHORIZED, "invalid email or password");
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package au.com.ibenta.springfox;
+
+import com.fasterxml.classmate.TypeResolver;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.runner.ReactiveWebApplicationContextRunner;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import org.springframework.web.reactive.function.server.RouterFunction;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import springfox.documentation.schema.WildcardType;
+
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.sameInstance;
+import static springfox.documentation.schema.AlternateTypeRules.newRule;
+
+@DisplayName("test openapi document without runtime scanning")
+public class OpenApiDocumentConfigurationTests {
+
+    private final ReactiveWebApplicationContextRunner runner = new ReactiveWebApplicationContextRunner()
+            .withUserConfiguration(OpenApiDocumentConfiguration.class);
+
+    @Test
+    @DisplayName("test the generated document is served when scanning is disabled")
+    public void testServed() {
+        runner.withPropertyValues(OpenApiDocumentConfiguration.SCANNING_ENABLED + "=false").run(context ->
+                WebTestClient.bindToRouterFunction(context.getBean(RouterFunction.class)).build()
+                        .get().uri(OpenApiDocumentConfiguration.API_DOCS)
+                        .exchange()
+                        .expectStatus().isOk()
+                        .expectHeader().contentType(MediaType.APPLICATION_JSON)
+                        .expectBody().jsonPath("$.info.title").isEqualTo("fixture"));
+    }
+
+    @Test
+    @DisplayName("test the generated document is left to springfox while scanning")
+    public void testScanning() {
+        runner.run(context -> assertThat(context.getBeanNamesForType(RouterFunction.class).length, is(0)));
+    }
+
+    @Test
+    @DisplayName("test reactor types are unwrapped once per type")
+    public void testAlternateTypes() {
+        final var resolver = new TypeResolver();
+        final var rule = new RecursiveAlternateTypeRule(resolver, List.of(
+                newRule(resolver.resolve(Mono.class, WildcardType.class), resolver.resolve(WildcardType.class)),
+                newRule(resolver.resolve(Flux.class, WildcardType.class), resolver.resolve(List.class, WildcardType.class)),
+                newRule(resolver.resolve(ResponseEntity.class, WildcardType.class), resolver.resolve(WildcardType.class))));
+        final var type = resolver.resolve(Mono.class, resolver.resolve(ResponseEntity.class, resolver.resolve(Flux.class, String.class)));
+
+        final var alternate = rule.alternateFor(type);
+
+        assertThat(alternate, is(resolver.resolve(List.class, String.class)));
+        assertThat(rule.alternateFor(type), sameInstance(alternate));
+        assertThat(rule.appliesTo(type), is(true));
+        assertThat(rule.appliesTo(alternate), is(false));
+    }
+}
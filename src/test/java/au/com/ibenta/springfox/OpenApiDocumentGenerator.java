@@ -0,0 +1,47 @@
+package au.com.ibenta.springfox;
+
+import au.com.ibenta.Application;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Starts the application with Springfox scanning on and writes its Swagger document to the path given as the only
+ * argument, without the host it was fetched from. Run by the {@code openapi} Maven profile ahead of packaging.
+ */
+public final class OpenApiDocumentGenerator {
+
+    private OpenApiDocumentGenerator() {
+    }
+
+    public static void main(final String[] args) throws IOException, InterruptedException {
+        final var target = Path.of(args[0]);
+        // devtools would restart the application in a new thread, without the arguments
+        System.setProperty("spring.devtools.restart.enabled", "false");
+        try (final var context = new SpringApplicationBuilder(Application.class)
+                .properties("server.port=0", OpenApiDocumentConfiguration.SCANNING_ENABLED + "=true")
+                .run()) {
+            final var port = context.getEnvironment().getProperty("local.server.port");
+            final var request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + OpenApiDocumentConfiguration.API_DOCS))
+                    .build();
+            final var response = HttpClient.newHttpClient().send(request, HttpResponse.BodyHandlers.ofByteArray());
+            if (response.statusCode() != 200) {
+                throw new IllegalStateException("Swagger document not available: HTTP " + response.statusCode());
+            }
+
+            final var mapper = context.getBean(ObjectMapper.class);
+            final var document = (ObjectNode) mapper.readTree(response.body());
+            document.remove("host");
+            Files.createDirectories(target.getParent());
+            mapper.writeValue(target.toFile(), document);
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package au.com.ibenta.startup;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.LazyInitializationBeanFactoryPostProcessor;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.both;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+
+@DisplayName("test startup configuration")
+public class StartupConfigurationTests {
+
+    private static final List<String> CREATED = new ArrayList<>();
+
+    private final ApplicationContextRunner runner = new ApplicationContextRunner()
+            .withUserConfiguration(StartupConfiguration.class, Beans.class);
+
+    @Test
+    @DisplayName("test eager types are created at startup with lazy initialization")
+    public void testEagerTypes() {
+        CREATED.clear();
+        runner.withInitializer(context -> context.addBeanFactoryPostProcessor(new LazyInitializationBeanFactoryPostProcessor()))
+                .withPropertyValues("ibenta.startup.eager-types=" + Critical.class.getName())
+                .run(context -> {
+                    assertThat(CREATED, contains("critical"));
+                    context.getBean(Deferred.class);
+                    assertThat(CREATED, contains("critical", "deferred"));
+                });
+    }
+
+    @Test
+    @DisplayName("test beans are reported by their own creation time")
+    public void testSlowestBeans() {
+        runner.run(context -> {
+            final var slowest = context.getBean(BeanTimings.class).slowest(10).stream()
+                    .collect(Collectors.toMap(Map.Entry::getKey, bean -> bean.getValue().toMillis()));
+
+            // deferred waits for critical, which is not charged to it
+            assertThat(slowest.get("deferred"), is(both(greaterThanOrEqualTo(50L)).and(lessThan(140L))));
+            assertThat(slowest.get("critical"), greaterThanOrEqualTo(100L));
+            assertThat(context.getBean(StartupReport.class).format(), containsString("deferred"));
+        });
+    }
+
+    @Configuration
+    static class Beans {
+
+        @Bean
+        Critical critical() throws InterruptedException {
+            Thread.sleep(100);
+            CREATED.add("critical");
+            return new Critical();
+        }
+
+        @Bean
+        Deferred deferred(final Critical critical) throws InterruptedException {
+            Thread.sleep(50);
+            CREATED.add("deferred");
+            return new Deferred();
+        }
+    }
+
+    static class Critical {
+    }
+
+    static class Deferred {
+    }
+}
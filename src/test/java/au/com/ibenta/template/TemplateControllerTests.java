@@ -53,6 +53,8 @@ public class TemplateControllerTests extends BaseTestClass {
                 .exchange().expectStatus().isEqualTo(error)
                 .expectBody()
                 .jsonPath("$.title").isEqualTo(error.getReasonPhrase())
-                .jsonPath("$.detail").isEqualTo(error.getReasonPhrase());
+                .jsonPath("$.status").isEqualTo(error.value())
+                .jsonPath("$.detail").isEqualTo(error.getReasonPhrase())
+                .jsonPath("$.stacktrace").doesNotExist();
     }
 }
@@ -0,0 +1,136 @@
+package au.com.ibenta.test.health;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+import reactor.test.StepVerifier;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static au.com.ibenta.test.health.AuthenticationHealthClient.FETCHES;
+import static au.com.ibenta.test.health.AuthenticationHealthClient.STALE;
+import static au.com.ibenta.test.health.AuthenticationHealthController.STALE_WARNING;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.everyItem;
+import static org.hamcrest.Matchers.is;
+
+@DisplayName("test authentication-service health client")
+public class AuthenticationHealthClientTests {
+
+    private static final String UP = "{\"status\":\"UP\"}";
+
+    private final AtomicInteger fetches = new AtomicInteger();
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    private volatile int status = 200;
+    private volatile Duration delay = Duration.ZERO;
+    private DisposableServer stub;
+    private AuthenticationHealthProperties properties;
+    private AuthenticationHealthClient client;
+
+    @BeforeEach
+    public void setup() {
+        stub = HttpServer.create()
+                .port(0)
+                .route(routes -> routes.get("/actuator/health", (request, response) -> {
+                    fetches.incrementAndGet();
+                    return Mono.delay(delay).then(response.status(status)
+                            .header(HttpHeaders.CONTENT_TYPE, "application/vnd.spring-boot.actuator.v3+json")
+                            .sendString(Mono.just(UP))
+                            .then());
+                }))
+                .bindNow();
+        properties = new AuthenticationHealthProperties();
+        properties.setUrl("http://localhost:" + stub.port() + "/actuator/health");
+    }
+
+    @AfterEach
+    public void teardown() {
+        if (client != null) {
+            client.destroy();
+        }
+        stub.disposeNow();
+    }
+
+    @Test
+    @DisplayName("test concurrent calls share one fetch and later ones reuse it until the ttl")
+    public void testCoalesced() {
+        delay = Duration.ofMillis(200);
+        client();
+
+        final var bodies = Flux.range(0, 50)
+                .flatMap(i -> client.get())
+                .map(health -> new String(health.getBody(), StandardCharsets.UTF_8))
+                .collectList()
+                .block();
+        StepVerifier.create(client.get())
+                .assertNext(health -> assertThat(health.isStale(), is(false)))
+                .verifyComplete();
+
+        assertThat(bodies.size(), is(50));
+        assertThat(bodies, everyItem(is(UP)));
+        assertThat(fetches.get(), is(1));
+        assertThat(registry.get(FETCHES).tag("outcome", "success").timer().count(), is(1L));
+    }
+
+    @Test
+    @DisplayName("test the last known health is served stale while fetches fail and the circuit is open")
+    public void testCircuitBreaker() throws InterruptedException {
+        properties.setTtl(Duration.ZERO);
+        properties.setOpenDuration(Duration.ofMillis(300));
+        client();
+        final var webTestClient = WebTestClient.bindToController(new AuthenticationHealthController(client)).build();
+        client.get().block();
+
+        status = 500;
+        for (int i = 0; i < properties.getFailureThreshold() + 2; i++) {
+            webTestClient.get().uri("/authentication-service/health")
+                    .exchange()
+                    .expectStatus().isOk()
+                    .expectHeader().valueEquals(HttpHeaders.WARNING, STALE_WARNING)
+                    .expectBody(String.class).isEqualTo(UP);
+        }
+        assertThat(client.getState(), is(CircuitBreaker.State.OPEN));
+        assertThat(fetches.get(), is(1 + properties.getFailureThreshold()));
+        assertThat(registry.get(STALE).counter().count(), is(properties.getFailureThreshold() + 2.0));
+
+        status = 200;
+        Thread.sleep(properties.getOpenDuration().toMillis());
+        webTestClient.get().uri("/authentication-service/health")
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().doesNotExist(HttpHeaders.WARNING);
+        assertThat(client.getState(), is(CircuitBreaker.State.CLOSED));
+    }
+
+    @Test
+    @DisplayName("test a slow service times out and fails fast without a known health")
+    public void testTimeout() {
+        delay = Duration.ofSeconds(2);
+        properties.setResponseTimeout(Duration.ofMillis(100));
+        client();
+
+        StepVerifier.create(client.get())
+                .expectError(AuthenticationHealthUnavailableException.class)
+                .verify(Duration.ofSeconds(1));
+
+        assertThat(registry.get(FETCHES).tag("outcome", "timeout").timer().count(), is(1L));
+    }
+
+    private AuthenticationHealthClient client() {
+        client = new AuthenticationHealthClient(WebClient.builder(), properties);
+        client.bindTo(registry);
+        return client;
+    }
+}
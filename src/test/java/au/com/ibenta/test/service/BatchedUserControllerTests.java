@@ -0,0 +1,64 @@
+package au.com.ibenta.test.service;
+
+import au.com.ibenta.test.model.User;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.web.server.LocalServerPort;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+
+import java.time.Duration;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.anyOf;
+import static org.hamcrest.Matchers.hasItem;
+import static org.hamcrest.Matchers.is;
+
+@DisplayName("test user endpoints on the jpa persistence path with batched writes")
+@TestPropertySource(properties = {
+        "ibenta.persistence.write-batching.enabled=true",
+        "ibenta.persistence.write-batching.max-delay=20ms"
+})
+public class BatchedUserControllerTests extends UserControllerTests {
+
+    private static final int ROUNDS = 5;
+
+    @LocalServerPort
+    private int port;
+
+    @Test
+    @DisplayName("test concurrent updates of one user against the same version apply only one")
+    public void testConcurrentUpdates() {
+        final var client = WebClient.create("http://localhost:" + port);
+
+        for (int round = 0; round < ROUNDS; round++) {
+            final var created = create(newUser());
+            final var etag = webTestClient.get().uri("/users/{id}", created.getId())
+                    .exchange()
+                    .returnResult(User.class)
+                    .getResponseHeaders()
+                    .getETag();
+
+            final var statuses = Flux.just("first", "second")
+                    .flatMap(name -> client.put().uri("/users/{id}", created.getId())
+                            .header(HttpHeaders.IF_MATCH, etag)
+                            .bodyValue(newUser(name, created.getEmail()))
+                            .exchange()
+                            .flatMap(response -> response.releaseBody().thenReturn(response.statusCode())))
+                    .collectList()
+                    .block(Duration.ofSeconds(10));
+
+            assertThat(statuses, hasItem(HttpStatus.OK));
+            assertThat(statuses, hasItem(anyOf(is(HttpStatus.CONFLICT), is(HttpStatus.PRECONDITION_FAILED))));
+
+            webTestClient.put().uri("/users/{id}", created.getId())
+                    .header(HttpHeaders.IF_MATCH, etag)
+                    .bodyValue(newUser("third", created.getEmail()))
+                    .exchange()
+                    .expectStatus().isEqualTo(HttpStatus.PRECONDITION_FAILED);
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package au.com.ibenta.test.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.test.context.TestPropertySource;
+
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.everyItem;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.startsWith;
+
+@DisplayName("test user endpoints on the r2dbc persistence path")
+@TestPropertySource(properties = "ibenta.persistence.mode=r2dbc")
+public class R2dbcUserControllerTests extends UserControllerTests {
+
+    @BeforeEach
+    public void clearConnectionThreads() {
+        ThreadRecordingConnectionFactory.THREADS.clear();
+    }
+
+    @Override
+    protected void assertPatchStatements(final List<String> statements) {
+        assertThat(statements, empty());
+    }
+
+    @Override
+    protected void assertBlockingThreads() {
+        // the JPA statements left are the bloom filter loading emails on startup
+        assertThat(ThreadRecordingStatementInspector.THREADS, everyItem(startsWith("jdbc-offload-")));
+        assertThat(ThreadRecordingConnectionFactory.THREADS, not(empty()));
+        assertThat(ThreadRecordingConnectionFactory.THREADS, everyItem(startsWith("jdbc-offload-")));
+    }
+
+    @TestConfiguration
+    static class RecordingConfiguration {
+
+        @Bean
+        static ThreadRecordingConnectionFactory threadRecordingConnectionFactory() {
+            return new ThreadRecordingConnectionFactory();
+        }
+    }
+}
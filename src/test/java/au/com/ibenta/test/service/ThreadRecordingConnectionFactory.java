@@ -0,0 +1,63 @@
+package au.com.ibenta.test.service;
+
+import io.r2dbc.spi.Connection;
+import io.r2dbc.spi.ConnectionFactory;
+import io.r2dbc.spi.Result;
+import io.r2dbc.spi.Statement;
+import org.reactivestreams.Publisher;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.lang.NonNull;
+import org.springframework.util.ClassUtils;
+import reactor.core.publisher.Flux;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Wraps the R2DBC {@link ConnectionFactory} so the threads subscribing to, requesting from or receiving any of its
+ * publishers are recorded, down to the connections, statements and results it hands out.
+ */
+public class ThreadRecordingConnectionFactory implements BeanPostProcessor {
+
+    static final Set<String> THREADS = ConcurrentHashMap.newKeySet();
+
+    @Override
+    public Object postProcessAfterInitialization(@NonNull final Object bean, @NonNull final String beanName) {
+        return bean instanceof ConnectionFactory ? recording(bean) : bean;
+    }
+
+    private static Object recording(final Object target) {
+        return Proxy.newProxyInstance(ThreadRecordingConnectionFactory.class.getClassLoader(),
+                ClassUtils.getAllInterfaces(target),
+                (proxy, method, args) -> {
+                    final Object result;
+                    try {
+                        result = method.invoke(target, args);
+                    } catch (final InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                    if (result == target) {
+                        return proxy;
+                    }
+                    if (result instanceof Connection || result instanceof Statement || result instanceof Result) {
+                        return recording(result);
+                    }
+                    if (result instanceof Publisher) {
+                        return Flux.from((Publisher<?>) result)
+                                .doOnSubscribe(subscription -> record())
+                                .doOnRequest(n -> record())
+                                .map(next -> {
+                                    record();
+                                    return next instanceof Connection || next instanceof Result ? recording(next) : next;
+                                });
+                    }
+                    return result;
+                });
+    }
+
+    private static void record() {
+        THREADS.add(Thread.currentThread().getName());
+    }
+}
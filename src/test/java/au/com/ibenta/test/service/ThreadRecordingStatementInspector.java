@@ -0,0 +1,21 @@
+package au.com.ibenta.test.service;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+public class ThreadRecordingStatementInspector implements StatementInspector {
+
+    static final Set<String> THREADS = ConcurrentHashMap.newKeySet();
+    static final Queue<String> STATEMENTS = new ConcurrentLinkedQueue<>();
+
+    @Override
+    public String inspect(final String sql) {
+        THREADS.add(Thread.currentThread().getName());
+        STATEMENTS.add(sql);
+        return sql;
+    }
+}
@@ -0,0 +1,95 @@
+package au.com.ibenta.test.service;
+
+import au.com.ibenta.test.model.User;
+import au.com.ibenta.test.persistence.UserEntity;
+import au.com.ibenta.test.persistence.UserStore;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@DisplayName("test user cache")
+public class UserCacheTests {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final Map<Long, UserEntity> rows = new ConcurrentHashMap<>();
+    private final AtomicInteger loads = new AtomicInteger();
+
+    private UserCache cache;
+
+    @BeforeEach
+    public void setup() {
+        final var store = mock(UserStore.class);
+        when(store.findById(anyLong())).thenAnswer(invocation -> Mono.delay(Duration.ofMillis(50))
+                .doOnNext(tick -> loads.incrementAndGet())
+                .flatMap(tick -> Mono.justOrEmpty(rows.get(invocation.<Long>getArgument(0)))));
+
+        cache = new UserCache(store, new UserCacheProperties());
+        cache.bindTo(registry);
+    }
+
+    @Test
+    @DisplayName("test concurrent misses for the same id share one load")
+    public void testSingleFlight() {
+        rows.put(1L, entity(1L, "first"));
+
+        StepVerifier.create(Flux.range(0, 32).flatMap(i -> cache.get(1L)).count())
+                .expectNext(32L)
+                .verifyComplete();
+
+        assertThat(loads.get(), is(1));
+        assertThat(registry.get("cache.gets").tag("cache", "users").tag("result", "miss").functionCounter().count(), is(1.0));
+        assertThat(registry.get("cache.gets").tag("cache", "users").tag("result", "hit").functionCounter().count(), is(31.0));
+    }
+
+    @Test
+    @DisplayName("test unknown ids are cached until invalidated")
+    public void testNegativeCaching() {
+        StepVerifier.create(cache.get(2L)).verifyComplete();
+        rows.put(2L, entity(2L, "created"));
+        StepVerifier.create(cache.get(2L)).verifyComplete();
+
+        cache.invalidate(2L);
+
+        StepVerifier.create(cache.get(2L).map(User::getFirstName))
+                .expectNext("created")
+                .verifyComplete();
+        assertThat(loads.get(), is(2));
+    }
+
+    @Test
+    @DisplayName("test invalidation reloads the changed user")
+    public void testInvalidate() {
+        rows.put(3L, entity(3L, "first"));
+        StepVerifier.create(cache.get(3L).map(User::getFirstName)).expectNext("first").verifyComplete();
+
+        rows.put(3L, entity(3L, "updated"));
+        StepVerifier.create(cache.get(3L).map(User::getFirstName)).expectNext("first").verifyComplete();
+
+        cache.invalidate(3L);
+        StepVerifier.create(cache.get(3L).map(User::getFirstName)).expectNext("updated").verifyComplete();
+    }
+
+    private static UserEntity entity(final Long id, final String firstName) {
+        final var entity = new UserEntity();
+        entity.setId(id);
+        entity.setFirstName(firstName);
+        entity.setLastName("last");
+        entity.setEmail(id + "@ibenta.com.au");
+        return entity;
+    }
+}
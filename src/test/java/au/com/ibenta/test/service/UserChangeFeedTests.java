@@ -0,0 +1,182 @@
+package au.com.ibenta.test.service;
+
+import au.com.ibenta.test.model.User;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.reactivestreams.Subscription;
+import org.springframework.http.codec.ServerSentEvent;
+import reactor.core.Exceptions;
+import reactor.core.publisher.BaseSubscriber;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+
+import static au.com.ibenta.test.service.UserChangeEvent.Type.CREATED;
+import static au.com.ibenta.test.service.UserChangeEvent.Type.DELETED;
+import static au.com.ibenta.test.service.UserChangeEvent.Type.RESET;
+import static au.com.ibenta.test.service.UserChangeEvent.Type.UPDATED;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+@DisplayName("test user change feed")
+public class UserChangeFeedTests {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    private UserChangeFeed feed;
+
+    @BeforeEach
+    public void setup() {
+        final var properties = new UserChangeFeedProperties();
+        properties.setReplaySize(3);
+        properties.setSubscriberBuffer(2);
+        feed = new UserChangeFeed(properties, registry);
+    }
+
+    @Test
+    @DisplayName("test replay resumes after the last event id from the ring buffer")
+    public void testReplay() {
+        for (long id = 1; id <= 5; id++) {
+            feed.publish(CREATED, User.builder().id(id).build());
+        }
+
+        StepVerifier.create(feed.changes(3L))
+                .expectNextMatches(event -> event.getId() == 4)
+                .expectNextMatches(event -> event.getId() == 5)
+                .then(() -> feed.publish(DELETED, User.builder().id(1L).build()))
+                .expectNextMatches(event -> event.getId() == 6 && event.getType() == DELETED)
+                .thenCancel()
+                .verify();
+
+        StepVerifier.create(feed.changes(4L))
+                .expectNextMatches(event -> event.getId() == 5)
+                .expectNextMatches(event -> event.getId() == 6)
+                .thenCancel()
+                .verify();
+    }
+
+    @Test
+    @DisplayName("test ids no longer held or never issued start with a reset rather than a gap")
+    public void testReset() {
+        for (long id = 1; id <= 5; id++) {
+            feed.publish(CREATED, User.builder().id(id).build());
+        }
+
+        StepVerifier.create(feed.changes(1L))
+                .expectNextMatches(event -> event.getId() == 2 && event.getType() == RESET && event.getUser() == null)
+                .expectNextMatches(event -> event.getId() == 3)
+                .expectNextCount(2)
+                .thenCancel()
+                .verify();
+
+        StepVerifier.create(feed.changes(42L))
+                .expectNextMatches(event -> event.getId() == 2 && event.getType() == RESET)
+                .expectNextMatches(event -> event.getId() == 3)
+                .thenCancel()
+                .verify();
+    }
+
+    @Test
+    @DisplayName("test a replay larger than the subscriber buffer is emitted as it is requested")
+    public void testBoundedReplay() {
+        final var properties = new UserChangeFeedProperties();
+        properties.setReplaySize(10);
+        properties.setSubscriberBuffer(2);
+        final var feed = new UserChangeFeed(properties, registry);
+        for (long id = 1; id <= 8; id++) {
+            feed.publish(CREATED, User.builder().id(id).build());
+        }
+
+        StepVerifier.create(feed.changes(0L), 0)
+                .thenRequest(1)
+                .expectNextMatches(event -> event.getId() == 1)
+                .then(() -> feed.publish(UPDATED, User.builder().id(1L).build()))
+                .thenRequest(3)
+                .expectNextCount(3)
+                .thenRequest(5)
+                .expectNextMatches(event -> event.getId() == 5)
+                .expectNextCount(3)
+                .expectNextMatches(event -> event.getId() == 9 && event.getType() == UPDATED)
+                .thenCancel()
+                .verify(Duration.ofSeconds(5));
+
+        assertThat(registry.get("user.feed.evicted").counter().count(), is(0.0));
+    }
+
+    @Test
+    @DisplayName("test changes published concurrently reach subscribers once each in id order")
+    public void testConcurrentPublish() {
+        final var properties = new UserChangeFeedProperties();
+        properties.setSubscriberBuffer(10_000);
+        final var feed = new UserChangeFeed(properties, registry);
+
+        StepVerifier.create(feed.changes(null).take(1_000).map(UserChangeEvent::getId).collectList())
+                .then(() -> IntStream.range(0, 1_000).parallel().forEach(i -> feed.publish(CREATED, User.builder().id((long) i).build())))
+                .expectNext(LongStream.rangeClosed(1, 1_000).boxed().collect(Collectors.toList()))
+                .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("test subscribers without a last event id only get live events")
+    public void testLive() {
+        feed.publish(CREATED, User.builder().id(1L).build());
+
+        StepVerifier.create(feed.changes(null))
+                .then(() -> feed.publish(UPDATED, User.builder().id(1L).build()))
+                .expectNextMatches(event -> event.getType() == UPDATED)
+                .thenCancel()
+                .verify();
+    }
+
+    @Test
+    @DisplayName("test a subscriber that never reads does not hold back heartbeats for the others")
+    public void testStalledHeartbeats() {
+        final var properties = new UserChangeFeedProperties();
+        properties.setHeartbeat(Duration.ofMillis(5));
+        final var feed = new UserChangeFeed(properties, registry);
+        final var stalled = new BaseSubscriber<ServerSentEvent<UserChangeEvent>>() {
+
+            @Override
+            protected void hookOnSubscribe(final Subscription subscription) {
+            }
+        };
+        feed.stream(null).subscribe(stalled);
+
+        try {
+            StepVerifier.create(feed.stream(null).take(100))
+                    .expectNextCount(100)
+                    .expectComplete()
+                    .verify(Duration.ofSeconds(5));
+        } finally {
+            stalled.dispose();
+        }
+    }
+
+    @Test
+    @DisplayName("test slow subscribers are evicted without affecting others")
+    public void testEviction() {
+        StepVerifier.create(feed.changes(null), 0)
+                .then(() -> {
+                    for (long id = 1; id <= 3; id++) {
+                        feed.publish(CREATED, User.builder().id(id).build());
+                    }
+                })
+                .thenRequest(2)
+                .expectNextCount(2)
+                .expectErrorMatches(Exceptions::isOverflow)
+                .verify(Duration.ofSeconds(5));
+
+        StepVerifier.create(feed.changes(null))
+                .then(() -> feed.publish(CREATED, User.builder().id(4L).build()))
+                .expectNextMatches(event -> event.getId() == 4)
+                .thenCancel()
+                .verify();
+
+        assertThat(registry.get("user.feed.evicted").counter().count(), is(1.0));
+    }
+}
@@ -0,0 +1,675 @@
+package au.com.ibenta.test.service;
+
+import au.com.ibenta.pagination.KeysetPage;
+import au.com.ibenta.test.model.User;
+import au.com.ibenta.test.model.UserImportResult;
+import au.com.ibenta.test.persistence.UserRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.web.server.LocalServerPort;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.reactive.server.EntityExchangeResult;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import java.util.zip.GZIPInputStream;
+
+import static au.com.ibenta.config.WebConfiguration.APPLICATION_MERGE_PATCH_JSON_VALUE;
+import static au.com.ibenta.config.WebConfiguration.APPLICATION_NDJSON;
+import static au.com.ibenta.config.WebConfiguration.APPLICATION_SMILE;
+import static au.com.ibenta.test.model.UserImportResult.Status.CREATED;
+import static au.com.ibenta.test.model.UserImportResult.Status.FAILED;
+import static au.com.ibenta.test.model.UserImportResult.Status.INVALID;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.everyItem;
+import static org.hamcrest.Matchers.hasItems;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.matchesPattern;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.startsWith;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@DisplayName("test user endpoints on the jpa persistence path")
+@ActiveProfiles("test")
+@AutoConfigureWebTestClient
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@TestPropertySource(properties = {
+        "ibenta.persistence.mode=jpa",
+        "ibenta.concurrency-limit.database.enabled=false",
+        "ibenta.rate-limit.enabled=false",
+        "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+                + "au.com.ibenta.test.service.ThreadRecordingStatementInspector"
+})
+public class UserControllerTests {
+
+    private static final int REQUESTS = 400;
+    private static final int CONCURRENCY = 64;
+    private static final MediaType APPLICATION_MERGE_PATCH_JSON = MediaType.valueOf(APPLICATION_MERGE_PATCH_JSON_VALUE);
+    private static final String KEYSET = "/users?size=7&sort=email,desc&";
+
+    @Autowired
+    protected WebTestClient webTestClient;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private UserEmails userEmails;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @LocalServerPort
+    private int port;
+
+    @BeforeEach
+    public void setup() {
+        ThreadRecordingStatementInspector.THREADS.clear();
+        ThreadRecordingStatementInspector.STATEMENTS.clear();
+    }
+
+    @Test
+    @DisplayName("test create, get, update and delete a user")
+    public void testCrud() {
+        final var created = create(newUser());
+
+        webTestClient.get().uri("/users/{id}", created.getId())
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.email").isEqualTo(created.getEmail())
+                .jsonPath("$.firstName").isEqualTo("first")
+                .jsonPath("$.password").doesNotExist();
+
+        webTestClient.put().uri("/users/{id}", created.getId())
+                .bodyValue(newUser("updated", UUID.randomUUID() + "@ibenta.com.au"))
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody().jsonPath("$.firstName").isEqualTo("updated");
+
+        webTestClient.delete().uri("/users/{id}", created.getId())
+                .exchange()
+                .expectStatus().isNoContent();
+
+        webTestClient.get().uri("/users/{id}", created.getId())
+                .exchange()
+                .expectStatus().isNotFound();
+    }
+
+    @Test
+    @DisplayName("test search finds created users by partial name and email and drops deleted ones")
+    public void testSearch() {
+        final var marker = "zq" + UUID.randomUUID().toString().substring(0, 8);
+        final var first = create(newUser(marker, "a." + marker + "@ibenta.com.au"));
+        final var second = create(newUser("second", marker.substring(0, 6) + "x@ibenta.com.au"));
+
+        webTestClient.get().uri("/users/search?q={q}&size=1", marker.substring(0, 5))
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueEquals("X-Total-Count", "2")
+                .expectBody()
+                .jsonPath("$.length()").isEqualTo(1)
+                .jsonPath("$[0].id").isEqualTo(first.getId().intValue())
+                .jsonPath("$[0].password").doesNotExist();
+
+        webTestClient.delete().uri("/users/{id}", first.getId()).exchange().expectStatus().isNoContent();
+
+        webTestClient.get().uri("/users/search?q={q} last", marker.substring(0, 6))
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.length()").isEqualTo(1)
+                .jsonPath("$[0].id").isEqualTo(second.getId().intValue());
+    }
+
+    @Test
+    @DisplayName("test list users is paginated")
+    public void testList() {
+        create(newUser());
+        create(newUser());
+
+        webTestClient.get().uri("/users?page=0&size=1")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody().jsonPath("$.length()").isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("test keyset pages walk the table in both directions")
+    public void testKeysetPagination() {
+        final var created = Flux.range(0, 10).map(i -> create(newUser()).getEmail()).collectList().block();
+
+        final var forward = new ArrayList<User>();
+        var page = keysetPage("after=");
+        assertThat(page.getResponseHeaders().getFirst(HttpHeaders.LINK), containsString("rel=\"next\""));
+        while (true) {
+            forward.addAll(page.getResponseBody());
+            final var next = page.getResponseHeaders().getFirst(KeysetPage.NEXT_CURSOR);
+            if (next == null) {
+                break;
+            }
+            page = keysetPage("after=" + next);
+        }
+
+        final var backward = new LinkedList<>(page.getResponseBody());
+        var previous = page.getResponseHeaders().getFirst(KeysetPage.PREVIOUS_CURSOR);
+        while (previous != null) {
+            page = keysetPage("before=" + previous);
+            backward.addAll(0, page.getResponseBody());
+            previous = page.getResponseHeaders().getFirst(KeysetPage.PREVIOUS_CURSOR);
+        }
+
+        final var emails = forward.stream().map(User::getEmail).collect(Collectors.toList());
+        final var sorted = new ArrayList<>(emails);
+        sorted.sort(Comparator.reverseOrder());
+        assertThat(emails, is(sorted));
+        assertThat(emails, hasItems(created.toArray(String[]::new)));
+        assertThat(backward, is(forward));
+    }
+
+    @Test
+    @DisplayName("test keyset pages reject foreign cursors and unindexed sorts")
+    public void testKeysetValidation() {
+        webTestClient.get().uri("/users?after=bm90LWEtY3Vyc29y")
+                .exchange()
+                .expectStatus().isBadRequest();
+
+        webTestClient.get().uri("/users?after=&sort=password")
+                .exchange()
+                .expectStatus().isBadRequest();
+    }
+
+    @Test
+    @DisplayName("test user changes are streamed as server-sent events")
+    public void testChangeFeed() {
+        final var created = create(newUser());
+
+        final var events = webTestClient.get().uri("/users/events")
+                .header("Last-Event-ID", "0")
+                .accept(MediaType.TEXT_EVENT_STREAM)
+                .exchange()
+                .expectStatus().isOk()
+                .returnResult(new ParameterizedTypeReference<ServerSentEvent<Map<String, Object>>>() {
+                })
+                .getResponseBody();
+
+        StepVerifier.create(events.filter(event -> event.data() != null)
+                .filter(event -> String.valueOf(created.getId()).equals(String.valueOf(((Map<?, ?>) event.data().get("user")).get("id")))))
+                .expectNextMatches(event -> "created".equals(event.event()))
+                .then(() -> webTestClient.delete().uri("/users/{id}", created.getId()).exchange().expectStatus().isNoContent())
+                .expectNextMatches(event -> "deleted".equals(event.event()))
+                .thenCancel()
+                .verify(Duration.ofSeconds(10));
+    }
+
+    @Test
+    @DisplayName("test bulk import streams a result per record")
+    public void testImport() {
+        final var existing = create(newUser());
+        final var email = UUID.randomUUID() + "@ibenta.com.au";
+        final var body = String.join("\n",
+                "{\"firstName\":\"imported\",\"lastName\":\"last\",\"email\":\"" + email + "\",\"password\":\"secret\"}",
+                "{\"firstName\":\"imported\",\"lastName\":\"last\",\"email\":\"not an email\",\"password\":\"secret\"}",
+                "",
+                "{\"firstName\":",
+                "{\"firstName\":\"imported\",\"lastName\":\"last\",\"email\":\"" + UUID.randomUUID() + "@ibenta.com.au\",\"password\":\"secret\"}",
+                "{\"firstName\":\"imported\",\"lastName\":\"again\",\"email\":\"" + email + "\",\"password\":\"secret\"}",
+                "{\"firstName\":\"imported\",\"lastName\":\"last\",\"email\":\"" + existing.getEmail() + "\",\"password\":\"secret\"}");
+
+        final var results = webTestClient.post().uri("/users/import")
+                .contentType(APPLICATION_NDJSON)
+                .accept(APPLICATION_NDJSON)
+                .bodyValue(body)
+                .exchange()
+                .expectStatus().isOk()
+                .returnResult(UserImportResult.class)
+                .getResponseBody()
+                .collectList()
+                .block(Duration.ofSeconds(10));
+
+        assertThat(results.stream().map(UserImportResult::getLine).collect(Collectors.toList()), is(List.of(1L, 2L, 4L, 5L, 6L, 7L)));
+        assertThat(results.stream().map(UserImportResult::getStatus).collect(Collectors.toList()),
+                is(List.of(CREATED, INVALID, INVALID, CREATED, FAILED, FAILED)));
+        assertThat(results.get(1).getErrors(), is(List.of("email must be a well-formed email address")));
+        assertThat(results.get(4).getErrors(), is(List.of("email repeats an earlier record")));
+        assertThat(results.get(5).getErrors(), is(List.of("email is already registered")));
+
+        webTestClient.get().uri("/users/{id}", results.get(3).getId())
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.firstName").isEqualTo("imported")
+                .jsonPath("$.password").doesNotExist();
+    }
+
+    @Test
+    @DisplayName("test authenticate matches the stored password hash")
+    public void testAuthenticate() {
+        final var created = create(newUser());
+
+        assertThat(userRepository.findById(created.getId()).orElseThrow().getPassword(), startsWith("$2a$04$"));
+
+        webTestClient.post().uri("/users/authenticate")
+                .bodyValue(Map.of("email", created.getEmail(), "password", "secret"))
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.id").isEqualTo(created.getId())
+                .jsonPath("$.password").doesNotExist();
+
+        webTestClient.post().uri("/users/authenticate")
+                .bodyValue(Map.of("email", created.getEmail(), "password", "wrong"))
+                .exchange()
+                .expectStatus().isUnauthorized();
+
+        webTestClient.post().uri("/users/authenticate")
+                .bodyValue(Map.of("email", UUID.randomUUID() + "@ibenta.com.au", "password", "secret"))
+                .exchange()
+                .expectStatus().isUnauthorized();
+    }
+
+    @Test
+    @DisplayName("test an email cannot be registered twice, checked by the bloom filter and the unique index")
+    public void testDuplicateEmail() {
+        final var first = create(newUser());
+        final var second = create(newUser());
+        final var checks = meterRegistry.get(UserEmails.CHECKS).tag("result", "absent").counter();
+        final var absent = checks.count();
+
+        create(newUser());
+        webTestClient.post().uri("/users")
+                .bodyValue(newUser("duplicate", first.getEmail()))
+                .exchange()
+                .expectStatus().isEqualTo(HttpStatus.CONFLICT)
+                .expectBody().jsonPath("$.detail").isEqualTo("email is already registered");
+        webTestClient.put().uri("/users/{id}", second.getId())
+                .bodyValue(newUser("duplicate", first.getEmail()))
+                .exchange()
+                .expectStatus().isEqualTo(HttpStatus.CONFLICT);
+        webTestClient.put().uri("/users/{id}", first.getId())
+                .bodyValue(newUser("unchanged", first.getEmail()))
+                .exchange()
+                .expectStatus().isOk();
+
+        assertThat(userEmails.isLoaded(), is(true));
+        assertThat(checks.count(), is(absent + 1));
+        final var duplicate = userRepository.findById(second.getId()).orElseThrow();
+        duplicate.setEmail(first.getEmail());
+        assertThrows(DataIntegrityViolationException.class, () -> userRepository.saveAndFlush(duplicate));
+    }
+
+    @Test
+    @DisplayName("test a merge patch changes only the properties it holds, in one statement")
+    public void testPatch() {
+        final var created = create(newUser());
+        final var etag = webTestClient.get().uri("/users/{id}", created.getId())
+                .exchange()
+                .expectStatus().isOk()
+                .returnResult(User.class)
+                .getResponseHeaders()
+                .getETag();
+        ThreadRecordingStatementInspector.STATEMENTS.clear();
+
+        webTestClient.patch().uri("/users/{id}", created.getId())
+                .contentType(APPLICATION_MERGE_PATCH_JSON)
+                .header(HttpHeaders.IF_MATCH, etag)
+                .bodyValue("{\"lastName\":\"patched\"}")
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueEquals(HttpHeaders.ETAG, "\"1-json\"")
+                .expectBody()
+                .jsonPath("$.firstName").isEqualTo("first")
+                .jsonPath("$.lastName").isEqualTo("patched")
+                .jsonPath("$.email").isEqualTo(created.getEmail());
+        assertPatchStatements(List.copyOf(ThreadRecordingStatementInspector.STATEMENTS));
+
+        webTestClient.patch().uri("/users/{id}", created.getId())
+                .contentType(APPLICATION_MERGE_PATCH_JSON)
+                .header(HttpHeaders.IF_MATCH, etag)
+                .bodyValue("{\"firstName\":\"stale\"}")
+                .exchange()
+                .expectStatus().isEqualTo(HttpStatus.PRECONDITION_FAILED);
+        webTestClient.patch().uri("/users/{id}", created.getId())
+                .contentType(APPLICATION_MERGE_PATCH_JSON)
+                .bodyValue("{\"firstName\":null}")
+                .exchange()
+                .expectStatus().isBadRequest();
+        webTestClient.patch().uri("/users/{id}", created.getId())
+                .contentType(APPLICATION_MERGE_PATCH_JSON)
+                .bodyValue("{\"email\":\"not an email\"}")
+                .exchange()
+                .expectStatus().isBadRequest();
+        webTestClient.patch().uri("/users/{id}", created.getId())
+                .contentType(APPLICATION_MERGE_PATCH_JSON)
+                .bodyValue("{\"password\":\"changed\"}")
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueEquals(HttpHeaders.ETAG, "\"2-json\"");
+
+        webTestClient.post().uri("/users/authenticate")
+                .bodyValue(Map.of("email", created.getEmail(), "password", "changed"))
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody().jsonPath("$.lastName").isEqualTo("patched");
+        webTestClient.patch().uri("/users/{id}", Long.MAX_VALUE)
+                .contentType(APPLICATION_MERGE_PATCH_JSON)
+                .bodyValue("{\"firstName\":\"missing\"}")
+                .exchange()
+                .expectStatus().isNotFound();
+
+        // written behind the cache's back, as another replica would
+        final var cached = webTestClient.get().uri("/users/{id}", created.getId())
+                .exchange()
+                .returnResult(User.class)
+                .getResponseHeaders()
+                .getETag();
+        final var row = userRepository.findById(created.getId()).orElseThrow();
+        row.setFirstName("elsewhere");
+        userRepository.save(row);
+
+        webTestClient.patch().uri("/users/{id}", created.getId())
+                .contentType(APPLICATION_MERGE_PATCH_JSON)
+                .bodyValue("{\"lastName\":\"unguarded\",\"email\":\"" + created.getEmail() + "\"}")
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueEquals(HttpHeaders.ETAG, "\"4-json\"")
+                .expectBody()
+                .jsonPath("$.firstName").isEqualTo("elsewhere")
+                .jsonPath("$.lastName").isEqualTo("unguarded");
+        webTestClient.patch().uri("/users/{id}", created.getId())
+                .contentType(APPLICATION_MERGE_PATCH_JSON)
+                .header(HttpHeaders.IF_MATCH, "\"4-json\"")
+                .bodyValue("{\"firstName\":\"guarded\"}")
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueEquals(HttpHeaders.ETAG, "\"5-json\"");
+        webTestClient.patch().uri("/users/{id}", created.getId())
+                .contentType(APPLICATION_MERGE_PATCH_JSON)
+                .header(HttpHeaders.IF_MATCH, cached)
+                .bodyValue("{\"firstName\":\"stale\"}")
+                .exchange()
+                .expectStatus().isEqualTo(HttpStatus.PRECONDITION_FAILED);
+    }
+
+    @Test
+    @DisplayName("test the export streams every user as ndjson or csv without passwords")
+    public void testExport() {
+        final var quoted = create(newUser("Smith, \"Jo\"", UUID.randomUUID() + "@ibenta.com.au"));
+        final var created = Flux.range(0, 3).map(i -> create(newUser()).getEmail()).collectList().block();
+
+        final var ndjson = webTestClient.get().uri("/users/export")
+                .accept(APPLICATION_NDJSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(APPLICATION_NDJSON)
+                .expectBody(String.class)
+                .returnResult()
+                .getResponseBody();
+        final var lines = List.of(ndjson.split("\n"));
+        assertThat(ndjson.endsWith("\n"), is(true));
+        assertThat(lines.size(), is((int) userRepository.count()));
+        assertThat(lines, everyItem(startsWith("{\"id\":")));
+        assertThat(ndjson, not(containsString("password")));
+        assertThat(ndjson, containsString("\"email\":\"" + quoted.getEmail() + "\""));
+        created.forEach(email -> assertThat(ndjson, containsString(email)));
+
+        final var csv = webTestClient.get().uri("/users/export")
+                .accept(MediaType.valueOf("text/csv"))
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(MediaType.valueOf("text/csv"))
+                .expectBody(String.class)
+                .returnResult()
+                .getResponseBody();
+        assertThat(csv, startsWith("id,firstName,lastName,email,version,updatedAt\r\n"));
+        assertThat(csv.split("\r\n").length, is(lines.size() + 1));
+        assertThat(csv, containsString(quoted.getId() + ",\"Smith, \"\"Jo\"\"\",last," + quoted.getEmail() + ",0,"));
+        assertThat(csv, not(containsString("$2")));
+    }
+
+    @Test
+    @DisplayName("test conditional requests on users and pages")
+    public void testConditionalRequests() {
+        final var created = create(newUser());
+
+        final var headers = webTestClient.get().uri("/users/{id}", created.getId())
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueEquals(HttpHeaders.ETAG, "\"0-json\"")
+                .expectHeader().exists(HttpHeaders.LAST_MODIFIED)
+                .returnResult(User.class)
+                .getResponseHeaders();
+        final var etag = headers.getETag();
+        assertThat(headers.getVary(), hasItems(HttpHeaders.ACCEPT));
+
+        webTestClient.get().uri("/users/{id}", created.getId())
+                .ifNoneMatch(etag)
+                .exchange()
+                .expectStatus().isNotModified()
+                .expectBody().isEmpty();
+
+        // another format of the same version is another representation, it is neither a 304 nor a 412
+        webTestClient.get().uri("/users/{id}", created.getId())
+                .accept(APPLICATION_SMILE)
+                .ifNoneMatch(etag)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueEquals(HttpHeaders.ETAG, "\"0-x-jackson-smile\"");
+        webTestClient.put().uri("/users/{id}", created.getId())
+                .header(HttpHeaders.IF_MATCH, "\"0-x-jackson-smile\"")
+                .bodyValue(newUser("first", created.getEmail()))
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueEquals(HttpHeaders.ETAG, "\"1-json\"");
+
+        webTestClient.put().uri("/users/{id}", created.getId())
+                .header(HttpHeaders.IF_MATCH, "\"42\"")
+                .bodyValue(newUser("stale", created.getEmail()))
+                .exchange()
+                .expectStatus().isEqualTo(HttpStatus.PRECONDITION_FAILED);
+
+        webTestClient.put().uri("/users/{id}", created.getId())
+                .header(HttpHeaders.IF_MATCH, "\"1-json\"")
+                .bodyValue(newUser("updated", created.getEmail()))
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueEquals(HttpHeaders.ETAG, "\"2-json\"");
+
+        webTestClient.get().uri("/users/{id}", created.getId())
+                .ifNoneMatch(etag)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody().jsonPath("$.firstName").isEqualTo("updated");
+
+        final var pageTag = webTestClient.get().uri("/users?page=0&size=2")
+                .exchange()
+                .expectStatus().isOk()
+                .returnResult(User.class)
+                .getResponseHeaders()
+                .getETag();
+
+        assertThat(pageTag, startsWith("W/"));
+        webTestClient.get().uri("/users?page=0&size=2")
+                .ifNoneMatch(pageTag)
+                .exchange()
+                .expectStatus().isNotModified()
+                .expectBody().isEmpty();
+    }
+
+    @Test
+    @DisplayName("test pages are not revalidated by date after a delete")
+    public void testPageRevalidatedAfterDelete() {
+        final var deleted = create(newUser());
+        create(newUser());
+
+        final var uri = "/users?page=0&size=" + userRepository.count();
+        webTestClient.get().uri(uri)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().doesNotExist(HttpHeaders.LAST_MODIFIED);
+
+        webTestClient.delete().uri("/users/{id}", deleted.getId()).exchange().expectStatus().isNoContent();
+
+        final var users = webTestClient.get().uri(uri)
+                .ifModifiedSince(ZonedDateTime.now().plusMinutes(1))
+                .exchange()
+                .expectStatus().isOk()
+                .expectBodyList(User.class)
+                .returnResult()
+                .getResponseBody();
+        assertThat(users.stream().map(User::getId).collect(Collectors.toList()), not(hasItems(deleted.getId())));
+    }
+
+    @Test
+    @DisplayName("test users are negotiated as json, smile or cbor with iso dates")
+    public void testBinaryFormats() {
+        final var created = create(newUser());
+
+        webTestClient.get().uri("/users/{id}", created.getId())
+                .exchange()
+                .expectHeader().contentType(MediaType.APPLICATION_JSON)
+                .expectBody().jsonPath("$.updatedAt").value(matchesPattern("\\d{4}-\\d{2}-\\d{2}T[\\d:.]+Z"));
+
+        for (final var mediaType : List.of(APPLICATION_SMILE, MediaType.APPLICATION_CBOR)) {
+            final var posted = webTestClient.post().uri("/users")
+                    .contentType(mediaType)
+                    .accept(mediaType)
+                    .bodyValue(newUser())
+                    .exchange()
+                    .expectStatus().isCreated()
+                    .expectHeader().contentType(mediaType)
+                    .expectBody(User.class)
+                    .returnResult().getResponseBody();
+
+            webTestClient.get().uri("/users/{id}", posted.getId())
+                    .accept(mediaType)
+                    .exchange()
+                    .expectStatus().isOk()
+                    .expectBody(User.class).isEqualTo(posted);
+
+            webTestClient.get().uri("/users?page=0&size=2")
+                    .accept(mediaType)
+                    .exchange()
+                    .expectStatus().isOk()
+                    .expectHeader().contentType(mediaType)
+                    .expectBodyList(User.class).hasSize(2);
+        }
+    }
+
+    @Test
+    @DisplayName("test user pages are served over h2c and gzip compressed")
+    public void testHttp2Compression() throws IOException, InterruptedException {
+        for (int i = 0; i < 20; i++) {
+            create(newUser());
+        }
+
+        final var request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/users?page=0&size=20"))
+                .header(HttpHeaders.ACCEPT_ENCODING, "gzip")
+                .build();
+        final var response = HttpClient.newBuilder().version(HttpClient.Version.HTTP_2).build()
+                .send(request, HttpResponse.BodyHandlers.ofByteArray());
+
+        assertThat(response.version(), is(HttpClient.Version.HTTP_2));
+        assertThat(response.headers().firstValue(HttpHeaders.CONTENT_ENCODING).orElse(null), is("gzip"));
+        try (final var body = new GZIPInputStream(new ByteArrayInputStream(response.body()))) {
+            assertThat(new String(body.readAllBytes(), StandardCharsets.UTF_8), startsWith("[{"));
+        }
+    }
+
+    @Test
+    @DisplayName("test invalid users are rejected")
+    public void testValidation() {
+        webTestClient.post().uri("/users")
+                .bodyValue(newUser("first", "not an email"))
+                .exchange()
+                .expectStatus().isEqualTo(HttpStatus.BAD_REQUEST);
+    }
+
+    @Test
+    @DisplayName("test the event loop never runs blocking persistence calls")
+    public void testEventLoopNeverBlocked() {
+        final var ids = Flux.range(0, CONCURRENCY)
+                .map(i -> create(newUser()).getId())
+                .collectList()
+                .block();
+
+        final var client = WebClient.create("http://localhost:" + port);
+        final var succeeded = Flux.range(0, REQUESTS)
+                .flatMap(i -> client.get().uri("/users/{id}", ids.get(i % ids.size()))
+                        .retrieve()
+                        .bodyToMono(User.class), CONCURRENCY)
+                .count()
+                .block(Duration.ofMinutes(1));
+
+        assertThat(succeeded, is((long) REQUESTS));
+        assertBlockingThreads();
+    }
+
+    protected void assertPatchStatements(final List<String> statements) {
+        assertThat(statements.size(), is(1));
+        assertThat(statements.get(0), is("update user set last_name=?, version=?, updated_at=? where id=? and version=?"));
+    }
+
+    protected void assertBlockingThreads() {
+        assertThat(ThreadRecordingStatementInspector.THREADS, not(empty()));
+        assertThat(ThreadRecordingStatementInspector.THREADS, everyItem(startsWith("jdbc-offload-")));
+    }
+
+    private EntityExchangeResult<List<User>> keysetPage(final String cursor) {
+        return webTestClient.get().uri(KEYSET + cursor)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBodyList(User.class)
+                .returnResult();
+    }
+
+    protected User create(final Map<String, String> user) {
+        return webTestClient.post().uri("/users")
+                .bodyValue(user)
+                .exchange()
+                .expectStatus().isCreated()
+                .expectBody(User.class)
+                .returnResult()
+                .getResponseBody();
+    }
+
+    protected static Map<String, String> newUser() {
+        return newUser("first", UUID.randomUUID() + "@ibenta.com.au");
+    }
+
+    protected static Map<String, String> newUser(final String firstName, final String email) {
+        return Map.of("firstName", firstName, "lastName", "last", "email", email, "password", "secret");
+    }
+}
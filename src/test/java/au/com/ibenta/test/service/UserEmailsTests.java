@@ -0,0 +1,76 @@
+package au.com.ibenta.test.service;
+
+import au.com.ibenta.test.model.User;
+import au.com.ibenta.test.persistence.UserEntity;
+import au.com.ibenta.test.persistence.UserRepository;
+import au.com.ibenta.test.persistence.UserStore;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import reactor.core.Exceptions;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.when;
+
+@DisplayName("test user emails")
+public class UserEmailsTests {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final UserStore store = mock(UserStore.class);
+    private final UserRepository repository = mock(UserRepository.class);
+    private final UserChangeFeed feed = spy(new UserChangeFeed(new UserChangeFeedProperties(), registry));
+
+    @Test
+    @DisplayName("test emails are checked in the database after losing the feed until it resumes and reloads")
+    public void testResume() {
+        when(store.findByEmail(anyString())).thenReturn(Mono.empty());
+        when(store.findByEmail("second@ibenta.com.au")).thenReturn(Mono.just(entity(2L, "second@ibenta.com.au")));
+        when(repository.findByIdGreaterThanOrderByIdAsc(anyLong(), any())).thenReturn(List.of(entity(1L, "first@ibenta.com.au")));
+        doReturn(Flux.error(Exceptions.failWithOverflow())).doCallRealMethod().when(feed).changes(any());
+
+        final var emails = new UserEmails(store, repository, Schedulers.immediate(), feed, new UserEmailsProperties());
+        emails.bindTo(registry);
+        emails.load();
+
+        assertThat(emails.isLoaded(), is(false));
+        StepVerifier.create(emails.isTaken("unknown@ibenta.com.au")).expectNext(false).verifyComplete();
+        assertThat(registry.get(UserEmails.CHECKS).tag("result", "unfiltered").counter().count(), is(1.0));
+
+        // published while the feed is lost, it is replayed once the filter resubscribes
+        feed.publish(UserChangeEvent.Type.CREATED, User.builder().id(2L).email("second@ibenta.com.au").version(0L).build());
+        StepVerifier.create(Mono.fromCallable(emails::isLoaded)
+                .filter(loaded -> loaded)
+                .repeatWhenEmpty(repeats -> repeats.delayElements(Duration.ofMillis(20))))
+                .expectNext(true)
+                .expectComplete()
+                .verify(Duration.ofSeconds(5));
+
+        StepVerifier.create(emails.isTaken("second@ibenta.com.au")).expectNext(true).verifyComplete();
+        StepVerifier.create(emails.isTaken("unknown@ibenta.com.au")).expectNext(false).verifyComplete();
+        assertThat(registry.get(UserEmails.CHECKS).tag("result", "taken").counter().count(), is(1.0));
+        assertThat(registry.get(UserEmails.CHECKS).tag("result", "absent").counter().count(), is(1.0));
+        emails.destroy();
+    }
+
+    private static UserEntity entity(final Long id, final String email) {
+        final var entity = new UserEntity();
+        entity.setId(id);
+        entity.setEmail(email);
+        entity.setVersion(0L);
+        return entity;
+    }
+}
@@ -0,0 +1,78 @@
+package au.com.ibenta.test.service;
+
+import au.com.ibenta.test.persistence.UserEntity;
+import au.com.ibenta.test.persistence.UserStore;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.time.Duration;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@DisplayName("test user exporter")
+public class UserExporterTests {
+
+    private final DefaultDataBufferFactory factory = new DefaultDataBufferFactory();
+
+    private UserExporter exporter;
+
+    @BeforeEach
+    public void setup() {
+        final var store = mock(UserStore.class);
+        when(store.streamAll(anyInt())).thenReturn(Flux.<UserEntity>never());
+
+        final var properties = new UserExportProperties();
+        properties.setMaxConcurrent(2);
+        exporter = new UserExporter(store, new ObjectMapper(), properties);
+    }
+
+    @Test
+    @DisplayName("test exports beyond the cap are rejected until one ends")
+    public void testConcurrentExports() {
+        final var first = exporter.export(UserExporter.Format.NDJSON, factory).subscribe();
+        final var second = exporter.export(UserExporter.Format.NDJSON, factory).subscribe();
+
+        StepVerifier.create(exporter.export(UserExporter.Format.CSV, factory))
+                .expectError(ExportLimitExceededException.class)
+                .verify();
+
+        first.dispose();
+        StepVerifier.create(exporter.export(UserExporter.Format.NDJSON, factory))
+                .expectSubscription()
+                .expectNoEvent(Duration.ofMillis(50))
+                .thenCancel()
+                .verify();
+        second.dispose();
+    }
+
+    @Test
+    @DisplayName("test csv fields a spreadsheet would run as formulas are kept as text")
+    public void testFormulaInjection() throws IOException {
+        assertThat(csvField("=HYPERLINK(\"http://evil\")"), is("\"'=HYPERLINK(\"\"http://evil\"\")\""));
+        assertThat(csvField("+61 400"), is("\"'+61 400\""));
+        assertThat(csvField("-2+3"), is("\"'-2+3\""));
+        assertThat(csvField("@SUM(A1)"), is("\"'@SUM(A1)\""));
+        assertThat(csvField("\tcmd"), is("\"'\tcmd\""));
+        assertThat(csvField("Smith, Jo"), is("\"Smith, Jo\""));
+        assertThat(csvField("a=b@c.com"), is("a=b@c.com"));
+        assertThat(csvField(""), is(""));
+        assertThat(csvField(null), is(""));
+    }
+
+    private static String csvField(final String value) throws IOException {
+        final var out = new StringWriter();
+        UserExporter.writeCsvField(out, value);
+        return out.toString();
+    }
+}
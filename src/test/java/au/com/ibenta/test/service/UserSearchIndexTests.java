@@ -0,0 +1,166 @@
+package au.com.ibenta.test.service;
+
+import au.com.ibenta.test.model.User;
+import au.com.ibenta.test.persistence.UserEntity;
+import au.com.ibenta.test.persistence.UserRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import reactor.core.Exceptions;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.when;
+
+@DisplayName("test user search index")
+public class UserSearchIndexTests {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final UserRepository repository = mock(UserRepository.class);
+    private final UserChangeFeed feed = new UserChangeFeed(new UserChangeFeedProperties(), registry);
+
+    private UserSearchIndex index;
+
+    @BeforeEach
+    public void setup() {
+        final var properties = new UserSearchProperties();
+        properties.setBuildBatchSize(2);
+        index = new UserSearchIndex(repository, Schedulers.immediate(), Schedulers.immediate(), feed, properties);
+        index.bindTo(registry);
+    }
+
+    @Test
+    @DisplayName("test matches are ranked by whole field, whole word, word prefix, then anywhere")
+    public void testRanking() {
+        index.put(user(1L, "Annabel", "Smith", "a.smith@ibenta.com.au"));
+        index.put(user(2L, "Ann", "Jones", "jones@ibenta.com.au"));
+        index.put(user(3L, "Joanne", "Brown", "joanne.ann@ibenta.com.au"));
+        index.put(user(4L, "Hannah", "Lee", "lee@ibenta.com.au"));
+
+        assertThat(ids("ann", PageRequest.of(0, 10)), contains(2L, 3L, 1L, 4L));
+        assertThat(ids("ANN", PageRequest.of(1, 3)), contains(4L));
+        assertThat(ids("an", PageRequest.of(0, 10)), contains(1L, 2L, 3L));
+        assertThat(ids("ann smi", PageRequest.of(0, 10)), contains(1L));
+        assertThat(ids("nna lee", PageRequest.of(0, 10)), contains(4L));
+        assertThat(ids("xyz", PageRequest.of(0, 10)), empty());
+        assertThat(registry.get(UserSearchIndex.SEARCHES).timer().count(), is(6L));
+    }
+
+    @Test
+    @DisplayName("test changes from the feed are indexed and older versions ignored")
+    public void testChanges() {
+        index.load();
+
+        feed.publish(UserChangeEvent.Type.CREATED, user(1L, "Annabel", "Smith", "a.smith@ibenta.com.au"));
+        assertThat(ids("smith", PageRequest.of(0, 10)), contains(1L));
+
+        final var renamed = user(1L, "Annabel", "Taylor", "a.taylor@ibenta.com.au");
+        renamed.setVersion(1L);
+        feed.publish(UserChangeEvent.Type.UPDATED, renamed);
+        index.put(user(1L, "Annabel", "Smith", "a.smith@ibenta.com.au"));
+        assertThat(ids("smith", PageRequest.of(0, 10)), empty());
+        assertThat(ids("tay", PageRequest.of(0, 10)), contains(1L));
+
+        feed.publish(UserChangeEvent.Type.DELETED, renamed);
+        assertThat(ids("annabel", PageRequest.of(0, 10)), empty());
+        assertThat(index.size(), is(0));
+        assertThat(registry.get("user.search.index.terms").tag("kind", "trigram").gauge().value(), is(0.0));
+        index.destroy();
+    }
+
+    @Test
+    @DisplayName("test the index is loaded in batches without users deleted meanwhile")
+    public void testLoad() {
+        when(repository.findByIdGreaterThanOrderByIdAsc(eq(0L), any())).thenAnswer(invocation -> {
+            feed.publish(UserChangeEvent.Type.DELETED, user(2L, "Ann", "Jones", "jones@ibenta.com.au"));
+            return List.of(entity(1L, "Annabel"), entity(2L, "Ann"));
+        });
+        when(repository.findByIdGreaterThanOrderByIdAsc(eq(2L), any())).thenReturn(List.of(entity(3L, "Joanne")));
+
+        index.load();
+
+        assertThat(ids("ann", PageRequest.of(0, 10)), contains(1L, 3L));
+        assertThat(registry.get("user.search.index.memory").gauge().value(), greaterThan(0.0));
+        index.destroy();
+    }
+
+    @Test
+    @DisplayName("test deleted users leave no slots behind as users come and go")
+    public void testChurn() {
+        for (long id = 1; id <= 10; id++) {
+            index.put(user(id, "Annabel", "Smith", "a.smith@ibenta.com.au"));
+        }
+        final var memory = registry.get("user.search.index.memory").gauge().value();
+
+        for (long id = 11; id <= 1000; id++) {
+            index.remove(id - 10);
+            index.put(user(id, "Annabel", "Smith", "a.smith@ibenta.com.au"));
+        }
+
+        assertThat(index.size(), is(10));
+        assertThat(registry.get("user.search.index.memory").gauge().value(), is(memory));
+        assertThat(ids("annabel smith", PageRequest.of(0, 20)), contains(LongStream.rangeClosed(991, 1000).boxed().toArray()));
+    }
+
+    @Test
+    @DisplayName("test the index resumes after the last change it applied when it loses the feed")
+    public void testResume() {
+        final var flaky = spy(feed);
+        doReturn(Flux.error(Exceptions.failWithOverflow())).doCallRealMethod().when(flaky).changes(any());
+        final var resumed = new UserSearchIndex(repository, Schedulers.immediate(), Schedulers.immediate(), flaky, new UserSearchProperties());
+        resumed.load();
+
+        flaky.publish(UserChangeEvent.Type.CREATED, user(1L, "Annabel", "Smith", "a.smith@ibenta.com.au"));
+        StepVerifier.create(Mono.defer(() -> resumed.search("smith", PageRequest.of(0, 10)))
+                .filter(Page::hasContent)
+                .repeatWhenEmpty(repeats -> repeats.delayElements(Duration.ofMillis(20))))
+                .expectNextMatches(page -> page.getContent().get(0).getId() == 1L)
+                .expectComplete()
+                .verify(Duration.ofSeconds(5));
+
+        flaky.publish(UserChangeEvent.Type.DELETED, user(1L, "Annabel", "Smith", "a.smith@ibenta.com.au"));
+        assertThat(resumed.size(), is(0));
+        resumed.destroy();
+    }
+
+    private List<Long> ids(final String query, final Pageable pageable) {
+        return index.search(query, pageable).block(Duration.ofSeconds(1)).getContent().stream()
+                .map(User::getId)
+                .collect(Collectors.toList());
+    }
+
+    private static User user(final Long id, final String firstName, final String lastName, final String email) {
+        return User.builder().id(id).firstName(firstName).lastName(lastName).email(email).version(0L).build();
+    }
+
+    private static UserEntity entity(final Long id, final String firstName) {
+        final var entity = new UserEntity();
+        entity.setId(id);
+        entity.setFirstName(firstName);
+        entity.setLastName("last");
+        entity.setEmail(firstName.toLowerCase() + "@ibenta.com.au");
+        entity.setVersion(0L);
+        return entity;
+    }
+}
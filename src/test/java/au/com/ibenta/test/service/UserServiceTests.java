@@ -0,0 +1,76 @@
+package au.com.ibenta.test.service;
+
+import au.com.ibenta.hashing.PasswordHasher;
+import au.com.ibenta.test.model.Credentials;
+import au.com.ibenta.test.persistence.UserEntity;
+import au.com.ibenta.test.persistence.UserStore;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.OptimisticLockingFailureException;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import reactor.test.StepVerifier;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@DisplayName("test user service")
+public class UserServiceTests {
+
+    private static final String EMAIL = "user@ibenta.com.au";
+    private static final String PASSWORD = "secret";
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final UserStore store = mock(UserStore.class);
+    private final UserChangeFeed feed = new UserChangeFeed(new UserChangeFeedProperties(), registry);
+
+    private UserService service;
+
+    @BeforeEach
+    public void setup() {
+        final var weaker = new PasswordHasher(4, Schedulers.immediate(), 1);
+        final var entity = new UserEntity();
+        entity.setId(1L);
+        entity.setEmail(EMAIL);
+        entity.setVersion(3L);
+        entity.setPassword(weaker.encode(PASSWORD).block());
+        when(store.findByEmail(EMAIL)).thenReturn(Mono.fromSupplier(() -> entity));
+
+        final var hasher = new PasswordHasher(5, Schedulers.immediate(), 1);
+        service = new UserService(store, feed, hasher, new UserCache(store, new UserCacheProperties()), mock(UserEmails.class));
+    }
+
+    @Test
+    @DisplayName("test a login still succeeds when replacing an outdated hash conflicts with an update")
+    public void testRehashConflict() {
+        when(store.save(any())).thenReturn(Mono.error(new OptimisticLockingFailureException("updated meanwhile")));
+
+        StepVerifier.create(service.authenticate(new Credentials(EMAIL, PASSWORD)))
+                .expectNextMatches(user -> user.getVersion() == 3L)
+                .verifyComplete();
+        assertThat(feed.lastEventId(), is(0L));
+    }
+
+    @Test
+    @DisplayName("test replacing an outdated hash is published as an update")
+    public void testRehashPublished() {
+        when(store.save(any())).thenAnswer(invocation -> {
+            final UserEntity saved = invocation.getArgument(0);
+            saved.setVersion(saved.getVersion() + 1);
+            return Mono.just(saved);
+        });
+
+        StepVerifier.create(feed.changes(0L))
+                .then(() -> StepVerifier.create(service.authenticate(new Credentials(EMAIL, PASSWORD)))
+                        .expectNextMatches(user -> user.getVersion() == 4L)
+                        .verifyComplete())
+                .expectNextMatches(event -> event.getType() == UserChangeEvent.Type.UPDATED && event.getUser().getVersion() == 4L)
+                .thenCancel()
+                .verify();
+    }
+}
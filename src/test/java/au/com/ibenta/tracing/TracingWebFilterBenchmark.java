@@ -0,0 +1,77 @@
+package au.com.ibenta.tracing;
+
+import brave.Span;
+import brave.Tracing;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+import reactor.util.context.Context;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of {@link TracingWebFilter} on a request whose handler does nothing. Each operation builds a fresh mock
+ * exchange, {@link #baseline()} measures that alone. {@code headerSampleRate} shows the share of the B3 response headers.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TracingWebFilterBenchmark {
+
+    private final WebFilterChain chain = exchange -> Mono.empty();
+
+    @Param({"1.0", "0.0"})
+    private double headerSampleRate;
+
+    private TracingWebFilter filter;
+    private Tracing tracing;
+    private Context context;
+
+    @Setup
+    public void setup() {
+        final var properties = new TracingProperties();
+        properties.setHeaderSampleRate(headerSampleRate);
+        filter = new TracingWebFilter(properties);
+        tracing = Tracing.newBuilder().build();
+        context = Context.of(Span.class, tracing.tracer().newTrace());
+    }
+
+    @TearDown
+    public void teardown() {
+        tracing.close();
+    }
+
+    @Benchmark
+    public Object baseline() {
+        final var exchange = exchange();
+        chain.filter(exchange).subscriberContext(context).block();
+        return exchange;
+    }
+
+    @Benchmark
+    public Object filter() {
+        final var exchange = exchange();
+        filter.filter(exchange, chain).subscriberContext(context).block();
+        return exchange;
+    }
+
+    private static MockServerWebExchange exchange() {
+        return MockServerWebExchange.from(MockServerHttpRequest.get("/users/1"));
+    }
+}
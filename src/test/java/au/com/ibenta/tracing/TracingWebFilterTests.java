@@ -0,0 +1,94 @@
+package au.com.ibenta.tracing;
+
+import brave.Span;
+import brave.Tracing;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.slf4j.MDC;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+import reactor.util.context.Context;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static au.com.ibenta.tracing.TracingWebFilter.X_B3_SPAN_ID;
+import static au.com.ibenta.tracing.TracingWebFilter.X_B3_TRACE_ID;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+
+@DisplayName("test tracing web filter")
+public class TracingWebFilterTests {
+
+    private Tracing tracing;
+    private Span span;
+
+    @BeforeEach
+    public void setup() {
+        tracing = Tracing.newBuilder().build();
+        span = tracing.tracer().newTrace();
+    }
+
+    @AfterEach
+    public void teardown() {
+        tracing.close();
+    }
+
+    @Test
+    @DisplayName("test sampled responses carry the trace headers")
+    public void testHeaders() {
+        final var exchange = exchange();
+
+        filter(1.0, exchange, ex -> Mono.empty());
+
+        final var headers = exchange.getResponse().getHeaders();
+        assertThat(headers.getFirst(X_B3_TRACE_ID), is(span.context().traceIdString()));
+        assertThat(headers.getFirst(X_B3_SPAN_ID), is(span.context().spanIdString()));
+    }
+
+    @Test
+    @DisplayName("test unsampled responses carry no trace headers")
+    public void testUnsampled() {
+        final var exchange = exchange();
+
+        filter(0.0, exchange, ex -> Mono.empty());
+
+        assertThat(exchange.getResponse().getHeaders().containsKey(X_B3_TRACE_ID), is(false));
+    }
+
+    @Test
+    @DisplayName("test the mdc is filled only while a log statement runs")
+    public void testLazyMdc() {
+        final List<Map<String, String>> logged = new ArrayList<>();
+        final WebFilterChain chain = ex -> Mono.just("logged")
+                .doOnEach(RequestTrace.logOnNext(value -> logged.add(MDC.getCopyOfContextMap())))
+                .then();
+
+        filter(0.0, exchange(), chain);
+
+        assertThat(logged.size(), is(1));
+        assertThat(logged.get(0).get(RequestTrace.SERVICE_URL), is("/users/1?page=2"));
+        assertThat(logged.get(0).get(RequestTrace.TRACE_ID), is(span.context().traceIdString()));
+        assertThat(logged.get(0).get(RequestTrace.SPAN_ID), is(span.context().spanIdString()));
+        assertThat(MDC.get(RequestTrace.SERVICE_URL), is(nullValue()));
+    }
+
+    private void filter(final double sampleRate, final MockServerWebExchange exchange, final WebFilterChain chain) {
+        final var properties = new TracingProperties();
+        properties.setHeaderSampleRate(sampleRate);
+
+        StepVerifier.create(new TracingWebFilter(properties).filter(exchange, chain).subscriberContext(Context.of(Span.class, span)))
+                .verifyComplete();
+    }
+
+    private static MockServerWebExchange exchange() {
+        return MockServerWebExchange.from(MockServerHttpRequest.get("/users/1?page=2"));
+    }
+}